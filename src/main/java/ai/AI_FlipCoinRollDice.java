@@ -55,6 +55,10 @@ public class AI_FlipCoinRollDice implements QuoridorAI {
 
     }
 
+    public void setSeed(long seed) {
+        rand = new Random(seed);
+    }
+
     public void reset() {
         rand = new Random(System.currentTimeMillis());
     }
@@ -1,15 +1,23 @@
 /** AI_HAL.java
   * ___________________________________________________________
   *
-  *     This is our best AI! 
+  *     This is our best AI!
   *       - HAL will check to see who has the shortest path
   *           and then try to block them, unless of course
   *           HAL has the shortest path then will move in that direction
+  *
+  *     Blocking works on a Position (see search/) rather than on wall
+  *       strings: every wall slot on the leader's shortest path is a
+  *       candidate, each one is tried with make/unmake and scored by
+  *       how much longer it makes everybody's path, and the best one
+  *       is played if it gains HAL anything at all.
   */
 
-import java.util.*;
 public class AI_HAL implements QuoridorAI {
 
+    private final int [] moves = new int[Move.COUNT];
+    private final int [] field = new int[Move.SQUARES];
+
     /**
       * Constructor.
       */
@@ -21,136 +29,101 @@ public class AI_HAL implements QuoridorAI {
       *     @param p Player that is moving
       */
     public String getMove(GameBoard b, Player p) {
-        Graph virtualBoard = new Graph(b.COLUMNS * b.ROWS);
-        Square[] path = virtualBoard.buildPath(b,p);
-        Square[] pathShort = path;
-        
         int pno = p.getPlayerNo();
+        Position pos = Position.fromBoard(b, pno);
+
+        // find which player has the shortest path
         int winningPlayer = pno;
-       
-        // find which player has the shortest path 
-        for(int i = 0; i < 4; i++){
-            Square [] temp = null;
-            if(i != pno && b.isPlayerRemaining(i))
-                temp = virtualBoard.buildPath(b,b.getPlayer(i));
-            if(temp != null && temp.length < (pathShort.length)){
-                pathShort = temp;
+        int shortest = pos.distance(pno);
+        for (int i = 0; i < pos.numPlayers(); i++) {
+            if (i != pno && pos.isActive(i) && pos.distance(i) < shortest) {
+                shortest = pos.distance(i);
                 winningPlayer = i;
             }
         }
 
         // if this AI is not the Player with the shortest path,
         //  try to block the opponent with the shortest path
-        if(winningPlayer != pno){
-            // get a wall-blocking string
-            String block = blockPlayer(b, winningPlayer,pno, pathShort);
-            // if we have a valid wall-blocking string, return it
-            if(block != null) {
-                return block;
+        if (winningPlayer != pno) {
+            int block = blockPlayer(pos, winningPlayer);
+            if (block != Move.NONE) {
+                return Move.toString(block);
             }
         }
-        
-        // otherwise, return the next move in the shortest path
-        return path[0].toString();
-    }
 
+        // otherwise, take a step along the shortest path
+        return Move.toString(step(pos));
+    }
 
     /**
-     * Attempts to block an opposing player's path.
-     *     @param b GameBoard to retrieve locations from
-     *     @param opponentNo the ID number of the Player we wish to block
-     *     @param aiNO this AI's Player number
-     *     @param path the path of the opposing player
+     * Finds the pawn move that gets closest to the goal.
+     *     @param pos position with HAL to move
+     *     @return the move
      */
-    public String blockPlayer(GameBoard b, int opponentNo, int aiNo, Square[] path){
-
-        int blockTwoX = path[0].getX();
-        int blockTwoY = path[0].getY();
-        Square blockOne = b.getPlayerLoc(opponentNo);
-        boolean outOfBounds = false;
-        Square blockZero;
-        Random rand = new Random(System.currentTimeMillis());
-
-        // if the opponent wants to move vertically (assume UP)
-        if ( blockTwoX == blockOne.getX() ) {
-            blockTwoX++;
-            // check if the opponent wants to move DOWN
-            if ( blockTwoY > blockOne.getY() ) 
-                blockTwoY--;
-            else
-                blockOne = path[0];
-        }
-        // if the opponent wants to move horizontally (assume LEFT)
-        else {
-            blockTwoY++;
-            // check if the opponent wants to move RIGHT
-            if ( blockTwoX > blockOne.getX() ) 
-                blockTwoX--;
-            else
-                blockOne = path[0];
-        }
-
-
-
-        // assign second wall piece
-        Square blockTwo = b.getSquare(blockTwoX,blockTwoY);
-
-        // validate the bounds of the second wall piece
-        if ( blockTwo == null ) {
-            outOfBounds = true;
-            
-            // if blockTwoX exceeds the right boundary
-            if ( blockTwoX >= b.COLUMNS ) {
-                blockTwo = blockOne;
-                blockOne = b.getSquare(blockTwoX-2,blockTwoY);
-            }
-            // if blockTwoX exceeds the left boundary
-            else if ( blockTwoX < 0 ) { 
-                blockTwo = b.getSquare(blockTwoX+2,blockTwoY);
+    private int step(Position pos) {
+        pos.distanceField(pos.toMove(), field);
+        int n = pos.pawnMoves(moves, 0);
+        int best = moves[0];
+        for (int i = 1; i < n; i++) {
+            if (field[moves[i]] >= 0
+                && (field[best] < 0 || field[moves[i]] < field[best])) {
+                best = moves[i];
             }
-            // if blockTwoY exceeds the bottom boundary
-            else if ( blockTwoY >= b.ROWS ) {
-                blockTwo = blockOne;
-                blockOne = b.getSquare(blockTwoX,blockTwoY-2);
-            }
-            // if blockTwoY exceeds the top boundary
-            else {
-                blockTwo = b.getSquare(blockTwoX,blockTwoY+2);
-            }
-        } 
-
+        }
+        return best;
+    }
 
-        if(blockOne.getY() == blockTwo.getY()) {
-            blockZero = b.getSquare(blockOne.getX() - 1,blockOne.getY());
+    /**
+     * Attempts to block an opposing player's path. Every wall that cuts the
+     * opponent's shortest path is tried; a wall scores the steps it adds to
+     * everyone else's path (the opponent's count twice) minus twice the steps
+     * it adds to HAL's own.
+     *     @param pos position with HAL to move
+     *     @param opponentNo the ID number of the Player we wish to block
+     *     @return the best wall, or Move.NONE if no wall gains anything
+     */
+    public int blockPlayer(Position pos, int opponentNo) {
+        int aiNo = pos.toMove();
+        if (pos.wallsLeft(aiNo) == 0) {
+            return Move.NONE;
         }
-        else {
-            blockZero = b.getSquare(blockOne.getX(), blockOne.getY() - 1);
+        int [] before = new int[pos.numPlayers()];
+        for (int s = 0; s < pos.numPlayers(); s++) {
+            before[s] = pos.isActive(s) ? pos.distance(s) : 0;
         }
 
-        // Set up the strings for the walls
-        String wallString12 = "(" + blockOne + "," + blockTwo + ")";
-        String wallString01 = "(" + blockZero + "," + blockOne + ")";
-
-
-        // randomly decide on which side to put the wall
-        if(rand.nextInt(2) == 0 && !outOfBounds) {
-            if(GameEngine.validate(b,b.getPlayer(aiNo), wallString01) != null) {
-                return wallString01;
-            }
-            // If the first wall fails try the second one
-            if(GameEngine.validate(b,b.getPlayer(aiNo), wallString12) != null) {
-                return wallString12;
+        long [] cut = pos.pathBlockers(opponentNo);
+        int best = Move.NONE;
+        int bestScore = 0;
+        for (int slot = 0; slot < Move.SLOTS; slot++) {
+            for (int o = 0; o < 2; o++) {
+                if ((cut[o] & (1L << slot)) == 0) {
+                    continue;
+                }
+                int wall = (o == 0 ? Move.H_BASE : Move.V_BASE) + slot;
+                if (!pos.wallFits(wall)) {
+                    continue;
+                }
+                pos.make(wall);
+                if (!pos.wallMayBlock(wall) || pos.pathsExist()) {
+                    int score = 0;
+                    for (int s = 0; s < pos.numPlayers(); s++) {
+                        if (!pos.isActive(s)) {
+                            continue;
+                        }
+                        int delta = pos.distance(s) - before[s];
+                        score += (s == aiNo) ? -2 * delta
+                               : (s == opponentNo) ? 2 * delta : delta;
+                    }
+                    if (score > bestScore) {
+                        bestScore = score;
+                        best = wall;
+                    }
+                }
+                pos.unmake();
             }
         }
-        // Else just use the first wall
-        else {
-            if(GameEngine.validate(b,b.getPlayer(aiNo), wallString12) != null) {
-                return wallString12;
-            }
-        }
-
-        // return the wall string if it is a valid wall placement on the GameBoard
-        return null;
+        return best;
     }
 
     /**
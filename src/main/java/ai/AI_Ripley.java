@@ -1,16 +1,24 @@
 /* AI_Ripley.java - CIS405 - teams
- * Version: 0.3 <-- I probably won't keep up with this
- * Last Modified: April 10th
+ * Version: 0.4 <-- I probably won't keep up with this
+ * Last Modified: October 19th
  * ____________________________________________________________________________
  *
- *      current version will assume AI is player 0; there is currently no
- *      transpositioning of walls and other player movements
+ *      Ripley keeps a virtual board: the number of steps from every square
+ *      to its goal edge, around horizontal and vertical walls alike, and
+ *      always steps to the reachable square with the smallest value.
  *
- *      Ripley doesn't know how to behave as player1,2, or 3 yet. 
- *      expect fuck ups if you set him as those players
+ *      The virtual board is not rebuilt for every move. Ripley follows the
+ *      game through the QuoridorAI callbacks: a pawn that moves only moves
+ *      in Ripley's own copy of the position, and a wall is rippled in right
+ *      away, repairing only the squares whose distance it lengthens (see
+ *      ripple), so a move costs about as much as the change it brings.
+ *      The GameBoard is only read when Ripley has not been told of every
+ *      move, e.g. on its first move or for a caller without callbacks.
  *
- *      Note: Future versions of Ripley will need to know which player it is so
- *       it can transpose its moves and placements accordingly
+ *      Ripley plays any seat. Everything is turned (see SeatTransform) so
+ *      that Ripley always sees itself as player 0 moving down; the virtual
+ *      board only ever counts steps to the bottom edge, and moves are
+ *      turned back on the way out.
  *
  */
 
@@ -20,131 +28,159 @@ import java.util.LinkedList;
 
 public class AI_Ripley implements QuoridorAI {
 
-    private final int X = 0;
-    private final int Y = 1;
+    private static final int UNREACHABLE = 999; // walled-in squares
 
     private int[][] virtualBoard;
-    // use a 3D array in the future, using depth as a board for each player 
-    private int[] currPos;
-    // consider as a 2D array in the future, 2 x numPlayers
-
-    public Deb deb;
-    // used for debugging
+    // distance to the goal, indexed [x][y], in ripley's own view: whatever
+    // seat ripley plays, it sees itself as player 0 moving down (see
+    // transposeIn)
+
+    private int seat;        // seat ripley is playing, -1 if none yet
+    private long hWalls;     // walls already rippled into the virtual board
+    private long vWalls;     //   (bit masks of wall slots, see Move)
+    private Position view;   // the game in ripley's view, or null
+    private boolean told;    // a callback came since the last getMove
+
+    // scratch space for ripple, so a move allocates nothing
+    private final boolean[] broken = new boolean[Move.SQUARES];
+    private final int[] sorted = new int[Move.SQUARES];  // by distance
+    private final int[] fifo   = new int[Move.SQUARES];  // found on the way
+    private final int[] fixes  = new int[Move.SQUARES];  // broken squares
+    private final int[] moves  = new int[Move.COUNT];
+
+    // one debug file for all Ripleys: a server makes one per session, and
+    // a Deb of each would open ripley_debug again, truncating it
+    public static final Deb deb = new Deb("ripley");
 
     /**
       * constructs Ripley's virtualBoard and other deliciousness
       */
     public AI_Ripley () {
-        // fill array with integer values
         virtualBoard = new int[GameBoard.COLUMNS][GameBoard.ROWS];
         resetBoard();
-        // Setup inital position(s)
-        currPos = new int[2];
-        currPos[X] = 4; 
-        currPos[Y] = 0;
-
-        //@@DEBUGGING
-        deb = new Deb("ripley");
+        seat = -1;
     }
 
     //xxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxx
 
     /**
-      * constructs Ripley's virtualBoard and the board of the other players
+      * constructs Ripley's virtualBoard; the number of players makes no
+      * difference any more, since the board is built for whichever seat
+      * Ripley is asked to move
       */
     public AI_Ripley ( int numPlayers ) {
-        // this will be completed at a later version
+        this();
     }
 
     //xxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxx
 
     /**
-      * resets all virtual board values
+      * resets all virtual board values to the distances on an empty board,
+      * and forgets the walls
       */
     private void resetBoard() {
         for ( int x = 0; x < GameBoard.COLUMNS; x++ )
             for ( int y = 0; y < GameBoard.ROWS; y++ )
                 virtualBoard[x][y] = 8 - y;
+        hWalls = 0;
+        vWalls = 0;
     }
 
     //xxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxx
     public String getMove(GameBoard board, Player p) {
-        // -- this will require receiving the previous move(s) from
-        //    the other players so we can make an appropriate adjustment,
-        //    otherwise ripley will have to rebuild a new virtualBoard
-        //    from scratch and iterate through the GameBoard... bleh!
-        // Directional compass
-        /*
-                       Y-1
-                        ^
-                        |
-                X-1 <-- o --> X+1
-                        |
-                        v
-                       Y+1
-        */               
-        //TODO: encapsulate this code in some sort of "makeMove" method
-        
-        // the first thing we want to do is to update the virtual
-        // board based on what has changed with the GameBoard
-        deb.ug("Updating board...");
-        
-        ripple(board);
-
-        //@@DEBUGGING
-        deb.ug(printVirtualBoard());
+        // the callbacks have kept the virtual board up to date; if they
+        // have not, it is brought up to date from the GameBoard
+        if ( view == null || !told || p.getPlayerNo() != seat ) {
+            deb.ug("Updating board...");
+            follow(Position.fromBoard(board, p.getPlayerNo()));
+        }
+        told = false;
+        view.setToMove(0);
+        assert (view.key() == SeatTransform.canonical(
+                    Position.fromBoard(board, seat), seat).key());
 
-        // get the array of possible locations from the engine
-        Square[] reachableLocs = GameEngine.reachableAdjacentSquares(board,
-                                 board.getSquare(currPos[X],currPos[Y]));
-        // now, get a listing of the distance values of our possible locations 
+        // the moves the referee will accept, jumps included
+        int n = view.pawnMoves(moves, 0);
 
         //@@DEBUGGING
-        deb.ug("Currently at: " + board.getSquare(currPos[X],currPos[Y]).toString());
-        deb.ug("Reachable Vals:");
-
-        int[] reachableVals = new int[reachableLocs.length];
-        for ( int i = 0; i < reachableLocs.length; i++ )  {
-            int x = reachableLocs[i].getX();
-            int y = reachableLocs[i].getY();
-            reachableVals[i] = virtualBoard[x][y];
-            //@@DEBUGGING
-            deb.ug(i+"="+reachableVals[i] + " ");
-        }
+        deb.ug("Currently at: " + Move.toString(view.pawn(0)));
+
         // we want to go the square that has the least value
         int bestLoc = 0;
-        for ( int i = 0; i < reachableVals.length; i++ ) {
-            if ( reachableVals[bestLoc] > reachableVals[i] )
-                bestLoc = i; 
+        for ( int i = 0; i < n; i++ ) {
+            if ( at(moves[bestLoc]) > at(moves[i]) )
+                bestLoc = i;
             // ^ consider randomly choosing a direction if values are equal
         }
 
-        //@@DEBUGGING
-        deb.ug("BestLoc=" + bestLoc);
+        String move = Move.toString(transposeOut(moves[bestLoc]));
+        deb.ug("Square to go to: " + move);
+
+        return move;
+    }
 
-        // alright, we have the direction we want to go in!
-        // update ripley's current position
-        currPos[X] = reachableLocs[bestLoc].getX();
-        currPos[Y] = reachableLocs[bestLoc].getY();
-        // let's build a string and return it!
+    //xxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxx
 
-        //@@DEBUGGING
-        deb.ug("Square to go to: " + reachableLocs[bestLoc].toString());
+    /**
+      * follows a move: a pawn only moves in ripley's copy of the game, a
+      * wall is rippled into the virtual board
+      *     @param b GameBoard after the move
+      *     @param player the player who moved
+      *     @param move the encoded move
+      */
+    public void moveMade(GameBoard b, Player player, int move) {
+        if ( view == null ) {
+            return;  // read from the board on the next getMove
+        }
+        told = true;
+        int who = SeatTransform.seat(seat, player.getPlayerNo());
+        int m = SeatTransform.move(seat, move);
+        if ( m == Move.NONE || !view.isActive(who) ) {
+            view = null;  // lost track; read the board next time
+        } else if ( !Move.isWall(m) ) {
+            view.setPawn(who, m);
+        } else if ( view.wallsLeft(who) == 0 ) {
+            view = null;
+        } else {
+            view.setToMove(who);
+            view.make(m);  // at most 20 walls, so the undo stack is fine
+            long bit = 1L << Move.slot(m);
+            ripple(view, Move.isHorizontal(m) ? bit : 0,
+                   Move.isHorizontal(m) ? 0 : bit);
+        }
+    }
+
+    /**
+      * follows a boot; the virtual board does not care about pawns
+      *     @param b GameBoard without the player
+      *     @param player the player who was booted
+      */
+    public void playerBooted(GameBoard b, Player player) {
+        if ( view != null ) {
+            told = true;
+            view.boot(SeatTransform.seat(seat, player.getPlayerNo()));
+        }
+    }
 
-        return reachableLocs[bestLoc].toString();
+    /**
+      * forgets the game
+      *     @param b final GameBoard
+      *     @param winner the player who won
+      */
+    public void gameOver(GameBoard b, Player winner) {
+        view = null;
     }
 
     //xxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxx
 
     /**
-      * resets the AI 
+      * resets the AI
       */
     public void reset() {
-        resetBoard();
-        // TODO: add resetPositions() method
-        currPos = new int[2];
-        currPos[X] = 4; 
-        currPos[Y] = 0;
+        seat = -1;
+        hWalls = 0;
+        vWalls = 0;
+        view = null;
     }
 
     //xxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxx
@@ -158,197 +194,257 @@ public class AI_Ripley implements QuoridorAI {
 
     //xxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxx
 
-    /** 
+    /**
       * prints a string representation of the virtualBoard
       * -- used primarily for testing
       */
     public String printVirtualBoard() {
         String vb = "";
         for ( int y = 0; y < GameBoard.ROWS; y++ ) {
-            //System.out.println();
             vb = vb + "\n";
             for ( int x = 0; x < GameBoard.COLUMNS; x++ )
-                if ( virtualBoard[x][y] < 10)
-                    //System.out.print(virtualBoard[x][y] + "  ");
+                if ( virtualBoard[x][y] == UNREACHABLE )
+                    vb = vb + "-- ";
+                else if ( virtualBoard[x][y] < 10)
                     vb = vb + virtualBoard[x][y] + "  ";
                 else
-                    //System.out.print(virtualBoard[x][y] + " ");
                     vb = vb + virtualBoard[x][y] + " ";
         }
         return vb;
     }
 
+    /**
+      * returns the virtual board value of a square of the real board
+      *     @param sq square index (see Move)
+      *     @return steps to the goal, or 999 if the goal is out of reach
+      */
+    public int value(int sq) {
+        return at(SeatTransform.square((seat < 0) ? 0 : seat, sq));
+    }
+
+    /* virtual board value of a square in ripley's own view */
+    private int at(int sq) {
+        return virtualBoard[sq % GameBoard.COLUMNS][sq / GameBoard.COLUMNS];
+    }
+
+    private void set(int sq, int value) {
+        virtualBoard[sq % GameBoard.COLUMNS][sq / GameBoard.COLUMNS] = value;
+    }
+
     //xxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxx
 
-    /** NOTE: this may not be used anymore since we won't be receiving strings
-      *       as they are made during the live game; use ripple instead
-      *
-      * updates the virtual board by adjusting locations based on a wall
-      * placement - also moves ripley the boardi
-      * @param move player move to update on the board
+    /**
+      * updates the virtual board with the walls placed on the game board
+      * since the last update. Ripley's seat defaults to player 0 if it has
+      * not been asked for a move yet.
+      *     @param gameBoard game board to check for walls on
       */
     public void update(GameBoard gameBoard) {
-        ripple(gameBoard);
+        int pno = (seat < 0) ? 0 : seat;
+        follow(Position.fromBoard(gameBoard, pno));
+    }
+
+    //xxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxx
+
+    /**
+      * takes a position read from the board as ripley's copy of the game
+      * and ripples in whatever walls are new
+      *     @param pos position on the real board, ripley's seat to move
+      */
+    private void follow(Position pos) {
+        view = transposeIn(pos);
+        ripple(view, view.hWalls() & ~hWalls, view.vWalls() & ~vWalls);
     }
 
     //xxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxx
 
     /**
       * transposes the given player moves and wall placements to be placed on
-      * the AI's virtual board
+      * the AI's virtual board: the position is turned so the player to move
+      * is player 0, moving down. If that is a different seat than before,
+      * the virtual board starts over, since every wall lands somewhere else.
+      *     @param pos position on the real board
+      *     @return the same position in ripley's view
       */
-    private void transposeIn() {
-        // pp: int playerNo <-- so we know how to transpose
-        // Unsure of type and parameters right now
+    private Position transposeIn(Position pos) {
+        if ( pos.toMove() != seat ) {
+            seat = pos.toMove();
+            resetBoard();
+        }
+        return SeatTransform.canonical(pos, seat);
     }
 
     //xxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxx
 
     /**
-      * tranposes the AI's player moves to the appropriate format for 
+      * tranposes the AI's player moves to the appropriate format for
       * GameBoard to understand
+      *     @param move a move in ripley's view
+      *     @return the same move on the real board
       */
-    private void transposeOut() {
-        // pp: int playerNo <-- so we know how to transpose
-        // Unsure of type and parameters right now
+    private int transposeOut(int move) {
+        return SeatTransform.moveBack(seat, move);
     }
 
     //xxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxx
 
     /**
-      * On a wall placement, increment all appropriate virtual board values to 
-      * indicate an increase of distance to the goal
-      *     @param gameBoard game board to check for walls on
+      * Brings the virtual board up to date with new walls of a position.
+      * Only the new walls are looked at, and only squares whose distance
+      * they lengthen are touched:
+      *
+      *   1. for every edge a new wall cuts, the square on the far side from
+      *      the goal may have lost its way out; it is a candidate
+      *   2. nearest to the goal first, a candidate is broken if no open edge
+      *      leads to an unbroken square one step closer; the squares one
+      *      step further out that could have used it become candidates
+      *   3. broken squares take the best distance an unbroken neighbour
+      *      offers and are settled by a breadth first search that runs over
+      *      the broken squares only
+      *
+      * Steps 2 and 3 visit squares in order of distance by merging a list
+      * sorted up front with a FIFO of squares found on the way, whose
+      * distances only ever grow.
+      *
+      *     @param pos position with the walls, in ripley's view
+      *     @param newH horizontal wall slots not rippled in yet
+      *     @param newV vertical ones
       */
-    private void ripple(GameBoard gameBoard) {
-        // reset the board
-        resetBoard();
-        // iterate through the board, row-wise
-        for (int y = 0; y < GameBoard.ROWS; y++) {
-            // calculate the row so we can figure out how to place walls
-            int[] rippleValues = calculateRow(gameBoard,y);
-            // "place horizontal walls" on the virtual board
-            for (int x = 0; x < GameBoard.COLUMNS; x++) {
-                // if horizontal wall detected, rippleUp()
-                if (gameBoard.getSquare(x,y).hasWallBottom()) {
-                    //initial ripple
-                    virtualBoard[x][y] += rippleValues[x];
-                    rippleUp(gameBoard, 
-                             gameBoard.getSquare(x,y).getWallBottom().isStart(),
-                             x, y-1, rippleValues[x]);
+    private void ripple(Position pos, long newH, long newV) {
+        if ( newH == 0 && newV == 0 ) {
+            return;
+        }
+        hWalls |= newH;
+        vWalls |= newV;
+
+        // 1. candidates: squares whose way out was a cut edge
+        int n = 0;
+        for ( long walls = newH | newV; walls != 0; walls &= walls - 1 ) {
+            int slot = Long.numberOfTrailingZeros(walls);
+            int sq = Move.square(slot % 8, slot / 8);
+            int below = sq + GameBoard.COLUMNS;
+            if ( (newH & (1L << slot)) != 0 ) {
+                n = cut(sq, below, n);
+                n = cut(sq + 1, below + 1, n);
+            }
+            if ( (newV & (1L << slot)) != 0 ) {
+                n = cut(sq, sq + 1, n);
+                n = cut(below, below + 1, n);
+            }
+        }
+        sortByValue(sorted, n);
+
+        // 2. sort out which candidates really are broken
+        int count = 0;
+        int s = 0;
+        int head = 0;
+        int tail = 0;
+        while ( s < n || head < tail ) {
+            int sq = (head == tail
+                      || (s < n && at(sorted[s]) <= at(fifo[head])))
+                     ? sorted[s++] : fifo[head++];
+            if ( hasWayOut(pos, sq) ) {
+                broken[sq] = false;
+                continue;
+            }
+            fixes[count++] = sq;
+            // squares that counted on this one may be broken too
+            for ( int dir = 0; dir < 4; dir++ ) {
+                if ( pos.canStep(sq, dir) ) {
+                    int next = sq + Position.STEP[dir];
+                    if ( !broken[next] && at(next) == at(sq) + 1 ) {
+                        broken[next] = true;
+                        fifo[tail++] = next;
+                    }
                 }
             }
-            // "place vertical walls" on the virtual board
-            for (int x = 0; x < GameBoard.COLUMNS-1; x++) {
-                // if a right wall is present
-                if (gameBoard.getSquare(x,y).hasWallRight()
-                    && gameBoard.getSquare(x,y).getWallRight().isEnd()) {
-                    
-                    if (virtualBoard[x][y] > virtualBoard[x+1][y]) {
-                        //rippleLeft(x,y,value);
-                        System.out.println("left of wall is greater");
+        }
+        deb.ug("rippling " + count + " squares");
+
+        // 3. re-settle the broken squares
+        n = 0;
+        for ( int i = 0; i < count; i++ ) {
+            int sq = fixes[i];
+            int best = UNREACHABLE;
+            for ( int dir = 0; dir < 4; dir++ ) {
+                if ( pos.canStep(sq, dir) ) {
+                    int next = sq + Position.STEP[dir];
+                    if ( !broken[next] && at(next) + 1 < best ) {
+                        best = at(next) + 1;
                     }
-                    else if (virtualBoard[x][y] < virtualBoard[x+1][y]) {
-                        //rippleRight(x,y,value);
-                        System.out.println("right of wall is greater");
+                }
+            }
+            set(sq, best);
+            if ( best < UNREACHABLE ) {
+                sorted[n++] = sq;
+            }
+        }
+        sortByValue(sorted, n);
+        s = 0;
+        head = 0;
+        tail = 0;
+        while ( s < n || head < tail ) {
+            int sq = (head == tail
+                      || (s < n && at(sorted[s]) <= at(fifo[head])))
+                     ? sorted[s++] : fifo[head++];
+            if ( !broken[sq] ) {
+                continue;  // already settled
+            }
+            broken[sq] = false;
+            for ( int dir = 0; dir < 4; dir++ ) {
+                if ( pos.canStep(sq, dir) ) {
+                    int next = sq + Position.STEP[dir];
+                    if ( broken[next] && at(next) > at(sq) + 1 ) {
+                        set(next, at(sq) + 1);
+                        fifo[tail++] = next;
                     }
-                    else
-                        //no rippling
-                        System.out.println("sides are equal, no rippling");
                 }
             }
-
-            //TODO:
-            // if vertical wall
-            // vertical walls are odd, we need to check starting from
-            // the end piece, and then the start piece
-
-            // if the end piece is next to a horizontal wall, increment
-            // it by 4, and the loctions next to the start piece by 2.
-            // this is not necessarily the best value to inc,
-            // but it will make the AI dislike this location very much
-            // ---- skip the next case if this happens ----
-
-            // if the start piece is next to a horizontal wall, increment
-            // it by 2. same as above, but the AI should dislike it
+        }
+        // whatever is still broken is walled in
+        for ( int i = 0; i < count; i++ ) {
+            broken[fixes[i]] = false;
         }
     }
 
-    private int[] calculateRow(GameBoard gameBoard, int y) {
-        int[] fromLeft  = countSquaresFromLeft (gameBoard,y);
-        int[] fromRight = countSquaresFromRight(gameBoard,y);
-        int[] row = new int[GameBoard.COLUMNS]; // calculated row
-        int rightInd = GameBoard.ROWS-1;        // right-most index
-        int leftInd  = 0;                       // left-most index
-        // If there is a wall against the right-most edge of the game board,
-        //  get the values from right-to-left
-        if ( fromLeft[GameBoard.COLUMNS-1] > 0 )
-            for ( ; fromLeft[rightInd] != 0; rightInd--)
-                row[rightInd] = fromLeft[rightInd];
-        // If there is a wall against the left-most edge of the game board,
-        //  get the values from left-to-right
-        if ( fromRight[0] > 0 )
-            for ( ; fromRight[leftInd] != 0; leftInd++ )
-                row[leftInd] = fromRight[leftInd];
-        // Get the smallest at each index of the remaining values from both 
-        //  arrays
-        for ( int i = leftInd; i < rightInd; i++ )
-            if ( fromLeft[i] > fromRight[i] )
-                row[i] = fromRight[i];
-            else
-                row[i] = fromLeft[i];
-        return row;
-    }
-
-    /* sum of walls on squares from left-to-right. sum resets when a square
-       without a bottom wall is encountered */
-    private int[] countSquaresFromLeft(GameBoard gameBoard, int y) {
-        int[] fromLeft = new int[GameBoard.ROWS];
-        int ct = 0;
-        for ( int x = 0; x < GameBoard.COLUMNS; x++ )
-            if ( gameBoard.getSquare(x,y).hasWallBottom() ) {
-                ct++;
-                fromLeft[x] = ct;
-            }
-            else ct = 0;
-        return fromLeft;
+    /* adds the farther square of a cut edge to the candidates if the edge
+       was its way to the goal; returns the new number of candidates */
+    private int cut(int a, int b, int n) {
+        int far = (at(a) == at(b) + 1) ? a
+                : (at(b) == at(a) + 1) ? b : -1;
+        if ( far >= 0 && !broken[far] ) {
+            broken[far] = true;
+            sorted[n++] = far;
+        }
+        return n;
     }
 
-    /* sum of walls on squares from right-to-left. sum resets when a square
-       without a bottom wall is encountered */
-    private int[] countSquaresFromRight(GameBoard gameBoard, int y) {
-        int[] fromRight = new int[GameBoard.ROWS];
-        int ct = 0;
-        for ( int x = GameBoard.COLUMNS-1; x >= 0; x-- )
-            if ( gameBoard.getSquare(x,y).hasWallBottom() ) {
-                ct++;
-                fromRight[x] = ct;
+    /* does the square still have an open edge to an unbroken square one
+       step closer to the goal (or is it on the goal itself) */
+    private boolean hasWayOut(Position pos, int sq) {
+        if ( at(sq) == 0 ) {
+            return true;
+        }
+        for ( int dir = 0; dir < 4; dir++ ) {
+            if ( pos.canStep(sq, dir) ) {
+                int next = sq + Position.STEP[dir];
+                if ( !broken[next] && at(next) == at(sq) - 1 ) {
+                    return true;
+                }
             }
-            else ct = 0;
-        return fromRight;
+        }
+        return false;
     }
 
-    /**
-      * Recursively increases the values of a column on the virtualBoard from
-      * the start point, denoted by parameters x and y, by the amount given.
-      *     @param gameBoard GameBoard to check for Walls on
-      *     @param wallType stop rippling if we encounter the same Wall section
-      *     @param x column to look at
-      *     @param y row to look at
-      */
-    private void rippleUp(GameBoard gameBoard, boolean wallType, int x, int y,
-                          int amount) {
-        // make sure we don't go out of bounds
-        if ( y < GameBoard.ROWS && y >= 0 )
-            // stop rippling if we encounter a wall that is the same section
-            if ( gameBoard.getSquare(x,y).hasWallBottom() &&
-                 gameBoard.getSquare(x,y).getWallBottom().isStart() == wallType ) {
-                return; // do nothing
-            } else {
-                // just keep rippling up
-                virtualBoard[x][y] += amount;
-                rippleUp(gameBoard,wallType,x,y-1,amount);
-            }
+    /* insertion sort of squares by virtual board value; n is small */
+    private void sortByValue(int[] squares, int n) {
+        for ( int i = 1; i < n; i++ ) {
+            int sq = squares[i];
+            int j = i - 1;
+            for ( ; j >= 0 && at(squares[j]) > at(sq); j-- )
+                squares[j + 1] = squares[j];
+            squares[j + 1] = sq;
+        }
     }
 
     //xxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxx
@@ -17,6 +17,10 @@ public class AI_RollDice implements QuoridorAI {
         return options[rand.nextInt(options.length)].toString();
     }
 
+    public void setSeed(long seed) {
+        rand = new Random(seed);
+    }
+
     public void reset() {
         rand = new Random(System.currentTimeMillis());
     }
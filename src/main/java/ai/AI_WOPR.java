@@ -0,0 +1,276 @@
+/** AI_WOPR.java
+  * ___________________________________________________________
+  *
+  *     A QuoridorAI that actually looks ahead. WOPR turns the
+  *       GameBoard into a Position and runs an alpha-beta search
+  *       (see search/AlphaBeta) on it.
+  *
+  *       - two players left: full iterative deepening search
+  *       - more than two: search/MaxNSearch, paranoid unless WOPR
+  *           was made to back up max-n vectors instead
+  *
+  *     While the opponents think, WOPR can ponder: it guesses their
+  *       moves up to its own turn with short searches (one move with
+  *       two players, up to three with four), then searches its own
+  *       reply to that until the real move arrives. With two players
+  *       everything lands in the engine's transposition table, so if
+  *       the guess was right the real search starts several plies
+  *       deep, and if it was wrong the table still holds the guess
+  *       search. MaxNSearch has no table, but it picks up where its
+  *       last search of the same position stopped, so a right guess
+  *       in a four-player game starts the real search deeper too.
+  *       Every move that comes in starts the pondering over from the
+  *       position as it really is.
+  *
+  *     With a node limit WOPR ignores the clock and does not ponder,
+  *       so a game replays move for move on any machine.
+  *
+  *     WOPR follows the game through the QuoridorAI callbacks, so it
+  *       keeps its own Position up to date move by move instead of
+  *       reading the whole GameBoard every turn.
+  *
+  *     The only winning move is to reach the other side first.
+  */
+
+public class AI_WOPR implements QuoridorAI {
+
+    private static final int MAX_DEPTH = 16;
+    private static final long TIME_BUDGET = 2000; // ms, if the referee is silent
+    private static final long GUESS_TIME = 100;   // ms to guess a reply
+
+    private final Evaluator eval = new Evaluator();
+    private final AlphaBeta engine = new AlphaBeta(eval);
+    private final MaxNSearch multi;        // for three or four players
+
+    private Thread ponderer;               // background search, or null
+    private volatile boolean pondering;    // cleared to end the ponderer
+    private volatile long ponderKey;       // position the ponderer expects
+
+    private Position game;  // the game as the callbacks told it, or null
+    private long nodeLimit; // nodes per move, 0 to go by the clock
+    private SearchStats stats;  // of the engine that found the last move
+
+    /**
+      * Constructor. Games with more than two players are searched paranoid.
+      */
+    public AI_WOPR() {
+        this(MaxNSearch.PARANOID);
+    }
+
+    /**
+      * Constructor.
+      *     @param multiMode MaxNSearch.MAX_N or MaxNSearch.PARANOID, for
+      *                      games with more than two players
+      */
+    public AI_WOPR(int multiMode) {
+        multi = new MaxNSearch(eval, multiMode);
+    }
+
+    /**
+      * Returns a move, thinking for the default time budget.
+      *     @param b GameBoard to play on
+      *     @param p Player that is moving
+      */
+    public String getMove(GameBoard b, Player p) {
+        return getMove(b, p, System.currentTimeMillis() + TIME_BUDGET);
+    }
+
+    /**
+      * Returns a move, searching until the deadline at the latest.
+      *     @param b GameBoard to play on
+      *     @param p Player that is moving
+      *     @param deadline System.currentTimeMillis() value to answer by
+      */
+    public String getMove(GameBoard b, Player p, long deadline) {
+        stopPondering();
+        if (nodeLimit > 0) {
+            deadline = Long.MAX_VALUE;
+        }
+        Position pos = position(b, p.getPlayerNo());
+        if (ponderKey != 0) {
+            Deb.ug.println("WOPR: ponder " + 
+                           (pos.key() == ponderKey ? "hit" : "miss"));
+            ponderKey = 0;
+        }
+        int move = search(pos, deadline);
+        if (pos.numActive() == 2) {
+            stats = engine.getStats();
+            Deb.ug.println("WOPR: depth " + engine.getDepth() + ", score "
+                           + engine.getScore() + ", nodes " + engine.getNodes()
+                           + (engine.wasAborted() ? " (out of time)" : ""));
+        } else {
+            stats = multi.getStats();
+            Deb.ug.println("WOPR: " + (multi.getMode() == MaxNSearch.MAX_N
+                                       ? "max-n" : "paranoid")
+                           + " depth " + multi.getDepth() + ", share "
+                           + multi.getScore() + ", nodes " + multi.getNodes()
+                           + (multi.wasAborted() ? " (out of time)" : ""));
+        }
+
+        // the referee has the last word; never hand it something it rejects
+        String str = Move.toString(move);
+        if (move == Move.NONE || GameEngine.validate(b, p, str) == null) {
+            Deb.ug.println("WOPR: search gave " + str + ", falling back");
+            int [] moves = new int[Move.COUNT];
+            if (pos.generate(moves) > 0)
+                str = Move.toString(moves[0]);
+        }
+        return str;
+    }
+
+    /**
+      * Searches with the engine for the number of players left.
+      *     @param pos the position; it is not modified
+      *     @param deadline System.currentTimeMillis() value to stop by
+      *     @return the best move, or Move.NONE
+      */
+    private int search(Position pos, long deadline) {
+        if (pos.numActive() == 2)
+            return engine.search(pos, MAX_DEPTH, deadline);
+        return multi.search(pos, MaxNSearch.MAX_DEPTH, deadline);
+    }
+
+    /**
+      * Returns a copy of the current position, from the callbacks if they
+      * have kept it up to date and from the board otherwise.
+      *     @param b GameBoard to play on
+      *     @param seat the player to move
+      */
+    private Position position(GameBoard b, int seat) {
+        if (game == null || game.toMove() != seat) {
+            game = Position.fromBoard(b, seat);
+        }
+        assert (game.key() == Position.fromBoard(b, seat).key());
+        return new Position(game);
+    }
+
+    /**
+      * Follows a move.
+      *     @param b GameBoard after the move
+      *     @param player the player who moved
+      *     @param move the encoded move
+      */
+    public void moveMade(GameBoard b, Player player, int move) {
+        if (game == null) {
+            return;  // picked up from the board on the next getMove
+        }
+        if (move == Move.NONE || game.toMove() != player.getPlayerNo()) {
+            game = null;  // lost track; read the board next time
+            return;
+        }
+        game.make(move);
+        game = new Position(game);  // a game needs no undo history
+    }
+
+    /**
+      * Follows a boot.
+      *     @param b GameBoard without the player
+      *     @param player the player who was booted
+      */
+    public void playerBooted(GameBoard b, Player player) {
+        if (game != null) {
+            game.boot(player.getPlayerNo());
+        }
+    }
+
+    /**
+      * Forgets the game.
+      *     @param b final GameBoard
+      *     @param winner the player who won
+      */
+    public void gameOver(GameBoard b, Player winner) {
+        game = null;
+    }
+
+    /**
+      * Starts searching on a background thread while another player is to
+      * move: guesses every move up to WOPR's turn, then searches that.
+      *     @param b GameBoard as it is now
+      *     @param toMove the player whose turn it is
+      *     @param me the player WOPR plays for
+      */
+    public void ponder(GameBoard b, Player toMove, Player me) {
+        stopPondering();
+        final Position pos = position(b, toMove.getPlayerNo());
+        final int mySeat = me.getPlayerNo();
+        if (pos.winner() >= 0 || !pos.isActive(mySeat) || nodeLimit > 0)
+            return;  // pondering would make node-limited games differ
+        pondering = true;
+        ponderer = new Thread("WOPR-ponder") {
+            public void run() {
+                while (pos.toMove() != mySeat) {
+                    int guess = search(pos,
+                                System.currentTimeMillis() + GUESS_TIME);
+                    if (!pondering || guess == Move.NONE)
+                        return;
+                    pos.make(guess);
+                    if (pos.winner() >= 0)
+                        return;
+                    Deb.ug.println("WOPR: pondering on "
+                                   + Move.toString(guess));
+                }
+                ponderKey = pos.key();
+                // search until told to stop (or MAX_DEPTH is done)
+                search(pos, Long.MAX_VALUE);
+            }
+        };
+        ponderer.setDaemon(true);
+        ponderer.start();
+    }
+
+    /**
+      * Stops the background search and waits for it to end.
+      */
+    public void stopPondering() {
+        pondering = false;
+        Thread t = ponderer;
+        if (t == null)
+            return;
+        while (t.isAlive()) {
+            engine.stop();  // repeated in case a new search just started
+            multi.stop();
+            try {
+                t.join(10);
+            } catch (InterruptedException e) {
+                // check again
+            }
+        }
+        ponderer = null;
+    }
+
+    /**
+      * Returns what the search for the last move did.
+      */
+    public SearchStats getStats() {
+        return stats;
+    }
+
+    /**
+      * Limits every search to a number of nodes instead of the clock.
+      *     @param nodes nodes per move, 0 to go by the clock again
+      */
+    public void setNodeLimit(long nodes) {
+        nodeLimit = nodes;
+        engine.setNodeLimit(nodes);
+        multi.setNodeLimit(nodes);
+    }
+
+    /**
+      * Reset an ai to its initial state.
+      * Used for starting a new game.
+      */
+    public void reset() {
+        stopPondering();
+        ponderKey = 0;
+        game = null;
+        engine.reset();
+        multi.reset();
+    }
+
+    /**
+      * Returns name of AI.
+      */
+    public String toString() {
+        return (multi.getMode() == MaxNSearch.MAX_N) ? "WOPR-maxn" : "WOPR";
+    }
+}
@@ -1,7 +1,67 @@
+
 public interface QuoridorAI {
     /* get a move string */
     String getMove(GameBoard b, Player p); 
 
+    /* get a move string before the deadline, a System.currentTimeMillis()
+     * value. AIs that can think for a variable amount of time should
+     * override this; the rest just ignore the clock.
+     */
+    default String getMove(GameBoard b, Player p, long deadline) {
+        return getMove(b, p);
+    }
+
+    /* start thinking while another player is to move, e.g. on a background
+     * thread. me is the player this AI plays for. the board must not be
+     * touched after this returns; take a copy of whatever is needed.
+     */
+    default void ponder(GameBoard b, Player toMove, Player me) {
+    }
+
+    /* stop pondering and wait until any background thinking has ended.
+     * called before getMove and when a game is over.
+     */
+    default void stopPondering() {
+    }
+
+    /* a player made a move; the board already shows it. move is the
+     * encoded move (see Move), player is the one who made it. lets an AI
+     * keep its own state up to date instead of rescanning the board.
+     */
+    default void moveMade(GameBoard b, Player player, int move) {
+    }
+
+    /* a player was booted; the board no longer has their pawn */
+    default void playerBooted(GameBoard b, Player player) {
+    }
+
+    /* the game is over. winner is null if the referee named a player
+     * this server does not know.
+     */
+    default void gameOver(GameBoard b, Player winner) {
+    }
+
+    /* seed every random choice from now on, so that a game played again
+     * with the same seed comes out the same. AIs without randomness
+     * ignore it.
+     */
+    default void setSeed(long seed) {
+    }
+
+    /* think for a number of search nodes per move instead of against the
+     * clock, 0 to go back to the clock. a node budget gives the same
+     * moves on any machine; AIs that do not search ignore it.
+     */
+    default void setNodeLimit(long nodes) {
+    }
+
+    /* what the search for the last move did, or null for AIs that do not
+     * search. only valid until the AI is asked to think again.
+     */
+    default SearchStats getStats() {
+        return null;
+    }
+
     /* reset an ai to its initial state; used for starting a new game */
     void reset(); 
 
@@ -1,75 +1,180 @@
 /** 
  * display client stuff
+ *
+ * talks to the move servers over a Connection each: by default these are
+ * non-blocking channels sharing one NioTransport, or with blocking set, 
+ * one plain socket each as it used to be. a caller can also hand it
+ * connections of its own, e.g. LocalConnections for self-play (SelfPlay).
+ *
+ * a server that offers the binary protocol in its greeting gets Frames
+ * instead of lines from the MOVE message on, unless binary is turned off.
+ *
+ * if every server offered NEWGAME, the same messenger can play game after
+ * game: setKeepOpen stops endGame from hanging up, and newGame starts the
+ * next game over the same connections, without reading the greetings again.
  */
 
 import java.io.IOException;
-import java.io.PrintStream;
 
-import java.net.Socket;
 import java.net.UnknownHostException;
 
 import java.util.Queue;
 import java.util.LinkedList;
 import java.util.Arrays;
-import java.util.Scanner;
 
 public class ClientMessenger {
-    private PrintStream [] outStreams; // these should both have the
-    private Scanner     [] inStreams;  // same length as players
+    private Connection [] conns;     // same length as players
+    private NioTransport transport;  // null for blocking sockets
     private int        [] ports;
     private String     [] hosts; 
+    private long moveTimeout = 0;    // ms to answer GO?, 0 means no limit
+    private boolean binaryAllowed = true;  // accept offers of Frames
+    private boolean [] offered;      // servers that offered Frames
+    private boolean [] binary;       // servers that get Frames
+    private boolean [] again;        // servers that offered NEWGAME
+    private boolean keepOpen = false;  // endGame leaves them connected
+    private String [] names;         // from the greetings, once read
+    private static final byte [] GO_QUERY = Frame.of(Frame.GO_QUERY);
+    private static final byte [] GO_LINE = Connection.encode("GO?");
+    private static final byte [] NEWGAME = Frame.of(Frame.NEWGAME);
+
+    // how long each player took to answer GO?, for the tournament logs
+    private int        [] moves;        // answers so far
+    private long       [] totalLatency; // ms, all answers together
+    private long       [] maxLatency;   // ms, slowest answer
 
     /*
      * constructor
-     * parses command-line arguments
-     * populates the hosts, ports, inStreams, outStreams arrays
+     * connects with non-blocking channels
      */
     public ClientMessenger(String [] args) {
+        this(args, false);
+    }
+
+    /*
+     * constructor
+     * parses command-line arguments
+     * populates the hosts, ports, conns arrays
+     * blocking: use one plain socket per player instead of an NioTransport
+     * prints a message and exits if anything is wrong
+     */
+    public ClientMessenger(String [] args, boolean blocking) {
+        Deb.ug.println("args: " + Arrays.toString(args));
+        try {
+            parse(args);
+        } catch (NumberFormatException e) {
+            Game.usage(2);
+        } catch (IllegalArgumentException e) {
+            Game.usage(84);
+        }
+        try {
+            connect(blocking);
+        } catch (UnknownHostException uhe) {
+            // the host name provided could not be resolved
+            System.err.println("unknown host: " + uhe.getMessage());
+            System.exit(1);
+        } catch (IOException ioe) {
+            // there was a standard input/output error (lower-level)
+            // probably due to no moveserver waiting on this host/port pair
+            System.err.println(ioe.getMessage());
+            System.exit(1);
+        }
+    }
+
+    private ClientMessenger() {
+        // for open()
+    }
+
+    /*
+     * constructor
+     * talks to move servers over connections that are already made, e.g.
+     * LocalConnections to MoveServer sessions in this JVM
+     * conns: one per player, in seat order
+     */
+    public ClientMessenger(Connection [] conns) {
+        init(conns.length);
+        System.arraycopy(conns, 0, this.conns, 0, conns.length);
+    }
+
+    /**
+     * connects to the move servers of one game, for a caller that must
+     * not exit, like the Referee
+     * @param args host:port pairs
+     * @param blocking use one plain socket per player
+     * @return the messenger
+     * @throws IllegalArgumentException if a host:port pair is malformed
+     * @throws IOException if a move server cannot be reached; the ones
+     *         already connected are closed again
+     */
+    public static ClientMessenger open(String [] args, boolean blocking)
+            throws IOException {
+        ClientMessenger hermes = new ClientMessenger();
+        hermes.parse(args);
+        try {
+            hermes.connect(blocking);
+        } catch (IOException e) {
+            hermes.closeAll();
+            throw e;
+        }
+        return hermes;
+    }
+
+    /* fills in hosts and ports from the host:port pairs */
+    private void parse(String [] args) {
         int numPlayers = args.length;
         this.ports = new int[numPlayers];
         this.hosts = new String[numPlayers];
-        Deb.ug.println("args: " + Arrays.toString(args));
 
         for (int i = 0; i < args.length; i++) { 
             String [] parts = args[i].split(":");
             if (parts.length != 2) {
-                Game.usage(84);
+                throw new IllegalArgumentException("not host:port: "
+                                                   + args[i]);
             }
             hosts[i] = parts[0];
-            try {
-                ports[i] = Integer.parseInt(parts[1]);
-            } catch (Exception e) {
-                Game.usage(2);
-            }
+            ports[i] = Integer.parseInt(parts[1]);
         }
         Deb.ug.println("hosts found: " + Arrays.toString(hosts));
         Deb.ug.println("ports found: " + Arrays.toString(ports));
+    }
 
-        this.outStreams = new PrintStream [numPlayers];
-        this.inStreams  = new Scanner     [numPlayers];
+    /* makes the arrays kept for every player */
+    private void init(int numPlayers) {
+        this.conns = new Connection [numPlayers];
+        this.offered = new boolean [numPlayers];
+        this.binary = new boolean [numPlayers];
+        this.again = new boolean [numPlayers];
+        this.moves = new int [numPlayers];
+        this.totalLatency = new long [numPlayers];
+        this.maxLatency = new long [numPlayers];
+    }
+
+    /* connects to every host:port, filling in conns */
+    private void connect(boolean blocking) throws IOException {
+        int numPlayers = hosts.length;
+        init(numPlayers);
 
         for (int i = 0; i < numPlayers; i++) {
             try {
-                Socket socket = new Socket(hosts[i], ports[i]);
-                outStreams[i] = new PrintStream(socket.getOutputStream());
-                inStreams[i] = new Scanner(socket.getInputStream());
+                if (blocking) {
+                    conns[i] = new SocketConnection(hosts[i], ports[i]);
+                } else {
+                    if (transport == null) {
+                        transport = new NioTransport();
+                    }
+                    conns[i] = transport.connect(hosts[i], ports[i]);
+                }
             } catch (UnknownHostException uhe) {
-                // the host name provided could not be resolved
-                System.err.println("unknown host: " + hosts[i]);
-                System.exit(1);
+                throw new UnknownHostException(hosts[i]);
             } catch (IOException ioe) {
-                // there was a standard input/output error (lower-level)
-                // probably due to no moveserver waiting on this host/port pair
-                System.err.println("no MoveServer found on " + hosts[i] + 
-                                   " on port " + ports[i]);
-                System.exit(1);
+                throw new IOException("no MoveServer found on " + hosts[i] + 
+                                      " on port " + ports[i], ioe);
             }
         }
 
         // test all connections -- not necessary, just for debugging
         for (int i = 0; i < numPlayers; i++) {
-            assert (outStreams[i] != null);
-            assert (inStreams[i] != null);
+            assert (conns[i] != null);
         }
     }
 
@@ -78,17 +183,22 @@ public class ClientMessenger {
        will return a dummy name for its slot. 
        it will also close their streams, ensuring that when the client
        later calls requestMove, they will be booted.
+       the greetings are only read once; after newGame the names are the
+       same as before.
      */
     public String [] getNames() {
-        String [] result = new String[inStreams.length];
-        for (int i = 0; i < inStreams.length; i++) {
-            if (! inStreams[i].hasNextLine()) {
+        if (names != null) {
+            return names.clone();
+        }
+        String [] result = new String[conns.length];
+        for (int i = 0; i < conns.length; i++) {
+            String line = conns[i].readLine();
+            if (line == null) {
                 // the connection has been closed! we should boot them...
                 result[i] = "dumbplayer_" + i;
                 closeStreams(i);
                 continue;
             } 
-            String line = inStreams[i].nextLine();
             if (! line.startsWith("MOVE-SERVER ")) {
                 // non conformant, again, we should boot them...
                 result[i] = "badplayer_" + i;
@@ -96,14 +206,60 @@ public class ClientMessenger {
                 continue;
             }
             result[i] = line.substring(12);
+            // what it offers comes after its name: binary, more games
+            int space;
+            while ((space = result[i].lastIndexOf(' ')) >= 0) {
+                String offer = result[i].substring(space + 1);
+                if (offer.equals(Frame.OFFER)) {
+                    offered[i] = true;
+                } else if (offer.equals(Frame.AGAIN)) {
+                    again[i] = true;
+                } else {
+                    break;
+                }
+                result[i] = result[i].substring(0, space);
+            }
             if (! isValidName(result[i])) {
                 // their name is too long or something. booting!
                 result[i] = "dummy_" + i;
                 closeStreams(i);
                 continue;
             }
+            // one server playing two seats greets twice with one name;
+            // the later seat is told the name it plays under
+            String unique = unique(result, i);
+            if (! unique.equals(result[i])) {
+                Deb.ug.println("player " + i + " renamed to " + unique);
+                conns[i].send("NAME " + unique);
+                result[i] = unique;
+            }
+        }
+        names = result;
+        return result.clone();
+    }
+
+    /** returns a seat's name, or if a seat before it has that name, the
+      * name with the seat number added, cut short to stay a valid name
+      */
+    private static String unique(String [] names, int seat) {
+        String name = names[seat];
+        for (int n = seat; taken(names, seat, name); n++) {
+            String suffix = "-" + n;
+            name = names[seat].substring(0, Math.min(names[seat].length(),
+                                                     20 - suffix.length()))
+                   + suffix;
+        }
+        return name;
+    }
+
+    /** returns true if a seat before the given one has the name */
+    private static boolean taken(String [] names, int seat, String name) {
+        for (int i = 0; i < seat; i++) {
+            if (name.equals(names[i])) {
+                return true;
+            }
         }
-        return result;
+        return false;
     }
 
     /** returns true if the string passed in meets the protocol's requirements
@@ -117,18 +273,20 @@ public class ClientMessenger {
      * blocks until receiving all messages
      */ 
     public void ready() {
-        for (int i = 0; i < inStreams.length; i++) {
-            if (inStreams[i] == null) {
+        for (int i = 0; i < conns.length; i++) {
+            if (conns[i] == null) {
                 /* player i should be booted, if they haven't already */
-                Deb.ug.println("why is inStreams[" + i + "] null?");
+                Deb.ug.println("why is conns[" + i + "] null?");
                 continue;
-            } else if (!inStreams[i].hasNextLine()) {
+            }
+            String line = conns[i].readLine();
+            if (line == null) {
                 /* player i should be booted, if they haven't already */
-                Deb.ug.println("inStreams[" + i + "] does not have nextline");
+                Deb.ug.println("conns[" + i + "] does not have nextline");
                 closeStreams(i);
                 continue;
             }
-            if (inStreams[i].nextLine().equals("MOVE")) {
+            if (line.equals("MOVE")) {
                 Deb.ug.println("received confirmation from player " + i);
             }
             else {
@@ -144,80 +302,248 @@ public class ClientMessenger {
      * @param players the queue of players
      */ 
     public void broadcastPlayers(Queue<Player> players) {
-        assert (players.size() == outStreams.length);
+        assert (players.size() == conns.length);
+        StringBuilder line = new StringBuilder("PLAYERS ");
+        for (Player playa : players) {
+            line.append(playa).append(" ");
+        }
+        // one write each; the servers that offered binary get the answer
+        // to that on the next line
+        byte [] plain = Connection.encode(line.toString());
+        byte [] offer = Connection.encode(line + "\n" + Frame.OFFER);
         for (Player p : players) {
             int i = p.getPlayerNo();
-            if (outStreams[i] == null) {
+            if (conns[i] == null) {
                 continue;
             }
-            outStreams[i].print("PLAYERS ");
-            for (Player playa : players) {
-                outStreams[i].print(playa + " ");
+            if (!offered[i] || !binaryAllowed) {
+                conns[i].send(plain);
+            } else {
+                conns[i].send(offer);  // Frames after its MOVE
+                binary[i] = true;
+                Deb.ug.println("player " + i + " speaks binary");
+            }
+        }
+    }
+
+    /** turns the binary protocol on or off for servers that offer it; 
+     * call before broadcastPlayers.
+     */
+    public void setBinaryAllowed(boolean allowed) {
+        binaryAllowed = allowed;
+    }
+
+    /** sends a message to every player still connected: the frame to
+     * those that speak binary, the line to the rest. the line is encoded
+     * once for all of them.
+     */
+    private void broadcast(String text, byte [] frame) {
+        byte [] line = Connection.encode(text);
+        for (int i = 0; i < conns.length; i++) {
+            if (conns[i] != null) {
+                if (binary[i]) {
+                    conns[i].send(frame);
+                } else {
+                    conns[i].send(line);
+                }
             }
-            outStreams[i].println(); }
+        }
+    }
+
+    /** tells all players how many milliseconds they get per move. */
+    public void broadcastTime(long millis) {
+        broadcast("TIME " + millis,
+                  Frame.ofLong(Frame.TIME, millis));
+    }
+
+    /** tells all players the seed for any random choices this game. */
+    public void broadcastSeed(long seed) {
+        broadcast("SEED " + seed,
+                  Frame.ofLong(Frame.SEED, seed));
     }
 
-    /** gets a move from the given player. */
+    /** sets how long a player gets to answer GO? before it is booted.
+     * @param millis the deadline in ms, 0 for none
+     */
+    public void setMoveTimeout(long millis) {
+        moveTimeout = millis;
+    }
+
+    /** gets a move from the given player. 
+     * a player that does not answer within the move timeout gets a move
+     * that boots them, as does one that does not answer at all.
+     */
     public String requestMove(Player player) {
-        if (outStreams[player.getPlayerNo()] == null) {
+        int i = player.getPlayerNo();
+        Connection conn = conns[i];
+        if (conn == null) {
             return "B-O-O-T-M-E"; // no connection to the server!
         }
         
-        outStreams[player.getPlayerNo()].println("GO?");
-        if (! inStreams[player.getPlayerNo()].hasNextLine()) {
+        long start = System.nanoTime();
+        byte [] frame = null;
+        CharSequence response;
+        if (binary[i]) {
+            conn.send(GO_QUERY);
+            frame = conn.readFrame(moveTimeout);
+            response = (frame == null) ? null : "";
+        } else {
+            conn.send(GO_LINE);
+            response = conn.nextLine(moveTimeout);
+        }
+        long latency = (System.nanoTime() - start) / 1000000;
+        if (response == null) {
+            if (conn.isOpen() && moveTimeout > 0 && latency >= moveTimeout) {
+                Deb.ug.println("player " + i + " took longer than "
+                               + moveTimeout + " ms");
+            }
             return "B-O-O-T-M-E"; // no response from the server!
         }
-        String response = inStreams[player.getPlayerNo()].nextLine();
-        Deb.ug.println("requestMove saw: " + response);
-        if (! response.startsWith("GO ")) {
+        moves[i]++;
+        totalLatency[i] += latency;
+        maxLatency[i] = Math.max(maxLatency[i], latency);
+        if (frame != null) {
+            Deb.ug.println("requestMove saw: " + Frame.toString(frame)
+                           + " after " + latency + " ms");
+            if (frame.length != 2 || frame[0] != Frame.GO
+                || (frame[1] & 0xff) >= Move.COUNT) {
+                return "B-O-O-T-M-E"; // not a move, or NO_MOVE
+            }
+            return Move.toString(frame[1] & 0xff);
+        }
+        Deb.ug.println("requestMove saw: " + response + " after "
+                       + latency + " ms");
+        if (! LineReader.startsWith(response, "GO ")) {
             return "B-O-O-T-M-E"; // response must begin with GO
         }
-        response = response.substring(3).trim();
-        if (response.isEmpty()) { 
+        // a move spelt the usual way is read in place; Move.toString has
+        // its string already
+        int move = Move.parse(response, 3, response.length());
+        if (move != Move.NONE) {
+            return Move.toString(move);
+        }
+        String text = response.subSequence(3, response.length())
+                              .toString().trim();
+        if (text.isEmpty()) { 
             return "B-O-O-T-M-E";
         }
-        return response;
+        return text;
     }
 
-    /** tells all players the move a player made. */
-    public void broadcastWent(Player player, String move) {
-        for (int i = 0; i < outStreams.length; i++) {
-            if (outStreams[i] != null) {
-                outStreams[i].println("WENT " + player + " " + move);
-            }
+    /** returns how many moves a player has answered GO? with. */
+    public int getMoves(int playerNo) {
+        return moves[playerNo];
+    }
+
+    /** returns a player's average answer time in ms, 0 before any. */
+    public double getAverageLatency(int playerNo) {
+        return (moves[playerNo] == 0) ? 0
+             : (double) totalLatency[playerNo] / moves[playerNo];
+    }
+
+    /** returns a player's slowest answer time in ms. */
+    public long getMaxLatency(int playerNo) {
+        return maxLatency[playerNo];
+    }
+
+    /** returns the answer times of every player as one line, for a log. */
+    public String latencySummary(String [] names) {
+        StringBuilder line = new StringBuilder();
+        for (int i = 0; i < moves.length; i++) {
+            line.append(String.format("%s%s: %d moves, avg %.0f ms, max %d ms",
+                                      (i == 0) ? "" : "; ", names[i],
+                                      moves[i], getAverageLatency(i),
+                                      maxLatency[i]));
         }
+        return line.toString();
+    }
+
+    /** tells all players the move a player made, as a Move code. */
+    public void broadcastWent(Player player, int move) {
+        broadcast("WENT " + player + " " + Move.toString(move),
+                  Frame.of(Frame.WENT, player.getPlayerNo(), move));
     }
 
     /** tells all players that a player has been booted. */
     public void broadcastBoot(Player player) {
         Deb.ug.println("booting player: " + player);
-        for (int i = 0; i < outStreams.length; i++) {
-            if (outStreams[i] != null) {
-                outStreams[i].println("BOOT " + player);
-            }
-        }
-        if (outStreams[player.getPlayerNo()] != null) {
+        broadcast("BOOT " + player,
+                  Frame.of(Frame.BOOT, player.getPlayerNo()));
+        if (conns[player.getPlayerNo()] != null) {
             closeStreams(player.getPlayerNo());
         }
     }
 
     /** tells all players that a player has won. */
     public void broadcastVictor(Player player) {
-        for (int i = 0; i < outStreams.length; i++) {
-            if (outStreams[i] != null) {
-                outStreams[i].println("VICTOR " + player);
+        broadcast("VICTOR " + player,
+                  Frame.of(Frame.VICTOR, player.getPlayerNo()));
+    }
+
+    /** leaves the connections open at the end of a game, where they can
+     * be, for the caller to play another game on or close.
+     */
+    public void setKeepOpen(boolean keep) {
+        keepOpen = keep;
+    }
+
+    /** returns true if another game can be played over these connections:
+     * every server is still connected and offered NEWGAME.
+     */
+    public boolean canPlayAgain() {
+        if (names == null) {
+            return false;  // no game yet
+        }
+        for (int i = 0; i < conns.length; i++) {
+            if (conns[i] == null || !conns[i].isOpen() || !again[i]) {
+                return false;
             }
         }
+        return true;
+    }
+
+    /** called when a game is over: hangs up, unless the connections are
+     * to be kept and another game can be played over them.
+     */
+    public void endGame() {
+        if (!keepOpen || !canPlayAgain()) {
+            closeAll();
+        }
+    }
+
+    /** tells all players that another game follows, after which they
+     * expect PLAYERS as after their greeting. lines until then, and the
+     * answer times start over.
+     */
+    public void newGame() {
+        assert canPlayAgain();
+        broadcast(Frame.AGAIN, NEWGAME);
+        for (int i = 0; i < conns.length; i++) {
+            binary[i] = false;
+            moves[i] = 0;
+            totalLatency[i] = 0;
+            maxLatency[i] = 0;
+        }
     }
 
-    /** closes the input and output streams for a player. */
+    /** closes the connection to a player. */
     private void closeStreams(int playerNo) {
-        assert (outStreams[playerNo] != null);
-        assert (inStreams [playerNo] != null);
-        outStreams[playerNo].close();
-        outStreams[playerNo] = null;
-        inStreams[playerNo].close();
-        inStreams[playerNo] = null;
+        assert (conns[playerNo] != null);
+        conns[playerNo].close();
+        conns[playerNo] = null;
+    }
+
+    /** closes every connection that is still open. */
+    public void closeAll() {
+        for (int i = 0; conns != null && i < conns.length; i++) {
+            if (conns[i] != null) {
+                closeStreams(i);
+            }
+        }
+        if (transport != null) {
+            transport.close();
+            transport = null;
+        }
     }
 
     /** closes the input and output streams for all players. */
@@ -227,5 +553,8 @@ public class ClientMessenger {
             assert (p != null);
             closeStreams(p.getPlayerNo());
         }
+        if (transport != null) {
+            transport.close();  // and whatever is left on it
+        }
     }
 }
@@ -0,0 +1,73 @@
+/* Connection.java - CIS405 - teams
+ * ____________________________________________________________________________
+ *
+ * One link between the referee and a move server. The protocol is lines of
+ *   text, or Frames once both sides have agreed to them, so this is all
+ *   ClientMessenger and ServerMessenger need; how the bytes move is up to
+ *   the implementation:
+ *
+ *   SocketConnection --> a blocking Socket, one per player
+ *   NioConnection    --> a non-blocking SocketChannel driven by an
+ *                        NioTransport, which serves all the players of
+ *                        one game from the game's thread
+ *
+ * Every send is written and flushed in one go, so a message leaves as one
+ *   packet rather than several; a message for many peers is best encoded
+ *   once with encode() and sent to each as bytes.
+ *
+ * Both cut what they receive out of a LineReader, so nextLine() hands out
+ *   a view of the bytes as they came, without making a String; readLine()
+ *   is the same line as a String, for callers that keep it.
+ *
+ * A connection that fails is closed; after that it sends nothing and
+ *   readLine() returns null, which the referee treats as a player to boot.
+ */
+
+import java.nio.charset.StandardCharsets;
+
+public interface Connection {
+
+    /* returns the bytes send(line) would write, line ending included */
+    static byte [] encode(String line) {
+        return (line + "\n").getBytes(StandardCharsets.UTF_8);
+    }
+
+    /* sends one line; the line ending is added */
+    void send(String line);
+
+    /* waits at most millis ms (0 waits for ever) for the next line and
+     * returns it without its line ending, as a view that is only good until
+     * the next read; null if the connection is closed or the time runs out.
+     * a reply that comes later is still waiting to be read, so a caller
+     * that gives up should close the connection.
+     */
+    CharSequence nextLine(long millis);
+
+    /* waits for the next line and returns it without its line ending, or
+     * returns null if the connection is closed
+     */
+    default String readLine() {
+        return readLine(0);
+    }
+
+    /* like nextLine(), but returns a String to keep */
+    default String readLine(long millis) {
+        CharSequence line = nextLine(millis);
+        return (line == null) ? null : line.toString();
+    }
+
+    /* sends bytes as they are, e.g. a Frame */
+    void send(byte [] bytes);
+
+    /* waits at most millis ms (0 waits for ever) for the next Frame and
+     * returns its type and payload, without the length byte; null if the
+     * connection is closed or the time runs out
+     */
+    byte [] readFrame(long millis);
+
+    /* false once the connection has been closed, by either side */
+    boolean isOpen();
+
+    /* closes the connection; closing it twice does nothing */
+    void close();
+}
@@ -0,0 +1,155 @@
+/* Frame.java - CIS405 - teams
+ * ____________________________________________________________________________
+ *
+ * The binary protocol, for ladders where the referee and the move servers
+ *   trade millions of messages. A frame is one length byte, then a type
+ *   byte, then the payload; the length counts the type and the payload.
+ *   Moves travel as their Move code and players as their seat number, so
+ *   neither side splits or builds strings on the way.
+ *
+ *   GO_QUERY   --> referee: your move                    (no payload)
+ *   GO         --> server: my move                       move
+ *   WENT       --> referee: a player moved               seat, move
+ *   BOOT       --> referee: a player was booted          seat
+ *   VICTOR     --> referee: a player won                 seat
+ *   TIME       --> referee: ms per move                  8 bytes
+ *   SEED       --> referee: seed for the game            8 bytes
+ *   NEWGAME    --> referee: another game follows         (no payload)
+ *
+ * Numbers are big-endian. A GO of NO_MOVE, or of anything that is not a
+ *   move, gets the server booted.
+ *
+ * The text protocol is the default. A move server that speaks binary says so
+ *   by adding OFFER to its greeting ("MOVE-SERVER WOPR1234 BINARY"); if the
+ *   referee agrees, it sends the line OFFER right after PLAYERS, and every
+ *   message after the server's MOVE line is a frame, both ways. A referee
+ *   that does not know about frames rejects the greeting, so a server only
+ *   offers when told to (MoveServer --binary).
+ *
+ * A move server may also offer AGAIN ("MOVE-SERVER WOPR1234 NEWGAME",
+ *   after or instead of OFFER) to play more than one game per connection.
+ *   When a game is over, a referee that agrees sends NEWGAME instead of
+ *   hanging up, as a line or as a frame, whichever the game was played in;
+ *   the server resets its AI and both sides go back to lines, to where
+ *   they were after the greeting: PLAYERS (and OFFER), MOVE, and so on. The
+ *   greeting is not repeated, nor the connection made again.
+ *
+ * A move server greets with the same name every time, so results can be
+ *   kept by name. When one server plays several seats of a game, the
+ *   seats greet with the same name; the referee leaves the first seat its
+ *   name and sends each later one the line NAME <name>-<seat> before
+ *   PLAYERS. That seat plays under the new name for the rest of the
+ *   connection, NEWGAME included. A referee only renames when two seats
+ *   of one game have the same name, so servers that do not know NAME
+ *   never see it unless they share their name with another.
+ *
+ * --------------------------------- METHODS ----------------------------------
+ *
+ * byte[] of(int)                   --> a frame without payload
+ * byte[] of(int,int) / of(int,int,int) --> a frame with one or two bytes
+ * byte[] ofLong(int,long)          --> a frame with a number
+ * long number(byte[])              --> the number in a TIME or SEED frame
+ * String toString(byte[])          --> a frame as text, for the logs
+ */
+
+public class Frame {
+
+    public static final String OFFER = "BINARY";
+    public static final String AGAIN = "NEWGAME";
+
+    public static final int GO_QUERY = 1;
+    public static final int GO       = 2;
+    public static final int WENT     = 3;
+    public static final int BOOT     = 4;
+    public static final int VICTOR   = 5;
+    public static final int TIME     = 6;
+    public static final int SEED     = 7;
+    public static final int NEWGAME  = 8;
+
+    public static final int NO_MOVE = 255;  // a GO without a move
+    public static final int MAX = 255;      // longest frame after its length
+
+    private static final String [] NAMES
+        = { "?", "GO?", "GO", "WENT", "BOOT", "VICTOR", "TIME", "SEED",
+            "NEWGAME" };
+
+    /**
+     * makes a frame without a payload
+     * @param type e.g. GO_QUERY
+     * @return the frame, length byte included
+     */
+    public static byte [] of(int type) {
+        return new byte [] { 1, (byte) type };
+    }
+
+    /**
+     * makes a frame with one byte of payload
+     * @param type e.g. BOOT
+     * @param a e.g. the seat
+     * @return the frame, length byte included
+     */
+    public static byte [] of(int type, int a) {
+        return new byte [] { 2, (byte) type, (byte) a };
+    }
+
+    /**
+     * makes a frame with two bytes of payload
+     * @param type e.g. WENT
+     * @param a e.g. the seat
+     * @param b e.g. the move
+     * @return the frame, length byte included
+     */
+    public static byte [] of(int type, int a, int b) {
+        return new byte [] { 3, (byte) type, (byte) a, (byte) b };
+    }
+
+    /**
+     * makes a frame with a number as its payload
+     * @param type TIME or SEED
+     * @param n the number
+     * @return the frame, length byte included
+     */
+    public static byte [] ofLong(int type, long n) {
+        byte [] frame = new byte[10];
+        frame[0] = 9;
+        frame[1] = (byte) type;
+        for (int i = 0; i < 8; i++) {
+            frame[9 - i] = (byte) (n >>> (8 * i));
+        }
+        return frame;
+    }
+
+    /**
+     * reads the number out of a frame as Connection.readFrame returns it
+     * @param frame type and payload, without the length
+     * @return the number
+     */
+    public static long number(byte [] frame) {
+        long n = 0;
+        for (int i = 1; i < 9; i++) {
+            n = (n << 8) | (frame[i] & 0xff);
+        }
+        return n;
+    }
+
+    /**
+     * describes a frame as Connection.readFrame returns it, for the logs
+     * @param frame type and payload, without the length
+     * @return e.g. "WENT 1 (V-A, V-B)"
+     */
+    public static String toString(byte [] frame) {
+        int type = frame[0] & 0xff;
+        StringBuilder s = new StringBuilder(
+            (type < NAMES.length) ? NAMES[type] : "frame " + type);
+        if (type == TIME || type == SEED) {
+            return s.append(" ").append(number(frame)).toString();
+        }
+        for (int i = 1; i < frame.length; i++) {
+            int b = frame[i] & 0xff;
+            boolean move = (type == GO && i == 1) || (type == WENT && i == 2);
+            s.append(" ").append(move && b < Move.COUNT ? Move.toString(b)
+                                                        : String.valueOf(b));
+        }
+        return s.toString();
+    }
+}
@@ -2,25 +2,51 @@
  * ____________________________________________________________________________
  * 
  * implements the GameEngine and Messenger to create and run the game Quoridor
+ *
+ * a Game object is one game: its own players, board and messenger, so
+ *   several can run at once (see Referee). main plays one with a window,
+ *   or with --games, several in a row; move servers that offer NEWGAME
+ *   play them all over the connections of the first.
  */
 
 import java.util.Queue;
 import java.util.LinkedList;
+import java.util.List;
+import java.util.ArrayList;
 import java.util.Arrays;
 
 public class Game {
 
-    private static int numPlayers;     // how many players are in the game
     private static final int WALL_POOL = 20; // total collection of walls
-    private static Queue<Player> players = new LinkedList<Player>();
+
+    // command-line options
+    private static long moveTime = 0;  // ms per move, 0 means no limit
+    private static Long seed = null;   // seed for the AIs, null means none
+    private static boolean blocking = false;  // one plain socket per player
+    private static Long timeout = null; // ms to answer, null for the default
+    private static boolean text = false;  // turn down offers of Frames
+    private static int games = 1;      // games to play in a row
+
+    // time a player gets on top of the time limit before it is booted:
+    // the network, a garbage collection, a slow machine
+    public static final long GRACE = 1000;
+
+    // this game
+    private final ClientMessenger hermes;
+    private final long time;           // ms per move, 0 means no limit
+    private final Long gameSeed;       // seed for the AIs, null means none
+    private Queue<Player> players = new LinkedList<Player>();
+    private int turns = 0;             // moves requested so far
 
     /**
      * prints a friendly message and exits
      * @param an int to return to the OS
      */
     public static void usage(int error) {
-        System.err.println("usage: java Game host:port host:port" + 
-                           "[host:port host:port]");
+        System.err.println("usage: java Game [--time=<ms>] [--seed=<n>] " +
+                           "[--timeout=<ms>] [--blocking] [--text] " +
+                           "[--games=<n>] " +
+                           "host:port host:port [host:port host:port]");
         System.exit(error);
     }
 
@@ -36,27 +62,143 @@ public class Game {
         }
     }
 
+    /**
+     * how long a player gets to answer before it is booted, unless told
+     * otherwise: the time limit and a grace period, or for ever if there is
+     * no time limit
+     * @param time ms per move, 0 means no limit
+     * @return the timeout in ms, 0 means none
+     */
+    public static long defaultTimeout(long time) {
+        return (time > 0) ? time + GRACE : 0;
+    }
+
+    /**
+     * pulls the --options out of the command line
+     * @param args the command-line arguments
+     * @return the remaining arguments, i.e. the host:port pairs
+     */
+    private static String [] parseOptions(String [] args) {
+        List<String> hosts = new ArrayList<String>();
+        for (String arg : args) {
+            if (arg.startsWith("--time=")) {
+                try {
+                    moveTime = Long.parseLong(arg.substring(7));
+                } catch (NumberFormatException e) {
+                    usage(3);
+                }
+            } else if (arg.startsWith("--seed=")) {
+                try {
+                    seed = Long.parseLong(arg.substring(7));
+                } catch (NumberFormatException e) {
+                    usage(3);
+                }
+            } else if (arg.startsWith("--timeout=")) {
+                try {
+                    timeout = Long.parseLong(arg.substring(10));
+                } catch (NumberFormatException e) {
+                    usage(3);
+                }
+            } else if (arg.startsWith("--games=")) {
+                try {
+                    games = Integer.parseInt(arg.substring(8));
+                } catch (NumberFormatException e) {
+                    usage(3);
+                }
+                if (games < 1) {
+                    usage(3);
+                }
+            } else if (arg.equals("--text")) {
+                text = true;
+            } else if (arg.equals("--blocking")) {
+                blocking = true;
+            } else if (arg.startsWith("--")) {
+                usage(3);
+            } else {
+                hosts.add(arg);
+            }
+        }
+        return hosts.toArray(new String[hosts.size()]);
+    }
+
+    /**
+     * sets up a game with move servers that are already connected
+     * @param hermes the messenger connected to the players, in seat order
+     * @param time ms per move, 0 means no limit
+     * @param seed seed for the AIs, null means none
+     */
+    public Game(ClientMessenger hermes, long time, Long seed) {
+        this.hermes = hermes;
+        this.time = time;
+        this.gameSeed = seed;
+    }
+
+    /**
+     * checks a move a player sent. every player is told a move spelt the
+     * one way Move.toString has it, which is also the only way a Frame can
+     * carry it, so a legal move that does not parse as a Move (an odd
+     * spelling GameEngine lets through) counts as illegal
+     * @param board the board as it is now
+     * @param player the player to move
+     * @param response what the player sent
+     * @return the move, or Move.NONE if it is not legal
+     */
+    public static int checkMove(GameBoard board, Player player,
+                                String response) {
+        if (GameEngine.validate(board, player, response) == null) {
+            return Move.NONE;
+        }
+        return Move.parse(response);
+    }
+
+    /** returns the number of moves requested so far */
+    public int getTurns() {
+        return turns;
+    }
+
     public static void main (String[] args) {
         // initialize debug stream
         Deb.initialize("game");
 
         // quit if bad arguments
         Deb.ug.println("args provided: " + Arrays.toString(args));
+        args = parseOptions(args);
         
         if (args.length != 2 && args.length != 4) {
             usage(1);
         }
+        Deb.ug.println("number of players: " + args.length);
 
-        // Set the number of players
-        numPlayers = args.length;
-        Deb.ug.println("number of players: " + numPlayers);
-
-        // Connect to players
-        ClientMessenger hermes = new ClientMessenger(args);
+        ClientMessenger hermes = null;
+        for (int game = 0; game < games; game++) {
+            if (hermes != null && hermes.canPlayAgain()) {
+                hermes.newGame();  // same connections, same greetings
+            } else {
+                // Connect to players
+                hermes = new ClientMessenger(args, blocking);
+                hermes.setMoveTimeout((timeout != null) ? timeout
+                                                : defaultTimeout(moveTime));
+                hermes.setBinaryAllowed(!text);
+            }
+            hermes.setKeepOpen(game < games - 1);
+            Long gameSeed = (seed == null) ? null : seed + game;
+            new Game(hermes, moveTime, gameSeed).play(true);
+        }
+        System.exit(0);
+    }
 
+    /**
+     * plays the game to the end and closes the connections, unless the
+     * messenger keeps them for another game
+     * @param show show the board in a window, pausing between moves, and
+     *             report the winner on standard output
+     * @return the winner, or null if no move server survived the start
+     */
+    public Player play(boolean show) {
         // get initial messages from servers with their names
         String [] names = hermes.getNames();
         Deb.ug.println("names: " + Arrays.toString(names));
+        int numPlayers = names.length;
 
         // Instantiate Players
         Deb.ug.println("instantiating Players...");
@@ -76,25 +218,46 @@ public class Game {
         /* check that moveservers are ready to go */
         hermes.ready();
 
+        /* announce the time limit, if there is one */
+        if (time > 0) {
+            hermes.broadcastTime(time);
+        }
+
+        /* and the seed, so the game can be played again exactly */
+        if (gameSeed != null) {
+            hermes.broadcastSeed(gameSeed);
+        }
+
         if (players.size() == 0) {
             // not a single server survived the MOVE message...
-            System.out.println("you should fix your move-servers.");
-            System.exit(0);
+            if (show) {
+                System.out.println("you should fix your move-servers.");
+            }
+            hermes.closeAll();
+            return null;
         } else if (players.size() == 1) {
             Player survivor = players.remove();
             hermes.broadcastVictor(survivor);
-            System.out.println("by elimination, the winner is " + survivor); 
-            System.exit(0);
+            if (show) {
+                System.out.println("by elimination, the winner is "
+                                   + survivor); 
+            }
+            hermes.endGame();
+            return survivor;
         }
 
         // Start up the display
-        Deb.ug.println("starting GameBoardFrame...");
-        GameBoardFrame frame = new GameBoardFrame(board, players);
-        sleep(250);
+        GameBoardFrame frame = null;
+        if (show) {
+            Deb.ug.println("starting GameBoardFrame...");
+            frame = new GameBoardFrame(board, players);
+            sleep(250);
+        }
 
         // loop will need to check for a victory condition
         Deb.ug.println("beginning main loop");
         Deb.ug.println("first player is: " + players.peek().getPlayerNo());
+        Player winner;
         while (true) {
             // Get current player
             Player currentPlayer = players.peek();
@@ -103,35 +266,44 @@ public class Game {
             Deb.ug.println("requesting move from player: " + currentPlayer);
             String response = hermes.requestMove(currentPlayer);
             Deb.ug.println("received: " + response);
+            turns++;
 
             // Validate if the move is legal and make the move on the board
             // else boot the player for trying to make an illegal move
-            Square[] moveSquares = GameEngine.validate(board, currentPlayer, 
-                                                       response);
-            if (moveSquares == null) { // no legal move
+            int move = checkMove(board, currentPlayer, response);
+            if (move == Move.NONE) { // no legal move
                 Deb.ug.println("illegal move attempted");
                 board.removePlayer(currentPlayer);
                 players.remove();
                 hermes.broadcastBoot(currentPlayer);
             } else { // legal move 
-                GameEngine.playTurn(response, currentPlayer, board); 
-                hermes.broadcastWent(currentPlayer, response);
+                GameEngine.playTurn(Move.toString(move), currentPlayer, board);
+                hermes.broadcastWent(currentPlayer, move);
                 players = board.getNextTurn(players); // Shuffle queue
             }
             // Update the graphical board
-            frame.update(board);
+            if (frame != null) {
+                frame.update(board);
+            }
 
             // Retrieve a possibly winning player and broadcast if winner found
-            Player winner = GameEngine.getWinner(board, players);
+            winner = GameEngine.getWinner(board, players);
             if (winner != null) {
                 hermes.broadcastVictor(winner);
                 break;
             }
 
-            sleep(100); // sleepy time
+            if (show) {
+                sleep(100); // sleepy time
+            }
         }//-----END OF LOOP-----
 
-        hermes.closeAllStreams(players);
-        System.exit(0);
+        String latency = hermes.latencySummary(names);
+        Deb.ug.println("answer times: " + latency);
+        if (show) {
+            System.out.println("answer times: " + latency);
+        }
+        hermes.endGame();
+        return winner;
     }
 }
@@ -8,6 +8,7 @@
  * --------------------------------- METHODS ----------------------------------
  *
  * GameBoard()                   --> constructor 
+ * int getNumPlayers()           --> returns the number of seats at the board
  * boolean isOccupied(int,int)   --> returns if Player is at given x and y location 
  * Square getSquare(int,int)     --> returns a Square at the given x and y location
  * Square getSquare(String)      --> returns a Square at the given numeral-character string
@@ -66,7 +67,16 @@ public class GameBoard {
     }
 
     //*************************************************************************
-    
+
+    /**
+      * Returns the number of players the game was started with, including
+      * any that have since been booted
+      * @return the number of seats at the board (2 or 4)
+      */
+    public int getNumPlayers() {
+        return playerLocs.length;
+    }
+
     /**
       * Returns the number of players remaining in the game
       * @return the number of player left
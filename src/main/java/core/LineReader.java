@@ -0,0 +1,318 @@
+/* LineReader.java - CIS405 - teams
+ * ____________________________________________________________________________
+ *
+ * Input buffer of a Connection, which cuts lines and Frames straight out of
+ *   one ByteBuffer that is used for the whole life of the connection. A line
+ *   comes back as a CharSequence that looks at the bytes where they are, so
+ *   reading a line makes no garbage and runs no regex; the view is only good
+ *   until the next read, and whoever wants to keep the line calls
+ *   toString(). The protocol is ASCII, so charAt() gives one character per
+ *   byte; toString() decodes UTF-8 like the old readers did.
+ *
+ * The buffer fills from a channel (room(), then filled()) or from a stream
+ *   (fill()). Read bytes are dropped by moving what is left to the front of
+ *   the buffer when more room is needed, and the buffer doubles when one
+ *   message does not fit, up to MAX bytes not yet read: a peer that gets
+ *   that far ahead of us, or sends that much without a whole line or Frame,
+ *   is not talking our protocol, and room() and fill() throw rather than
+ *   let it fill the heap. The connection closes itself then.
+ *   The helpers at the bottom compare and parse parts of a line without
+ *   making strings.
+ *
+ * --------------------------------- METHODS ----------------------------------
+ *
+ * LineReader(ByteBuffer)           --> reads into this buffer (heap or direct)
+ * ByteBuffer room() / filled()     --> where a channel read goes, and after
+ * int fill(InputStream)            --> reads what a stream has
+ * CharSequence nextLine()          --> the next whole line, null if none yet
+ * CharSequence rest()              --> what is left after the last line
+ * byte[] nextFrame()               --> the next whole Frame, null if none yet
+ * boolean startsWith(...) / regionEquals(...) / parseLong(...) / trim...
+ */
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+public class LineReader {
+
+    public static final int MAX = 1 << 16;  // most bytes waiting to be read
+
+    private ByteBuffer buffer;
+    private int start = 0;    // first byte not read yet
+    private int end = 0;      // one past the last byte in the buffer
+    private int scanned = 0;  // no line ending before here
+    private final View view = new View();
+
+    /**
+     * makes a reader
+     * @param buffer its buffer; direct for channels, heap for streams
+     */
+    public LineReader(ByteBuffer buffer) {
+        this.buffer = buffer;
+        view.buffer = buffer;
+    }
+
+    //*************************************************************************
+
+    /**
+     * returns the buffer set up for a channel to read into: positioned at
+     * the end of the bytes so far, with room to spare. call filled() after
+     * reading.
+     * @return the buffer
+     * @throws IOException if MAX bytes are waiting to be read already
+     */
+    public ByteBuffer room() throws IOException {
+        makeRoom();
+        buffer.limit(buffer.capacity());
+        buffer.position(end);
+        return buffer;
+    }
+
+    /** takes in the bytes a channel has read into room() */
+    public void filled() {
+        end = buffer.position();
+    }
+
+    /**
+     * reads whatever the stream has, waiting for at least one byte
+     * @param in the stream; the buffer has to be a heap buffer
+     * @return the number of bytes read, -1 at the end of the stream
+     * @throws IOException as the stream does, or if MAX bytes are waiting
+     *         to be read already
+     */
+    public int fill(InputStream in) throws IOException {
+        makeRoom();
+        int n = in.read(buffer.array(), buffer.arrayOffset() + end,
+                        buffer.capacity() - end);
+        if (n > 0) {
+            end += n;
+        }
+        return n;
+    }
+
+    /** returns the number of bytes that have come but were not read */
+    public int available() {
+        return end - start;
+    }
+
+    /**
+     * returns the next line without its line ending, or null if no whole
+     * line has come yet. the line is a view into the buffer, good until
+     * the next call to any method of this reader.
+     * @return the line, or null
+     */
+    public CharSequence nextLine() {
+        for (int i = scanned; i < end; i++) {
+            if (buffer.get(i) == '\n') {
+                int last = (i > start && buffer.get(i - 1) == '\r') ? i - 1 : i;
+                view.set(start, last - start);
+                start = i + 1;
+                scanned = start;
+                return view;
+            }
+        }
+        scanned = end;
+        return null;
+    }
+
+    /**
+     * returns what is left after the last whole line, e.g. a last line
+     * without a line ending when the other side has gone, and drops it
+     * @return the rest as a view like nextLine(), or null if nothing is left
+     */
+    public CharSequence rest() {
+        if (start == end) {
+            return null;
+        }
+        view.set(start, end - start);
+        start = scanned = end;
+        return view;
+    }
+
+    /**
+     * returns the next Frame, without its length byte, or null if no whole
+     * frame has come yet
+     * @return type and payload, or null
+     */
+    public byte [] nextFrame() {
+        if (start == end) {
+            return null;
+        }
+        int length = buffer.get(start) & 0xff;
+        if (end - start < 1 + length) {
+            return null;
+        }
+        byte [] frame = new byte[length];
+        for (int i = 0; i < length; i++) {
+            frame[i] = buffer.get(start + 1 + i);
+        }
+        start += 1 + length;
+        scanned = start;
+        return frame;
+    }
+
+    // moves the unread bytes to the front, or grows the buffer if they
+    // fill it already
+    private void makeRoom() throws IOException {
+        if (start == end) {
+            start = end = scanned = 0;
+        }
+        if (end < buffer.capacity()) {
+            return;
+        }
+        ByteBuffer to = buffer;
+        if (start == 0) {
+            if (buffer.capacity() >= MAX) {
+                throw new IOException(MAX + " bytes waiting to be read");
+            }
+            to = buffer.isDirect()
+               ? ByteBuffer.allocateDirect(2 * buffer.capacity())
+               : ByteBuffer.allocate(2 * buffer.capacity());
+        }
+        buffer.limit(end);
+        buffer.position(start);
+        to.clear();
+        to.put(buffer.slice());  // slice: source and target may overlap
+        buffer = to;
+        view.buffer = to;
+        end -= start;
+        scanned -= start;
+        start = 0;
+    }
+
+    //*************************************************************************
+
+    /**
+     * returns true if a line starts with a word
+     * @param line the line
+     * @param word the word
+     */
+    public static boolean startsWith(CharSequence line, String word) {
+        return regionEquals(line, 0, Math.min(word.length(), line.length()),
+                            word);
+    }
+
+    /**
+     * returns true if part of a line is exactly a word
+     * @param line the line
+     * @param from first character of the part
+     * @param to one past its last character
+     * @param word the word
+     */
+    public static boolean regionEquals(CharSequence line, int from, int to,
+                                       String word) {
+        if (to - from != word.length()) {
+            return false;
+        }
+        for (int i = from; i < to; i++) {
+            if (line.charAt(i) != word.charAt(i - from)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * returns the index of a character in part of a line
+     * @param line the line
+     * @param c the character
+     * @param from where to start looking
+     * @return the index, or line.length() if it is not there
+     */
+    public static int indexOf(CharSequence line, char c, int from) {
+        int i = from;
+        while (i < line.length() && line.charAt(i) != c) {
+            i++;
+        }
+        return i;
+    }
+
+    /** returns the index of the first character that is not a space */
+    public static int trimStart(CharSequence line) {
+        int i = 0;
+        while (i < line.length() && line.charAt(i) <= ' ') {
+            i++;
+        }
+        return i;
+    }
+
+    /** returns one past the last character that is not a space */
+    public static int trimEnd(CharSequence line) {
+        int i = line.length();
+        while (i > 0 && line.charAt(i - 1) <= ' ') {
+            i--;
+        }
+        return i;
+    }
+
+    /**
+     * parses a decimal number out of part of a line, like Long.parseLong
+     * @param line the line
+     * @param from first character of the number
+     * @param to one past its last character
+     * @return the number
+     * @throws NumberFormatException if it is not one
+     */
+    public static long parseLong(CharSequence line, int from, int to) {
+        boolean negative = (from < to && line.charAt(from) == '-');
+        int i = negative ? from + 1 : from;
+        if (i == to || to - i > 19) {
+            throw new NumberFormatException("not a number");
+        }
+        long n = 0;
+        for (; i < to; i++) {
+            int d = line.charAt(i) - '0';
+            if (d < 0 || d > 9) {
+                throw new NumberFormatException("not a number");
+            }
+            n = 10 * n - d;  // negative, so Long.MIN_VALUE fits
+            if (n > 0) {
+                throw new NumberFormatException("too big");
+            }
+        }
+        if (!negative && n == Long.MIN_VALUE) {
+            throw new NumberFormatException("too big");
+        }
+        return negative ? n : -n;
+    }
+
+    //*************************************************************************
+
+    // a line where it lies in the buffer
+    private static class View implements CharSequence {
+        ByteBuffer buffer;
+        int offset;
+        int length;
+
+        void set(int offset, int length) {
+            this.offset = offset;
+            this.length = length;
+        }
+
+        public int length() {
+            return length;
+        }
+
+        public char charAt(int i) {
+            return (char) (buffer.get(offset + i) & 0xff);
+        }
+
+        public CharSequence subSequence(int from, int to) {
+            View part = new View();
+            part.buffer = buffer;
+            part.set(offset + from, to - from);
+            return part;
+        }
+
+        public String toString() {
+            byte [] bytes = new byte[length];
+            for (int i = 0; i < length; i++) {
+                bytes[i] = buffer.get(offset + i);
+            }
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,154 @@
+/* LocalConnection.java - CIS405 - teams
+ * ____________________________________________________________________________
+ *
+ * A Connection that never leaves the JVM, for self-play, tuning and
+ *   benchmarks: pair() makes two ends, one for the referee's ClientMessenger
+ *   and one for a MoveServer session, and whatever one end sends lands in a
+ *   queue of the other. There is no socket and no system call on the way;
+ *   a message is handed over as the array it was sent as, and the reading
+ *   end cuts it into lines and Frames with a LineReader like the network
+ *   connections do, so both sides run exactly the code they run over TCP.
+ *
+ * Closing an end closes the pair: the other end still reads what was sent
+ *   before, then sees the connection closed, as with a socket.
+ *
+ * --------------------------------- METHODS ----------------------------------
+ *
+ * LocalConnection[] pair()         --> two connected ends
+ */
+
+import java.io.IOException;
+
+import java.nio.ByteBuffer;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+public class LocalConnection implements Connection {
+    private static final byte [] EOF = new byte[0];  // the other end closed
+
+    private final BlockingQueue<byte []> inbox
+        = new LinkedBlockingQueue<byte []>();
+    private LocalConnection peer;
+    private volatile boolean open = true;
+    private boolean ended = false;  // EOF has been taken from the inbox
+    private final LineReader reader   // bytes that came, not yet read
+        = new LineReader(ByteBuffer.allocate(256));
+
+    private LocalConnection() {
+        // see pair()
+    }
+
+    /**
+     * makes two ends of one connection
+     * @return the ends; either may be used by either side
+     */
+    public static LocalConnection [] pair() {
+        LocalConnection a = new LocalConnection();
+        LocalConnection b = new LocalConnection();
+        a.peer = b;
+        b.peer = a;
+        return new LocalConnection [] { a, b };
+    }
+
+    //*************************************************************************
+
+    public void send(String line) {
+        send(Connection.encode(line));
+    }
+
+    public void send(byte [] bytes) {
+        if (open && peer.open && bytes.length > 0) {
+            peer.inbox.add(bytes);  // nobody changes a message once sent
+        }
+    }
+
+    public CharSequence nextLine(long millis) {
+        if (!open && !ended) {
+            return null;  // we hung up ourselves
+        }
+        long deadline = System.currentTimeMillis() + millis;
+        CharSequence line;
+        while ((line = reader.nextLine()) == null) {
+            if (!fill(millis, deadline)) {
+                return ended ? reader.rest() : null;
+            }
+        }
+        return line;
+    }
+
+    public byte [] readFrame(long millis) {
+        if (!open && !ended) {
+            return null;
+        }
+        long deadline = System.currentTimeMillis() + millis;
+        byte [] frame;
+        while ((frame = reader.nextFrame()) == null) {
+            if (!fill(millis, deadline)) {
+                return null;
+            }
+        }
+        if (frame.length == 0) {
+            close();  // no type: not a frame of ours
+            return null;
+        }
+        return frame;
+    }
+
+    public boolean isOpen() {
+        return open;
+    }
+
+    public void close() {
+        if (!open) {
+            return;
+        }
+        open = false;
+        inbox.clear();
+        peer.inbox.add(EOF);
+    }
+
+    //*************************************************************************
+
+    // takes the next message from the inbox into the reader; false if the
+    // connection is closed or the deadline has passed
+    private boolean fill(long millis, long deadline) {
+        if (!open || ended) {
+            return false;
+        }
+        byte [] bytes;
+        try {
+            if (millis > 0) {
+                long left = deadline - System.currentTimeMillis();
+                bytes = inbox.poll(Math.max(left, 0), TimeUnit.MILLISECONDS);
+            } else {
+                bytes = inbox.take();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            bytes = null;
+        }
+        if (bytes == null) {
+            return false;  // too late
+        }
+        if (bytes == EOF) {
+            ended = true;  // what came before still counts
+            close();
+            return false;
+        }
+        try {
+            for (int done = 0; done < bytes.length; ) {
+                ByteBuffer room = reader.room();
+                int n = Math.min(room.remaining(), bytes.length - done);
+                room.put(bytes, done, n);
+                reader.filled();
+                done += n;
+            }
+        } catch (IOException e) {
+            close();  // not a message of ours, too long
+            return false;
+        }
+        return true;
+    }
+}
@@ -4,6 +4,18 @@
   *  This is the top level class which is used for all moveServers, AI and User
   *    each 
   *
+  *  The server takes any number of connections at once, each a session on a
+  *    thread of its own (virtual where the JVM has them) with its own
+  *    MoveServer object and AI. AIs are made by makeAI and reused by later
+  *    sessions once reset, so a busy server has as many as it has games.
+  *    A human (user mode) still plays one game at a time.
+  *
+  *  A session is one game, unless the server was started with --newgame:
+  *    then a referee may follow a game with NEWGAME and the next game on
+  *    the same connection (see Frame.java).
+  *
+  *  serve(Connection, QuoridorAI) plays a session without a socket, e.g.
+  *    over a LocalConnection for self-play in one JVM (see SelfPlay).
   *
   */
 
@@ -17,24 +29,106 @@ import java.util.Scanner;
 import java.util.Arrays;
 import java.util.Queue;
 import java.util.LinkedList;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import java.lang.Runtime;
 
 public class MoveServer {
     private static boolean SERVER_DISPLAY = false;
-    private static QuoridorAI ai = null;
+    private static boolean PONDER = false;  // think on opponents' time
+    private static OpeningBook book = null;  // --book, null if none
     private static int portNumber;
+    private static Long seed = null;  // --seed, null if none
+    private static long nodeLimit = 0;  // --nodes, 0 if none
+    private static String mode;       // the AI mode named on the command line
+    private static boolean HUMAN = false;  // user mode: one game at a time
+    private static long warmup = 1500;  // ms to warm the JIT up, --warmup
+    private static boolean TRAIN = false;  // --train: warm up, then quit
+    private static boolean BINARY = false; // --binary: offer Frames
+    private static boolean AGAIN = false;  // --newgame: offer NEWGAME
+
+    // part of the budget kept back for the network and the referee
+    private static final long SAFETY_MARGIN = 50;
+
+    // AIs whose session is over, ready for the next one
+    private static final ConcurrentLinkedQueue<QuoridorAI> idle
+        = new ConcurrentLinkedQueue<QuoridorAI>();
 
     // statistics
-    protected static int WIN_RECORD = 0;
-    protected static int LOSE_RECORD = 0;
+    protected static final AtomicInteger WIN_RECORD = new AtomicInteger();
+    protected static final AtomicInteger LOSE_RECORD = new AtomicInteger();
+    protected static final SearchStats SEARCH_TOTAL = new SearchStats();
+
+    // this session
+    private final Connection currClient;
+    private final String peer;        // who is on the other end, for the logs
+    private final boolean local;      // in this JVM: quiet, offers everything
+    private final QuoridorAI ai;
+    private final String playerName;  // as we greet the referee
+    // plays wall-less two-player endgames perfectly, whatever the AI
+    private final RaceSolver race = new RaceSolver();
+    // per-move time budget announced by the referee with TIME, 0 if none
+    private long moveBudget = 0;
+
+    /**
+     * sets up a session
+     * @param currClient the referee's connection
+     * @param peer who is on the other end, for the logs
+     * @param local the referee is in this JVM: offer Frames and NEWGAME
+     *              whatever the options, and keep quiet on standard output
+     * @param ai the AI to play with, freshly reset
+     */
+    private MoveServer(Connection currClient, String peer, boolean local,
+                       QuoridorAI ai) {
+        this.currClient = currClient;
+        this.peer = peer;
+        this.local = local;
+        this.ai = ai;
+        // every session greets with the same name; when two of them play
+        // one game, the referee renames the later one (see Frame.java)
+        this.playerName = ai.toString() + portNumber;
+    }
 
     public static void usage(int error) {
         // display usage information then exit and return failure
-        System.err.println("usage: java MoveServer <port> <mode> [--display]");
+        System.err.println("usage: java MoveServer <port> <mode> [--display]"
+                           + " [--ponder] [--book=<file>] [--weights=<file>]"
+                           + " [--seed=<n>] [--nodes=<n>] [--warmup=<ms>]"
+                           + " [--train] [--binary] [--newgame]");
         System.exit(error);
     }
 
+    /**
+     * makes an AI for a mode named on the command line
+     * @param mode e.g. "hal"
+     * @return a new AI, or null if there is no such mode
+     */
+    public static QuoridorAI makeAI(String mode) {
+        if (mode.equals("user")) {
+            return new AI_AskUser();
+        } else if (mode.equals("lr")) {
+            return new AI_LeftRight();
+        } else if (mode.equals("rd")) {
+            return new AI_RollDice();
+        } else if (mode.equals("fcrd")) {
+            return new AI_FlipCoinRollDice();
+        } else if (mode.equals("idk")) {
+            return new AI_IDK();
+        } else if (mode.equals("rip")) {
+            return new AI_Ripley();
+        } else if (mode.equals("hal")) {
+            return new AI_HAL();
+        } else if (mode.equals("wopr")) {
+            return new AI_WOPR();
+        } else if (mode.equals("wopr-maxn")) {
+            return new AI_WOPR(MaxNSearch.MAX_N);
+        }
+        return null;
+    }
+
     public static void parseArgs(String[] args) {
         // process command-line arguments
         if (args.length < 2) {
@@ -46,70 +140,135 @@ public class MoveServer {
             usage(2);
         }
 
-        // process AI mode
-        if (args[1].equals("user")) {
-            ai = new AI_AskUser();
-        } else if (args[1].equals("lr")) {
-            ai = new AI_LeftRight();
-        } else if (args[1].equals("rd")) {
-            ai = new AI_RollDice();
-        } else if (args[1].equals("fcrd")) {
-            ai = new AI_FlipCoinRollDice();
-        } else if (args[1].equals("idk")) {
-            ai = new AI_IDK();
-        } else if (args[1].equals("rip")) {
-            ai = new AI_Ripley();
-        } else if (args[1].equals("hal")) {
-            ai = new AI_HAL();
-        } else {
-             usage(3);
-        }
-        assert (ai != null);
-
         Deb.initialize("moveserver_" + args[1] +  "_" + portNumber);
         Deb.ug.println("args: " + Arrays.toString(args));
 
-        // process optional command-line --display argument 
-        if (args.length == 3) {
-            Deb.ug.println("three args detected");
-            if (args[2].equals("-d") || args[2].equals("--display")) {
+        // process optional command-line arguments; before the AI is made,
+        // since --weights changes how it evaluates
+        for (int i = 2; i < args.length; i++) {
+            if (args[i].equals("-d") || args[i].equals("--display")) {
                 Deb.ug.println("enabling display");
                 SERVER_DISPLAY = true;
+            } else if (args[i].equals("--ponder")) {
+                Deb.ug.println("enabling pondering");
+                PONDER = true;
+            } else if (args[i].startsWith("--book=")) {
+                String path = args[i].substring("--book=".length());
+                try {
+                    book = OpeningBook.open(path);
+                    Deb.ug.println("opening book " + path + ": "
+                                   + book.size() + " positions");
+                } catch (IOException e) {
+                    System.err.println("not using opening book: " + e);
+                }
+            } else if (args[i].startsWith("--seed=")
+                       || args[i].startsWith("--nodes=")) {
+                // handled once the AI exists
+            } else if (args[i].startsWith("--warmup=")) {
+                try {
+                    warmup = Long.parseLong(args[i].substring(9));
+                } catch (NumberFormatException e) {
+                    usage(4);
+                }
+            } else if (args[i].equals("--binary")) {
+                BINARY = true;
+            } else if (args[i].equals("--newgame")) {
+                AGAIN = true;
+            } else if (args[i].equals("--train")) {
+                TRAIN = true;
+            } else if (args[i].startsWith("--weights=")) {
+                String path = args[i].substring("--weights=".length());
+                try {
+                    Evaluator.setDefaults(Evaluator.load(path));
+                    Deb.ug.println("evaluation weights from " + path);
+                } catch (IOException e) {
+                    System.err.println("not using weights: " + e);
+                }
+            } else {
+                System.err.println("ignoring unknown option " + args[i]);
             }
         }
+
+        // process AI mode
+        mode = args[1];
+        QuoridorAI ai = makeAI(mode);
+        if (ai == null) {
+             usage(3);
+        }
+        assert (ai != null);
+        HUMAN = ai instanceof AI_AskUser;
+
+        // these two are for every AI the server makes
+        for (int i = 2; i < args.length; i++) {
+            try {
+                if (args[i].startsWith("--seed=")) {
+                    seed = Long.parseLong(args[i].substring(7));
+                } else if (args[i].startsWith("--nodes=")) {
+                    nodeLimit = Long.parseLong(args[i].substring(8));
+                    Deb.ug.println("searching " + nodeLimit
+                                   + " nodes per move");
+                }
+            } catch (NumberFormatException e) {
+                usage(4);
+            }
+        }
+        idle.add(configure(ai));
+    }
+
+    /** applies the command-line options to a new AI */
+    private static QuoridorAI configure(QuoridorAI ai) {
+        if (nodeLimit > 0) {
+            ai.setNodeLimit(nodeLimit);
+        }
+        return ai;
     }
 
     public static void main(String[] args) {
         // parseArgs and initialize debug
         parseArgs(args);
 
+        // get the JIT going before anybody is timing us. the warm-up AI
+        // is a separate one, so the real AI starts the first game fresh.
+        // a human gets nothing out of it, and it would ask them for moves
+        if (TRAIN || (warmup > 0 && !HUMAN)) {
+            long start = System.currentTimeMillis();
+            QuoridorAI warm = HUMAN ? null : makeAI(mode);
+            int turns = Warmup.run(warm, Math.max(warmup, TRAIN ? 5000 : 0));
+            Deb.ug.println("warmed up: " + turns + " turns in "
+                           + (System.currentTimeMillis() - start) + " ms");
+        }
+        if (TRAIN) {
+            // e.g. under -XX:ArchiveClassesAtExit, see the cdsArchive task
+            System.out.println("training run done");
+            System.exit(0);
+        }
+
         ServerSocket server = null;
-        Socket currClient = null;
 
         try {
             server = new ServerSocket(portNumber);
             System.out.println("Accepting connections on " + portNumber);
             Deb.ug.println("Accepting connections on " + portNumber);
-            currClient = server.accept();
         } catch (IOException ioe) {
             // there was a standard input/output error (lower-level from uhe)
             ioe.printStackTrace();
             System.exit(9);
         }
         assert (server != null); 
-        assert (currClient != null); 
 
         Runtime.getRuntime().addShutdownHook(new PrintStats());
 
+        // a human can only play one game at a time; the rest wait their turn
+        ExecutorService sessions = HUMAN ? Executors.newSingleThreadExecutor()
+                                         : Threads.perTask();
         while (true) {
-            playGame(currClient);
-            ai.reset();
             try {
-                Deb.ug.println("closing connection");
-                currClient.close();
-                System.out.println("Accepting connections on " + portNumber);
-                Deb.ug.println("Accepting connections on " + portNumber);
-                currClient = server.accept();
+                final Socket currClient = server.accept();
+                sessions.execute(new Runnable() {
+                    public void run() {
+                        serve(currClient);
+                    }
+                });
             } catch (IOException ioe) {
                 // there was a standard input/output error
                 ioe.printStackTrace();
@@ -118,6 +277,70 @@ public class MoveServer {
         }
     }
 
+    /**
+     * plays one session: takes an idle AI (or makes one), plays the game
+     * (or games, see NEWGAME) and puts the AI back for the next session
+     * @param currClient the referee's connection
+     */
+    private static void serve(Socket currClient) {
+        Connection conn;
+        try {
+            conn = new SocketConnection(currClient);
+        } catch (IOException ioe) {
+            Deb.ug.println("lost " + currClient + ": " + ioe);
+            try {
+                currClient.close();
+            } catch (IOException e) {
+                // it is going away either way
+            }
+            return;
+        }
+        QuoridorAI ai = idle.poll();
+        if (ai == null) {
+            ai = configure(makeAI(mode));
+        }
+        try {
+            serve(conn, currClient.toString(), false, ai);
+        } finally {
+            idle.add(ai);
+        }
+    }
+
+    /**
+     * plays one session in this JVM, over e.g. a LocalConnection, just as
+     * if the referee had connected over the network: for self-play and
+     * benchmarks. the session offers Frames and NEWGAME and prints nothing.
+     * @param conn the referee's connection
+     * @param ai the AI to play with; reset again when the session is over
+     */
+    public static void serve(Connection conn, QuoridorAI ai) {
+        serve(conn, "this JVM", true, ai);
+    }
+
+    // plays a session and closes the connection
+    private static void serve(Connection conn, String peer, boolean local,
+                              QuoridorAI ai) {
+        try {
+            new MoveServer(conn, peer, local, ai).playSession();
+        } catch (RuntimeException e) {
+            // only this session is lost
+            e.printStackTrace();
+            Deb.ug.println("session failed: " + e);
+        } finally {
+            ai.stopPondering();
+            ai.reset();
+            Deb.ug.println("closing connection");
+            conn.close();
+        }
+    }
+
+    // a line for whoever watches the server, which in this JVM is nobody
+    private void say(String line) {
+        if (!local) {
+            System.out.println(line);
+        }
+    }
+
     /**
      * sleepy time
      * @param length duration for thread to pause
@@ -130,20 +353,110 @@ public class MoveServer {
         }
     }
 
-    private static void playGame(Socket currClient) {
-        ServerMessenger hermes = new ServerMessenger(currClient);
-        System.out.println("Connection from " + currClient);
-        Deb.ug.println("Connection from " + currClient);
+    /**
+     * lets the AI think on someone else's turn, if pondering is enabled
+     * @param board the board after the last move
+     * @param toMove the player whose turn it is now
+     * @param me the player this server plays for, or null
+     */
+    private void ponder(GameBoard board, Player toMove, Player me) {
+        if (PONDER && me != null && toMove != null && toMove != me
+            && board.isPlayerRemaining(me.getPlayerNo())
+            && !RaceSolver.applies(Position.fromBoard(board,
+                                                      toMove.getPlayerNo()))) {
+            ai.ponder(board, toMove, me);
+        }
+    }
 
-        String playerName = ai.toString();
+    /**
+     * looks the position up in the opening book
+     * @param board the board as it is now
+     * @param p the player to move
+     * @return the book move, or null if there is none
+     */
+    private String bookMove(GameBoard board, Player p) {
+        if (book == null || HUMAN) {
+            return null;  // a human picks their own moves
+        }
+        int m = book.probe(Position.fromBoard(board, p.getPlayerNo()));
+        if (m == Move.NONE) {
+            return null;
+        }
+        String move = Move.toString(m);
+        if (GameEngine.validate(board, p, move) == null) {
+            Deb.ug.println("book move " + move + " is not legal here");
+            return null;
+        }
+        Deb.ug.println("book move " + move);
+        return move;
+    }
+
+    /**
+     * solves the position exactly if it is a pure pawn race
+     * @param board the board as it is now
+     * @param p the player to move
+     * @return the solver's move, or null if the position is not a race
+     */
+    private String raceMove(GameBoard board, Player p) {
+        if (HUMAN) {
+            return null;
+        }
+        Position pos = Position.fromBoard(board, p.getPlayerNo());
+        int m = race.bestMove(pos);
+        if (m == Move.NONE) {
+            return null;
+        }
+        Deb.ug.println("race: " + (race.outcome(pos) == RaceSolver.WIN ? "win"
+                       : race.outcome(pos) == RaceSolver.LOSS ? "loss" : "draw")
+                       + " in " + race.plies(pos) + " plies");
+        return Move.toString(m);
+    }
 
-        hermes.identify(playerName + portNumber);
+    /**
+     * logs what the AI's search did for the move it just found and adds
+     * it to the totals PrintStats shows at shutdown
+     */
+    private void logStats() {
+        SearchStats stats = ai.getStats();
+        if (stats == null) {
+            return;  // not a searching AI
+        }
+        say("search: " + stats);
+        Deb.ug.println("search: " + stats);
+        SEARCH_TOTAL.add(stats);
+    }
 
+    /**
+     * plays the games the referee asks for over this session's connection:
+     * one, or with NEWGAME, one after another without a new greeting
+     */
+    private void playSession() {
+        ServerMessenger hermes = new ServerMessenger(currClient);
+        say("Connection from " + peer);
+        Deb.ug.println("Connection from " + peer);
+
+        hermes.identify(playerName, BINARY || local, AGAIN || local);
+        while (playGame(hermes)) {
+            // the AI starts the next game as fresh as a new session would
+            ai.reset();
+            Deb.ug.println("new game on " + peer);
+        }
+        say("Server closing connection from " + peer);
+        hermes.closeStreams();
+    }
+
+    /**
+     * plays one game, from PLAYERS until the referee hangs up or asks for
+     * another game
+     * @param hermes the referee's connection, after the greeting
+     * @return true if another game follows on the same connection
+     */
+    private boolean playGame(ServerMessenger hermes) {
         String [] playerNames = hermes.players();
         Deb.ug.println("player names: " + Arrays.toString(playerNames));
         if (playerNames == null) {
-            System.out.println("expected PLAYERS from client");
-            return;
+            say("expected PLAYERS from client");
+            return false;
         }
         int numPlayers = playerNames.length;
         Deb.ug.println("numPlayers: " + numPlayers);
@@ -155,29 +468,55 @@ public class MoveServer {
         }
         GameBoard board = new GameBoard(players);
         Player currentPlayer = players.peek();
+        Player me = null; // the player this server plays for
+        for (Player p : players) {
+            if (p.toString().equals(hermes.name())) {
+                me = p;
+            }
+        }
         GameBoardFrame frame = null;
         if (SERVER_DISPLAY) {
-            frame = new GameBoardFrame(board, players, playerName);
+            frame = new GameBoardFrame(board, players, hermes.name());
             sleep(250);
         }
 
-        String clientMessage;
-        String [] words;
+        moveBudget = 0;
+        if (seed != null) {
+            ai.setSeed(seed);  // unless the referee sends its own
+        }
 
         hermes.ready();
         /* handle different types of messages the client might send */
-        while (hermes.hasNextLine()) {
-            clientMessage = hermes.nextLine().trim();
-            Deb.ug.println("received: " + clientMessage);
-            System.out.println("received: " + clientMessage);
-
-            words = clientMessage.split(" ");
-            Deb.ug.println("words: " + Arrays.toString(words));
+        boolean again = false;
+        int type;
+        while ((type = hermes.next()) != ServerMessenger.CLOSED) {
+            // a session in this JVM is not watched, and building the
+            // message for every WENT would be work thrown away
+            if (!local) {
+                String received = "received: " + hermes.message();
+                Deb.ug.println(received);
+                say(received);
+            }
 
             // GO? --> get a move from this server
-            if (clientMessage.startsWith("GO?")) {
-                String move = ai.getMove(board, currentPlayer);
-                System.out.println("move: " + move);
+            if (type == Frame.GO_QUERY) {
+                ai.stopPondering();
+                String move = bookMove(board, currentPlayer);
+                if (move == null) {
+                    move = raceMove(board, currentPlayer);
+                }
+                if (move != null) {
+                    say("no thinking needed");
+                } else if (moveBudget > 0) {
+                    long deadline = System.currentTimeMillis() 
+                                  + Math.max(moveBudget - SAFETY_MARGIN, 1);
+                    move = ai.getMove(board, currentPlayer, deadline);
+                    logStats();
+                } else {
+                    move = ai.getMove(board, currentPlayer);
+                    logStats();
+                }
+                say("move: " + move);
                 Deb.ug.println("sending: " + move);
                 hermes.go(move);
                 // don't update frame or shuffle players here, because the 
@@ -186,27 +525,26 @@ public class MoveServer {
                 continue;
 
             // WENT --> a player made a move, update internal board
-            } else if (clientMessage.startsWith("WENT")) {
+            } else if (type == Frame.WENT) {
                 assert (currentPlayer != null);
                 // this assertion fails when the display client boots
                 // players at the beginning of the game for a bad name.
                 // you know, like a name that has `fuck' in it or something.
                 // in other cases this assertion should hold...
                 // can we keep it somehow?
-                assert (currentPlayer.toString().equals(words[1]));
+                assert (hermes.isAbout(currentPlayer));
 
                 // move is a string like "V-A" or "(V-A, V-B)"
-                // add 6 to the player's name's length to compensate for
-                // "WENT" plus 2 spaces
-                String move = clientMessage.substring(6 + words[1].length());
-                GameEngine.playTurn(move, currentPlayer, board);
+                GameEngine.playTurn(hermes.moveText(), currentPlayer, board);
+                ai.moveMade(board, currentPlayer, hermes.move());
 
                 // shuffle players
                 players = board.getNextTurn(players);
                 currentPlayer = players.peek();
+                ponder(board, currentPlayer, me);
 
             // BOOT --> current player is no longer player or has been kicked
-            } else if (clientMessage.startsWith("BOOT")) {
+            } else if (type == Frame.BOOT) {
                 Deb.ug.println("currPlayer name " + currentPlayer);
                 Deb.ug.println("currPlayer no " + currentPlayer.getPlayerNo());
                 // this assertion fails when the display client boots
@@ -214,49 +552,84 @@ public class MoveServer {
                 // you know, like a name that has `fuck' in it or something.
                 // in other cases this assertion should hold...
                 // can we keep it somehow?
-                assert words[1].equals(currentPlayer.toString());
+                assert hermes.isAbout(currentPlayer);
                 board.removePlayer(currentPlayer);
                 players.remove();
+                ai.playerBooted(board, currentPlayer);
                 currentPlayer = players.peek();
+                ponder(board, currentPlayer, me);
+
+            // TIME --> the referee's time limit per move, in milliseconds
+            } else if (type == Frame.TIME) {
+                moveBudget = hermes.number();
+                continue;
+
+            // SEED --> seed for random choices, to make the game repeatable
+            } else if (type == Frame.SEED) {
+                ai.setSeed(hermes.number());
+                continue;
 
             // VICTOR --> a player has won the game
-            } else if (clientMessage.startsWith("VICTOR")) {
-                System.out.println(words[1] + " won!");
-                if (words[1].equals(playerName + portNumber)) {
+            } else if (type == Frame.VICTOR) {
+                ai.stopPondering();
+                Player winner = null;
+                for (Player p : players) {
+                    if (hermes.isAbout(p)) {
+                        winner = p;
+                    }
+                }
+                ai.gameOver(board, winner);
+                say(winner + " won!");
+                if (winner != null && winner == me) {
                     Deb.ug.println("WHERE U @"); // gloat
-                    WIN_RECORD++;
+                    WIN_RECORD.incrementAndGet();
                 } else {
                     Deb.ug.println("aww :(");
-                    LOSE_RECORD++;
+                    LOSE_RECORD.incrementAndGet();
                 }
+            // NEWGAME --> this game is over, another follows right away
+            } else if (type == Frame.NEWGAME) {
+                again = true;
+                break;
+
+            // TIME, SEED etc. that make no sense
+            } else if (type == ServerMessenger.BAD) {
+                say("bad message from client");
+                continue;
             // ??? --> who the heck knows what happend?
             } else {
-                System.out.println("unknown message from client");
+                say("unknown message from client");
             }
             if (SERVER_DISPLAY) {
                 frame.update(board);
             }
         }
-        System.out.println("game over");
+        ai.stopPondering();
+        say("game over");
         Deb.ug.println("game over");
-        System.out.println("Server closing connection from " + currClient);
-        hermes.closeStreams();
         if (SERVER_DISPLAY) {
             // close the display
             Deb.ug.println("closing display");
         	frame.closeWindow();
         }
+        return again;
     }
 }
 
 /* this class exists to print win/loss stats when the server terminates */
 class PrintStats extends Thread {
     public void run() {
-        int wins = MoveServer.WIN_RECORD;
-        int losses = MoveServer.LOSE_RECORD;
+        int wins = MoveServer.WIN_RECORD.get();
+        int losses = MoveServer.LOSE_RECORD.get();
 
         System.out.println("Games won: " + wins); 
         System.out.println("Games lost: " + losses); 
         System.out.println("Total games played: " + (wins+losses));
+
+        SearchStats total = MoveServer.SEARCH_TOTAL;
+        if (total.searches() > 0) {
+            System.out.println("Moves searched: " + total.searches());
+            System.out.println("Search totals: " + total);
+        }
     }
 }
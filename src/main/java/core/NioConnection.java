@@ -0,0 +1,158 @@
+/* NioConnection.java - CIS405 - teams
+ * ____________________________________________________________________________
+ *
+ * A Connection over a non-blocking SocketChannel, made and driven by an
+ *   NioTransport. Lines to send go into a direct buffer and out as far as
+ *   the socket takes them; the rest waits for the transport to see the
+ *   channel writable. Bytes that arrive are read straight into the direct
+ *   buffer of a LineReader and wait there until nextLine() or readFrame()
+ *   takes them, so lines and Frames can follow each other, and a line is
+ *   never copied out of the buffer unless somebody asks for a String.
+ */
+
+import java.io.IOException;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+
+public class NioConnection implements Connection {
+    private final NioTransport transport;
+    private final SocketChannel channel;
+    private SelectionKey key;
+    private boolean open = true;
+    private boolean ended = false;  // the other side hung up
+
+    private ByteBuffer out = ByteBuffer.allocateDirect(1024); // being filled
+    private final LineReader in   // bytes that came, not yet read
+        = new LineReader(ByteBuffer.allocateDirect(NioTransport.BUFFER));
+
+    NioConnection(NioTransport transport, SocketChannel channel) {
+        this.transport = transport;
+        this.channel = channel;
+    }
+
+    void register(SelectionKey key) {
+        this.key = key;
+    }
+
+    //*************************************************************************
+
+    public void send(String line) {
+        send(Connection.encode(line));
+    }
+
+    public void send(byte [] bytes) {
+        if (!open) {
+            return;
+        }
+        if (out.remaining() < bytes.length) {
+            ByteBuffer bigger = ByteBuffer.allocateDirect(
+                Math.max(2 * out.capacity(), out.position() + bytes.length));
+            out.flip();
+            bigger.put(out);
+            out = bigger;
+        }
+        out.put(bytes);
+        flush();
+    }
+
+    public CharSequence nextLine(long millis) {
+        long deadline = System.currentTimeMillis() + millis;
+        CharSequence line;
+        // what came before a close still counts, even a last line
+        // without its line ending, as with a SocketConnection
+        while ((line = in.nextLine()) == null) {
+            if (!open) {
+                return ended ? in.rest() : null;
+            }
+            if (!await(millis, deadline)) {
+                return null;
+            }
+        }
+        return line;
+    }
+
+    public byte [] readFrame(long millis) {
+        long deadline = System.currentTimeMillis() + millis;
+        byte [] frame;
+        while ((frame = in.nextFrame()) == null) {
+            if (!open || !await(millis, deadline)) {
+                return null;
+            }
+        }
+        if (frame.length == 0) {
+            close();  // no type: not a frame of ours
+            return null;
+        }
+        return frame;
+    }
+
+    public boolean isOpen() {
+        return open;
+    }
+
+    public void close() {
+        if (!open) {
+            return;
+        }
+        open = false;
+        key.cancel();
+        try {
+            channel.close();
+        } catch (IOException e) {
+            // it is closed as far as we are concerned
+        }
+    }
+
+    //*************************************************************************
+
+    /** writes as much as the socket takes; asks to hear about the rest */
+    void flush() {
+        if (!open) {
+            return;
+        }
+        out.flip();
+        try {
+            channel.write(out);
+        } catch (IOException e) {
+            close();
+            return;
+        }
+        out.compact();
+        key.interestOps(out.position() > 0
+                        ? SelectionKey.OP_READ | SelectionKey.OP_WRITE
+                        : SelectionKey.OP_READ);
+    }
+
+    // polls the transport once; false if the deadline has passed
+    private boolean await(long millis, long deadline) {
+        long left = deadline - System.currentTimeMillis();
+        if (millis > 0 && left <= 0) {
+            return false;  // too late
+        }
+        transport.poll((millis > 0) ? left : 0);
+        return true;
+    }
+
+    /** reads what has arrived into the buffer, to wait until it is read */
+    void fill() {
+        int n;
+        ByteBuffer room;
+        do {
+            try {
+                room = in.room();
+                n = channel.read(room);
+            } catch (IOException e) {
+                close();  // broken, not hung up: a half line is no line
+                return;
+            }
+            if (n < 0) {
+                ended = true;
+                close();
+                return;
+            }
+            in.filled();
+        } while (!room.hasRemaining());  // there may be more waiting
+    }
+}
@@ -0,0 +1,128 @@
+/* NioTransport.java - CIS405 - teams
+ * ____________________________________________________________________________
+ *
+ * Non-blocking transport for the players of one game. Every NioConnection
+ *   it makes is a SocketChannel registered with one Selector, and whichever
+ *   thread calls poll() moves the bytes for all of them: it finishes pending
+ *   writes and reads whatever has arrived into each connection's buffer,
+ *   where it waits until somebody asks for a line. A ClientMessenger makes
+ *   one for the two to four players of its game.
+ *
+ * A connection's readLine() polls until that connection has a line, so the
+ *   game uses the transport as if it were blocking, from its own thread;
+ *   the other players' bytes keep moving in the meantime, and a player that
+ *   reads slowly never holds up a broadcast to the rest. This is not an
+ *   event loop that serves many games: whoever waits for a line waits in
+ *   poll(), so a referee still needs a thread per game (see Referee).
+ *
+ * Every connection reads and writes through direct buffers of its own, so
+ *   the bytes go from the socket to the LineReader that cuts them into lines
+ *   without a copy in between. A transport is not thread safe: one thread
+ *   polls and uses it.
+ *
+ * --------------------------------- METHODS ----------------------------------
+ *
+ * NioTransport()                   --> opens a selector
+ * NioConnection connect(String,int)--> connects to a move server
+ * int poll(long)                   --> moves bytes, waiting up to so many ms
+ * int size()                       --> number of open connections
+ * void close()                     --> closes every connection
+ */
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+import java.net.InetSocketAddress;
+import java.net.UnknownHostException;
+
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.channels.UnresolvedAddressException;
+
+public class NioTransport {
+    public static final int BUFFER = 1024;  // bytes read at a time, at first
+
+    private final Selector selector;
+
+    /**
+     * opens a transport without any connections
+     * @throws IOException if no selector can be opened
+     */
+    public NioTransport() throws IOException {
+        selector = Selector.open();
+    }
+
+    /**
+     * connects to a move server. the connect itself blocks, so a missing
+     * server is reported here; everything after that does not.
+     * @param host host name of the move server
+     * @param port its port
+     * @return the connection
+     * @throws IOException if there is nobody there
+     */
+    public NioConnection connect(String host, int port) throws IOException {
+        SocketChannel channel = SocketChannel.open();
+        try {
+            channel.connect(new InetSocketAddress(host, port));
+        } catch (UnresolvedAddressException e) {
+            channel.close();
+            throw new UnknownHostException(host);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        channel.configureBlocking(false);
+        channel.socket().setTcpNoDelay(true);  // lines are small and urgent
+        NioConnection conn = new NioConnection(this, channel);
+        conn.register(channel.register(selector, SelectionKey.OP_READ, conn));
+        return conn;
+    }
+
+    /**
+     * moves bytes for every connection that is ready
+     * @param millis how long to wait for something to happen: 0 waits until
+     *               something does, a negative number does not wait at all
+     * @return the number of connections that did something
+     */
+    public int poll(long millis) {
+        int ready;
+        try {
+            ready = (millis < 0) ? selector.selectNow()
+                                 : selector.select(millis);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        if (ready == 0) {
+            return 0;
+        }
+        for (SelectionKey key : selector.selectedKeys()) {
+            NioConnection conn = (NioConnection) key.attachment();
+            if (key.isValid() && key.isWritable()) {
+                conn.flush();
+            }
+            if (key.isValid() && key.isReadable()) {
+                conn.fill();
+            }
+        }
+        selector.selectedKeys().clear();
+        return ready;
+    }
+
+    /** returns the number of open connections */
+    public int size() {
+        return selector.keys().size();
+    }
+
+    /** closes every connection and the selector */
+    public void close() {
+        for (SelectionKey key : selector.keys()) {
+            ((NioConnection) key.attachment()).close();
+        }
+        try {
+            selector.close();
+        } catch (IOException e) {
+            // nothing left to do with it anyway
+        }
+    }
+}
@@ -0,0 +1,275 @@
+/* Referee.java - CIS405 - teams
+ * ____________________________________________________________________________
+ *
+ * Long-running referee for AI ladders and tournaments. Where Game plays one
+ *   game with a window and exits, a Referee stays up and plays every game it
+ *   is asked for, each on a thread of its own with its own Game, board and
+ *   messenger, so any number of games share one JVM.
+ *
+ *      java Referee <port>
+ *
+ * Anyone may connect to the port and send lines:
+ *
+ *   GAME [--time=<ms>] [--seed=<n>] [--timeout=<ms>] [--text] [--games=<n>]
+ *        host:port host:port [host:port host:port]
+ *            --> STARTED <id> right away, then once the game is over
+ *                RESULT <id> <winner> <turns>, or RESULT <id> none if no
+ *                move server survived the start, or ERROR <id> <reason>
+ *   STATUS   --> RUNNING <games in progress> <games finished>
+ *   QUIT     --> closes the connection; its games play on
+ *
+ * A player that takes longer than the timeout to answer is booted; the
+ *   default is the time limit plus Game.GRACE, or no limit without one.
+ *   Move servers that offer the binary protocol get it, unless --text.
+ *
+ * --games plays that many games in a row, one RESULT line each, the seed
+ *   going up by one from game to game. When all the move servers offer
+ *   NEWGAME, every game after the first is played over the connections of
+ *   the one before, which for short games saves most of the time they take;
+ *   otherwise each game connects afresh.
+ *
+ * A connection can have many games going at once; results come back in the
+ *   order the games finish. Every game has a thread of its own, which waits
+ *   while a move server thinks. On Java 21 and newer that is a virtual
+ *   thread, which costs next to nothing while it waits, and the games talk
+ *   to the move servers over plain sockets, since a virtual thread blocked
+ *   on a socket is parked rather than holding its carrier. Older JVMs give
+ *   every game a platform thread all the same, so a busy Referee wants a
+ *   newer JVM. There each game talks to its players through an NioTransport
+ *   of its own, as Game does: that does not save the thread, but a player
+ *   that stops reading cannot hold up what the game sends the others.
+ *
+ * --------------------------------- METHODS ----------------------------------
+ *
+ * void main(String[])              --> serves games until killed
+ * String request(String,Sink)      --> handles one line from a client
+ */
+
+import java.io.IOException;
+import java.io.PrintStream;
+
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.UnknownHostException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Scanner;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class Referee {
+
+    /** where a game's answers go; one client connection, in practice */
+    public interface Sink {
+        void send(String line);
+    }
+
+    private static final ExecutorService threads = Threads.perTask();
+    private static final AtomicInteger nextId = new AtomicInteger(1);
+    private static final AtomicInteger running = new AtomicInteger();
+    private static final AtomicLong finished = new AtomicLong();
+
+    public static void usage(int error) {
+        System.err.println("usage: java Referee <port>");
+        System.exit(error);
+    }
+
+    public static void main(String[] args) {
+        if (args.length != 1) {
+            usage(1);
+        }
+        int port = 0;
+        try {
+            port = Integer.parseInt(args[0]);
+        } catch (NumberFormatException e) {
+            usage(2);
+        }
+        Deb.initialize("referee_" + port);
+
+        ServerSocket server = null;
+        try {
+            server = new ServerSocket(port);
+        } catch (IOException ioe) {
+            ioe.printStackTrace();
+            System.exit(9);
+        }
+        System.out.println("Refereeing on " + port);
+        Deb.ug.println("Refereeing on " + port);
+        while (true) {
+            try {
+                final Socket client = server.accept();
+                threads.execute(new Runnable() {
+                    public void run() {
+                        serve(client);
+                    }
+                });
+            } catch (IOException ioe) {
+                ioe.printStackTrace();
+                System.exit(10);
+            }
+        }
+    }
+
+    //*************************************************************************
+
+    // reads requests from one client until it quits or goes away
+    private static void serve(Socket client) {
+        Deb.ug.println("client " + client);
+        try {
+            Scanner in = new Scanner(client.getInputStream());
+            final PrintStream out = new PrintStream(client.getOutputStream(),
+                                                    true);
+            Sink sink = new Sink() {
+                public void send(String line) {
+                    out.println(line);  // println is synchronized
+                }
+            };
+            while (in.hasNextLine()) {
+                String answer = request(in.nextLine().trim(), sink);
+                if (answer == null) {
+                    break;
+                }
+                sink.send(answer);
+            }
+            client.close();
+        } catch (IOException ioe) {
+            Deb.ug.println("lost client " + client + ": " + ioe);
+        }
+        Deb.ug.println("client " + client + " gone");
+    }
+
+    /**
+     * handles one request line; a GAME is started on a thread of its own
+     * and reports its result to the sink when it is over
+     * @param line the request
+     * @param sink where the game's result goes
+     * @return the immediate answer, or null to close the connection
+     */
+    public static String request(String line, Sink sink) {
+        String [] words = line.split("\\s+");
+        if (words[0].equals("QUIT")) {
+            return null;
+        } else if (words[0].equals("STATUS")) {
+            return "RUNNING " + running.get() + " " + finished.get();
+        } else if (!words[0].equals("GAME")) {
+            return "ERROR 0 unknown request " + words[0];
+        }
+
+        int id = nextId.getAndIncrement();
+        long time = 0;
+        Long seed = null;
+        Long timeout = null;
+        boolean text = false;
+        int games = 1;
+        List<String> hosts = new ArrayList<String>();
+        try {
+            for (int i = 1; i < words.length; i++) {
+                if (words[i].startsWith("--time=")) {
+                    time = Long.parseLong(words[i].substring(7));
+                } else if (words[i].startsWith("--seed=")) {
+                    seed = Long.parseLong(words[i].substring(7));
+                } else if (words[i].startsWith("--timeout=")) {
+                    timeout = Long.parseLong(words[i].substring(10));
+                } else if (words[i].startsWith("--games=")) {
+                    games = Integer.parseInt(words[i].substring(8));
+                } else if (words[i].equals("--text")) {
+                    text = true;
+                } else if (words[i].startsWith("--")) {
+                    return "ERROR " + id + " unknown option " + words[i];
+                } else {
+                    hosts.add(words[i]);
+                }
+            }
+        } catch (NumberFormatException e) {
+            return "ERROR " + id + " bad number in " + line;
+        }
+        if (hosts.size() != 2 && hosts.size() != 4) {
+            return "ERROR " + id + " need 2 or 4 players";
+        }
+        if (games < 1) {
+            return "ERROR " + id + " need at least one game";
+        }
+        if (timeout == null) {
+            timeout = Game.defaultTimeout(time);
+        }
+        start(id, hosts.toArray(new String[hosts.size()]), time, seed,
+              timeout, text, games, sink);
+        return "STARTED " + id;
+    }
+
+    // plays the games on a thread of their own
+    private static void start(final int id, final String [] hosts,
+                              final long time, final Long seed,
+                              final long timeout, final boolean text,
+                              final int games, final Sink sink) {
+        running.incrementAndGet();
+        threads.execute(new Runnable() {
+            public void run() {
+                try {
+                    play(id, hosts, time, seed, timeout, text, games, sink);
+                } finally {
+                    running.decrementAndGet();
+                }
+            }
+        });
+    }
+
+    // plays the games one after another, over the same connections where
+    // the move servers allow it, and sends a RESULT or ERROR line for each
+    private static void play(int id, String [] hosts, long time, Long seed,
+                             long timeout, boolean text, int games,
+                             Sink sink) {
+        Deb.ug.println("game " + id + ": " + Arrays.toString(hosts));
+        ClientMessenger hermes = null;
+        for (int game = 0; game < games; game++) {
+            if (hermes != null && hermes.canPlayAgain()) {
+                hermes.newGame();
+            } else {
+                try {
+                    // plain sockets on virtual threads; elsewhere a
+                    // non-blocking transport, so no write can hang a game
+                    hermes = ClientMessenger.open(hosts, Threads.virtual());
+                } catch (IllegalArgumentException e) {
+                    sink.send("ERROR " + id + " " + e.getMessage());
+                    return;
+                } catch (UnknownHostException e) {
+                    sink.send("ERROR " + id + " unknown host: "
+                              + e.getMessage());
+                    return;
+                } catch (IOException e) {
+                    sink.send("ERROR " + id + " " + e.getMessage());
+                    return;
+                }
+                hermes.setMoveTimeout(timeout);
+                hermes.setBinaryAllowed(!text);
+            }
+            hermes.setKeepOpen(game < games - 1);
+            Long gameSeed = (seed == null) ? null : seed + game;
+            try {
+                sink.send(play(id, hermes, time, gameSeed));
+            } finally {
+                finished.incrementAndGet();
+            }
+        }
+    }
+
+    // plays a game and returns its RESULT or ERROR line
+    private static String play(int id, ClientMessenger hermes, long time,
+                               Long seed) {
+        Game game = new Game(hermes, time, seed);
+        try {
+            Player winner = game.play(false);
+            Deb.ug.println("game " + id + " won by " + winner);
+            return "RESULT " + id + " "
+                + ((winner == null) ? "none" : winner + " " + game.getTurns());
+        } catch (RuntimeException e) {
+            // a bug, or a move server that said something very odd
+            Deb.ug.println("game " + id + " failed: " + e);
+            hermes.closeAll();  // no more games on these
+            return "ERROR " + id + " " + e;
+        }
+    }
+}
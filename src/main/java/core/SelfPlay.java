@@ -0,0 +1,197 @@
+/* SelfPlay.java - CIS405 - teams
+ * ____________________________________________________________________________
+ *
+ * Plays AIs against each other in one JVM, for self-play runs, tuning and
+ *   benchmarks that want many games and no network. Every seat is a
+ *   MoveServer session and every game is refereed by Game, exactly as with
+ *   java Game and java MoveServer, but the two talk over LocalConnections:
+ *   no sockets, and Frames rather than lines once the game is under way.
+ *   The sessions play game after game with NEWGAME; a session is only
+ *   started again when its player was booted.
+ *
+ *      java SelfPlay [--games=<n>] [--time=<ms>] [--nodes=<n>]
+ *           [--seed=<n>] [--parallel=<n>] [--text] mode mode [mode mode]
+ *
+ * The modes are those of MoveServer, except user. --parallel plays that many
+ *   matches at once, each with its own referee and sessions; --text keeps
+ *   the protocol in lines, to time or test that instead.
+ *
+ * --------------------------------- METHODS ----------------------------------
+ *
+ * void main(String[])              --> plays the games, prints the results
+ * long[] match(...)                --> plays games over one set of sessions
+ */
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+public class SelfPlay {
+
+    public static void usage(int error) {
+        System.err.println("usage: java SelfPlay [--games=<n>] [--time=<ms>]"
+                           + " [--nodes=<n>] [--seed=<n>] [--parallel=<n>]"
+                           + " [--text] mode mode [mode mode]");
+        System.exit(error);
+    }
+
+    public static void main(String [] args) {
+        int games = 100;
+        long time = 0;
+        long nodes = 0;
+        Long seed = null;
+        int parallel = 1;
+        boolean text = false;
+        List<String> modes = new ArrayList<String>();
+        try {
+            for (String arg : args) {
+                if (arg.startsWith("--games=")) {
+                    games = Integer.parseInt(arg.substring(8));
+                } else if (arg.startsWith("--time=")) {
+                    time = Long.parseLong(arg.substring(7));
+                } else if (arg.startsWith("--nodes=")) {
+                    nodes = Long.parseLong(arg.substring(8));
+                } else if (arg.startsWith("--seed=")) {
+                    seed = Long.parseLong(arg.substring(7));
+                } else if (arg.startsWith("--parallel=")) {
+                    parallel = Integer.parseInt(arg.substring(11));
+                } else if (arg.equals("--text")) {
+                    text = true;
+                } else if (arg.startsWith("--")) {
+                    usage(3);
+                } else {
+                    modes.add(arg);
+                }
+            }
+        } catch (NumberFormatException e) {
+            usage(3);
+        }
+        if ((modes.size() != 2 && modes.size() != 4) || games < 1
+            || parallel < 1) {
+            usage(1);
+        }
+        for (String mode : modes) {
+            QuoridorAI ai = MoveServer.makeAI(mode);
+            if (ai == null || ai instanceof AI_AskUser) {
+                usage(2);  // nobody to ask
+            }
+        }
+        Deb.initialize("selfplay");
+
+        final String [] seats = modes.toArray(new String[modes.size()]);
+        final long matchTime = time;
+        final long matchNodes = nodes;
+        final boolean matchText = text;
+        final ExecutorService threads = Threads.perTask();
+        List<Future<long []>> matches = new ArrayList<Future<long []>>();
+        long start = System.currentTimeMillis();
+        int first = 0;
+        for (int m = 0; m < parallel; m++) {
+            final int count = games / parallel + ((m < games % parallel) ? 1
+                                                                         : 0);
+            final Long matchSeed = (seed == null) ? null : seed + first;
+            first += count;
+            matches.add(threads.submit(new Callable<long []>() {
+                public long [] call() {
+                    return match(seats, count, matchTime, matchNodes,
+                                 matchSeed, matchText, threads);
+                }
+            }));
+        }
+
+        long [] total = new long[seats.length + 2];
+        for (Future<long []> match : matches) {
+            try {
+                long [] result = match.get();
+                for (int i = 0; i < total.length; i++) {
+                    total[i] += result[i];
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (ExecutionException e) {
+                e.getCause().printStackTrace();
+            }
+        }
+        long millis = Math.max(System.currentTimeMillis() - start, 1);
+
+        long played = total[seats.length];
+        for (int i = 0; i < seats.length; i++) {
+            played += total[i];
+        }
+        System.out.printf("%d games in %.1f s (%.1f games/s), %.1f turns"
+                          + " each%n", played, millis / 1000.0,
+                          1000.0 * played / millis,
+                          (played == 0) ? 0.0
+                                        : (double) total[seats.length + 1]
+                                          / played);
+        for (int i = 0; i < seats.length; i++) {
+            System.out.println("seat " + i + " " + seats[i] + ": "
+                               + total[i] + " wins");
+        }
+        System.out.println("no winner: " + total[seats.length]);
+        System.exit(0);
+    }
+
+    /**
+     * plays games in this JVM between AIs of the given modes, one after
+     * another over the same sessions, the seed going up by one a game
+     * @param modes MoveServer modes, one per seat
+     * @param games how many games
+     * @param time ms per move, 0 means no limit
+     * @param nodes nodes per move for searching AIs, 0 means no limit
+     * @param seed seed of the first game, null means none
+     * @param text keep the protocol in lines
+     * @param threads where the MoveServer sessions run
+     * @return per seat the games it won, then the games nobody won, then
+     *         the turns of all games together
+     */
+    public static long [] match(String [] modes, int games, long time,
+                                long nodes, Long seed, boolean text,
+                                ExecutorService threads) {
+        long [] result = new long[modes.length + 2];
+        ClientMessenger hermes = null;
+        for (int game = 0; game < games; game++) {
+            if (hermes != null && hermes.canPlayAgain()) {
+                hermes.newGame();
+            } else {
+                hermes = connect(modes, nodes, threads);
+                hermes.setMoveTimeout(Game.defaultTimeout(time));
+                hermes.setBinaryAllowed(!text);
+            }
+            hermes.setKeepOpen(game < games - 1);
+            Game g = new Game(hermes, time, (seed == null) ? null
+                                                           : seed + game);
+            Player winner = g.play(false);
+            result[(winner == null) ? modes.length
+                                    : winner.getPlayerNo()]++;
+            result[modes.length + 1] += g.getTurns();
+        }
+        return result;
+    }
+
+    // starts a MoveServer session per seat, each with a new AI, and
+    // returns the referee's end of their connections
+    private static ClientMessenger connect(String [] modes, long nodes,
+                                           ExecutorService threads) {
+        Connection [] conns = new Connection[modes.length];
+        for (int i = 0; i < modes.length; i++) {
+            LocalConnection [] ends = LocalConnection.pair();
+            conns[i] = ends[0];
+            final Connection server = ends[1];
+            final QuoridorAI ai = MoveServer.makeAI(modes[i]);
+            if (nodes > 0) {
+                ai.setNodeLimit(nodes);
+            }
+            threads.execute(new Runnable() {
+                public void run() {
+                    MoveServer.serve(server, ai);
+                }
+            });
+        }
+        return new ClientMessenger(conns);
+    }
+}
@@ -1,25 +1,49 @@
 /*
  * protocol stuff used by the move server
+ *
+ * next() reads the referee's messages one at a time and returns the type of
+ * each (a Frame type, whichever protocol carried it), leaving what was in
+ * it in move(), moveText() and number(), with isAbout() for the player. the
+ * server handles lines and Frames the same, and with Frames nothing has to
+ * be split or parsed. lines are read where they lie in the connection's
+ * buffer and picked apart in place; only the move text is a String, and a
+ * move spelt the usual way gets the cached one from Move.toString.
  */
 import java.io.IOException;
-import java.io.PrintStream;
 
-import java.net.ServerSocket;
 import java.net.Socket;
-import java.net.UnknownHostException;
 
-import java.util.Scanner;
 import java.util.Arrays;
 
 public class ServerMessenger {
-    /** display client stuff **/
-    private PrintStream outStream; // connection to the display client
-    private Scanner     inStream;  // connection to the display client
+    public static final int CLOSED = -1;   // the referee is gone
+    public static final int UNKNOWN = 0;   // a message we do not know
+    public static final int BAD = -2;      // one we know, but garbled
+
+    private Connection conn;   // connection to the display client
+    private String name;       // ours, as the display client knows us
+    private boolean offered;   // we said we speak binary
+    private boolean again;     // we said we play more than one game
+    private boolean binary;    // and the client wants it
+
+    // the last message next() read
+    private CharSequence line; // as text, or null for a frame
+    private int from, to;      // the line without spaces around it
+    private byte [] frame;     // as a frame, or null for text
+    private int seat;          // the player it is about, -1 if by name
+    private int nameFrom;      // where the line names the player,
+    private int nameTo;        //   if it is about one by name
+    private int move;          // Move code, Move.NONE if none
+    private String moveText;   // the move as a string
+    private long number;       // TIME or SEED
+
+    public ServerMessenger(Connection conn) {
+        this.conn = conn;
+    }
 
     public ServerMessenger(Socket sock) {
         try {
-            this.inStream = new Scanner(sock.getInputStream());
-            this.outStream = new PrintStream(sock.getOutputStream());
+            this.conn = new SocketConnection(sock);
         } catch (IOException ioe) {
             // there was a standard input/output error (lower-level from uhe)
             ioe.printStackTrace();
@@ -31,32 +55,68 @@ public class ServerMessenger {
     * @param a string that we send to identify us
      */
     public void identify(String name) {
-        outStream.println("MOVE-SERVER " + name);
+        identify(name, false);
+    }
+
+    /* tells the display client our name, and maybe that we speak binary
+     * @param name a string that we send to identify us
+     * @param offerBinary offer the client Frames instead of lines
+     */
+    public void identify(String name, boolean offerBinary) {
+        identify(name, offerBinary, false);
+    }
+
+    /* tells the display client our name, and what we offer
+     * @param name a string that we send to identify us
+     * @param offerBinary offer the client Frames instead of lines
+     * @param offerAgain offer to play more games over this connection
+     */
+    public void identify(String name, boolean offerBinary,
+                         boolean offerAgain) {
+        this.name = name;
+        offered = offerBinary;
+        again = offerAgain;
+        conn.send("MOVE-SERVER " + name + (offered ? " " + Frame.OFFER : "")
+                  + (again ? " " + Frame.AGAIN : ""));
     }
 
     public void go(String move) {
-        outStream.println("GO " + move);
+        if (binary) {
+            int m = Move.parse(move);
+            conn.send(Frame.of(Frame.GO,
+                               (m == Move.NONE) ? Frame.NO_MOVE : m));
+        } else {
+            conn.send("GO " + move);
+        }
     }
 
     /* tells display client that this server is ready to play */
     public void ready() {
-        outStream.println("MOVE");
+        conn.send("MOVE");
     }
 
-    public boolean hasNextLine() {
-        return inStream.hasNextLine();
+    /* true once the display client has agreed to Frames */
+    public boolean isBinary() {
+        return binary;
     }
 
-    public String nextLine() {
-        return inStream.nextLine();
+    /* our name: the one we greeted with, unless the display client gave
+     * us another with NAME because a seat before ours had it already
+     */
+    public String name() {
+        return name;
     }
 
     public String [] players() {
-        if (! inStream.hasNextLine()) {
+        String clientMessage = conn.readLine();
+        while (clientMessage != null && clientMessage.startsWith("NAME ")) {
+            name = clientMessage.substring(5).trim();
+            Deb.ug.println("renamed to " + name);
+            clientMessage = conn.readLine();
+        }
+        if (clientMessage == null) {
             return null;
         }
-        String clientMessage = inStream.nextLine();
-        assert (clientMessage != null);
 
         String [] words = clientMessage.split(" ");
 
@@ -73,8 +133,140 @@ public class ServerMessenger {
         return players;
     }
 
+    /* waits for the next message from the display client
+     * @return its type: a Frame type, UNKNOWN, BAD, or CLOSED
+     */
+    public int next() {
+        seat = -1;
+        nameFrom = nameTo = 0;
+        move = Move.NONE;
+        moveText = null;
+        if (binary) {
+            line = null;
+            frame = conn.readFrame(0);
+            return (frame == null) ? CLOSED : fromFrame();
+        }
+        frame = null;
+        line = conn.nextLine(0);
+        if (line == null) {
+            return CLOSED;
+        }
+        from = LineReader.trimStart(line);
+        to = Math.max(from, LineReader.trimEnd(line));
+        if (offered && LineReader.regionEquals(line, from, to, Frame.OFFER)) {
+            binary = true;  // Frames from here on, both ways
+            return next();
+        }
+        return fromLine();
+    }
+
+    // the last message was a frame
+    private int fromFrame() {
+        int type = frame[0];
+        switch (type) {
+        case Frame.GO_QUERY:
+            return type;
+        case Frame.NEWGAME:
+            binary = false;  // the next game starts with lines again
+            return type;
+        case Frame.WENT:
+            if (frame.length != 3 || (frame[2] & 0xff) >= Move.COUNT) {
+                return BAD;
+            }
+            seat = frame[1] & 0xff;
+            move = frame[2] & 0xff;
+            moveText = Move.toString(move);
+            return type;
+        case Frame.BOOT:
+        case Frame.VICTOR:
+            if (frame.length != 2) {
+                return BAD;
+            }
+            seat = frame[1] & 0xff;
+            return type;
+        case Frame.TIME:
+        case Frame.SEED:
+            if (frame.length != 9) {
+                return BAD;
+            }
+            number = Frame.number(frame);
+            return type;
+        default:
+            return UNKNOWN;
+        }
+    }
+
+    // the last message was a line
+    private int fromLine() {
+        if (isWord(from, Math.min(from + 3, to), "GO?")) {
+            return Frame.GO_QUERY;
+        }
+        if (isWord(from, to, Frame.AGAIN)) {
+            return Frame.NEWGAME;
+        }
+        int space = Math.min(LineReader.indexOf(line, ' ', from), to);
+        int type = isWord(from, space, "WENT") ? Frame.WENT
+                 : isWord(from, space, "BOOT") ? Frame.BOOT
+                 : isWord(from, space, "VICTOR") ? Frame.VICTOR
+                 : isWord(from, space, "TIME") ? Frame.TIME
+                 : isWord(from, space, "SEED") ? Frame.SEED
+                 : UNKNOWN;
+        if (type == UNKNOWN) {
+            return type;
+        }
+        if (space == to) {
+            return BAD;
+        }
+        int start = space + 1;
+        int end = Math.min(LineReader.indexOf(line, ' ', start), to);
+        if (type == Frame.TIME || type == Frame.SEED) {
+            try {
+                number = LineReader.parseLong(line, start, end);
+            } catch (NumberFormatException e) {
+                return BAD;
+            }
+            return type;
+        }
+        nameFrom = start;
+        nameTo = end;
+        if (type == Frame.WENT) {
+            if (end == to) {
+                return BAD;
+            }
+            // move is a string like "V-A" or "(V-A, V-B)", after the name
+            move = Move.parse(line, end + 1, to);
+            if (move != Move.NONE) {
+                moveText = Move.toString(move);
+            } else {
+                moveText = line.subSequence(end + 1, to).toString();
+                move = Move.parse(moveText);
+            }
+        }
+        return type;
+    }
+
+    private boolean isWord(int start, int end, String word) {
+        return LineReader.regionEquals(line, start, end, word);
+    }
+
+    /* the last message, for the logs */
+    public String message() {
+        return (frame != null) ? Frame.toString(frame)
+                               : line.subSequence(from, to).toString();
+    }
+
+    /* true if the last message is about the player p */
+    public boolean isAbout(Player p) {
+        return (nameTo > nameFrom)
+            ? LineReader.regionEquals(line, nameFrom, nameTo, p.toString())
+            : p.getPlayerNo() == seat;
+    }
+
+    public int move()           { return move; }
+    public String moveText()    { return moveText; }
+    public long number()        { return number; }
+
     public void closeStreams() {
-        outStream.close();
-        inStream.close();
+        conn.close();
     }
 }
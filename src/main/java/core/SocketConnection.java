@@ -0,0 +1,149 @@
+/* SocketConnection.java - CIS405 - teams
+ * ____________________________________________________________________________
+ *
+ * A Connection over a blocking Socket, as the referee has always talked to
+ *   move servers, and as a move server talks to the referee. Every read holds
+ *   up the calling thread, so each game needs a thread of its own. Reads go
+ *   from the socket into the one buffer of a LineReader, so lines and Frames
+ *   can follow each other on the same socket, and a line is never copied out
+ *   of the buffer unless somebody asks for a String.
+ */
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+
+import java.nio.ByteBuffer;
+
+public class SocketConnection implements Connection {
+    private final Socket socket;
+    private OutputStream out;  // null once closed
+    private InputStream in;
+    private final LineReader reader   // bytes that came, not yet read
+        = new LineReader(ByteBuffer.allocate(1024));
+
+    /**
+     * connects to a move server
+     * @param host host name of the move server
+     * @param port its port
+     * @throws IOException if there is nobody there
+     */
+    public SocketConnection(String host, int port) throws IOException {
+        this(new Socket(host, port));
+    }
+
+    /**
+     * talks over a socket that is already connected, e.g. an accepted one
+     * @param socket the socket
+     * @throws IOException if its streams cannot be had
+     */
+    public SocketConnection(Socket socket) throws IOException {
+        this.socket = socket;
+        socket.setTcpNoDelay(true);  // we flush whole messages ourselves
+        out = new BufferedOutputStream(socket.getOutputStream());
+        in = socket.getInputStream();
+    }
+
+    public void send(String line) {
+        send(Connection.encode(line));
+    }
+
+    public void send(byte [] bytes) {
+        if (out == null) {
+            return;
+        }
+        try {
+            out.write(bytes);
+            out.flush();
+        } catch (IOException e) {
+            close();
+        }
+    }
+
+    public CharSequence nextLine(long millis) {
+        if (in == null) {
+            return null;
+        }
+        long deadline = System.currentTimeMillis() + millis;
+        try {
+            CharSequence line;
+            while ((line = reader.nextLine()) == null) {
+                if (fill(millis, deadline) < 0) {
+                    close();
+                    return reader.rest();  // a last line without its ending
+                }
+            }
+            return line;
+        } catch (SocketTimeoutException e) {
+            return null;  // the caller gives up on us
+        } catch (IOException e) {
+            close();
+            return null;
+        }
+    }
+
+    public byte [] readFrame(long millis) {
+        if (in == null) {
+            return null;
+        }
+        long deadline = System.currentTimeMillis() + millis;
+        try {
+            byte [] frame;
+            while ((frame = reader.nextFrame()) == null) {
+                if (fill(millis, deadline) < 0) {
+                    close();
+                    return null;
+                }
+            }
+            if (frame.length == 0) {
+                close();  // no type: not a frame of ours
+                return null;
+            }
+            return frame;
+        } catch (SocketTimeoutException e) {
+            return null;
+        } catch (IOException e) {
+            close();
+            return null;
+        }
+    }
+
+    // reads what the socket has, giving up at the deadline if there is a
+    // time limit
+    private int fill(long millis, long deadline) throws IOException {
+        if (millis > 0) {
+            long left = deadline - System.currentTimeMillis();
+            if (left <= 0) {
+                throw new SocketTimeoutException();
+            }
+            socket.setSoTimeout((int) Math.min(left, Integer.MAX_VALUE));
+            try {
+                return reader.fill(in);
+            } finally {
+                socket.setSoTimeout(0);
+            }
+        }
+        return reader.fill(in);
+    }
+
+    public boolean isOpen() {
+        return out != null;
+    }
+
+    public void close() {
+        if (out == null) {
+            return;
+        }
+        out = null;
+        in = null;
+        try {
+            socket.close();
+        } catch (IOException e) {
+            // it is closed as far as we are concerned
+        }
+    }
+}
@@ -0,0 +1,48 @@
+/* Threads.java - CIS405 - teams
+ * ____________________________________________________________________________
+ *
+ * Where the servers get their threads. Referee runs every game and
+ *   MoveServer every session on a thread of its own; on Java 21 and newer
+ *   those are virtual threads, which cost next to nothing while they wait on
+ *   a socket, so thousands of them are fine. The build targets Java 8, so
+ *   the virtual thread executor is looked up by reflection; older JVMs get a
+ *   cached pool of platform threads instead.
+ *
+ * --------------------------------- METHODS ----------------------------------
+ *
+ * ExecutorService perTask()        --> a new (virtual) thread for every task
+ * boolean virtual()                --> does perTask() use virtual threads
+ */
+
+import java.lang.reflect.Method;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+public class Threads {
+
+    /**
+     * returns an executor that starts a new virtual thread for every task,
+     * or reuses platform threads where the JVM has no virtual threads
+     * @return the executor
+     */
+    public static ExecutorService perTask() {
+        try {
+            Method m = Executors.class.getMethod(
+                "newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) m.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool();
+        }
+    }
+
+    /** returns true if perTask() gives virtual threads */
+    public static boolean virtual() {
+        try {
+            Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return true;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,98 @@
+/* Warmup.java - CIS405 - teams
+ * ____________________________________________________________________________
+ *
+ * Gets the JIT going before a MoveServer takes its first connection. Until
+ *   HotSpot has compiled GameEngine, Graph, Position and the AI, everything
+ *   runs interpreted, and the first moves of the first game are several
+ *   times slower than the rest; with a per-move time limit that is a weaker
+ *   first game, and in a tournament it skews the timings.
+ *
+ * The workload is a few quick self-play games on a GameBoard, two- and
+ *   four-player, played by a separate AI of the same kind (so the real one
+ *   starts with empty tables). On every turn it also validates every
+ *   possible move string and runs the referee's and Graph's path searches.
+ *   It stops when the time is up, even in the middle of a game.
+ *
+ * --------------------------------- METHODS ----------------------------------
+ *
+ * void run(QuoridorAI,long)        --> warm up for about so many ms
+ */
+
+import java.util.LinkedList;
+import java.util.Queue;
+
+public class Warmup {
+
+    private static final long THINK = 20;  // ms the AI gets per move
+    private static final int MAX_TURNS = 200;
+
+    /**
+      * Plays self-play games until the time is up.
+      *     @param ai a fresh AI of the kind the server will play, or null to
+      *               leave the AI out
+      *     @param millis roughly how long to keep at it
+      *     @return the number of turns played
+      */
+    public static int run(QuoridorAI ai, long millis) {
+        long end = System.currentTimeMillis() + millis;
+        int turns = 0;
+        for (int game = 0; System.currentTimeMillis() < end; game++) {
+            turns += play(ai, (game % 2 == 0) ? 2 : 4, end);
+        }
+        return turns;
+    }
+
+    // one game, or as much of it as fits before the end
+    private static int play(QuoridorAI ai, int numPlayers, long end) {
+        Queue<Player> players = new LinkedList<Player>();
+        for (int i = 0; i < numPlayers; i++) {
+            players.add(new Player(i, Position.WALL_POOL / numPlayers));
+        }
+        GameBoard board = new GameBoard(players);
+        Graph graph = new Graph(GameBoard.ROWS * GameBoard.COLUMNS);
+        if (ai != null) {
+            ai.reset();
+        }
+
+        int turn = 0;
+        for (; turn < MAX_TURNS && System.currentTimeMillis() < end; turn++) {
+            Player p = players.peek();
+            for (int m = 0; m < Move.COUNT; m++) {
+                GameEngine.validate(board, p, Move.toString(m));
+            }
+            for (Player q : players) {
+                GameEngine.existsPath(q, board);
+                graph.buildPath(board, q);
+                Position.fromBoard(board, p.getPlayerNo())
+                        .distance(q.getPlayerNo());
+            }
+
+            String move = (ai == null) ? null
+                : ai.getMove(board, p, System.currentTimeMillis() + THINK);
+            if (move == null || GameEngine.validate(board, p, move) == null) {
+                // no AI, or it got confused: walk the referee's path
+                Square [] path = graph.buildPath(board, p);
+                if (path == null || path.length == 0) {
+                    break;
+                }
+                move = path[0].toString();
+                if (GameEngine.validate(board, p, move) == null) {
+                    break;  // someone is in the way; good enough
+                }
+            }
+            GameEngine.playTurn(move, p, board);
+            if (ai != null) {
+                ai.moveMade(board, p, Move.parse(move));
+            }
+            if (GameEngine.getWinner(board, players) != null) {
+                break;
+            }
+            players = board.getNextTurn(players);
+        }
+        if (ai != null) {
+            ai.stopPondering();
+            ai.reset();
+        }
+        return turn;
+    }
+}
@@ -0,0 +1,286 @@
+/* AlphaBeta.java - CIS405 - teams
+ * ____________________________________________________________________________
+ *
+ * Two-player search engine: iterative deepening negamax with alpha-beta
+ *   pruning, a transposition table and the MoveOrdering heuristics. Inside
+ *   the tree only relevant walls are generated (see MoveGenerator); at the
+ *   root every wall is considered, relevant ones first.
+ *
+ * The engine works on its own copy of the Position, so the caller's copy is
+ *   left alone. Killers, history and the table are kept between calls to
+ *   search, which is where most of their value comes from.
+ *
+ * Searches run against a deadline (a System.currentTimeMillis() value). The
+ *   clock is read every few thousand nodes; once the deadline has passed the
+ *   search unwinds without touching the table and the best move of the
+ *   deepest iteration (or of the unfinished one, if it already found a better
+ *   move) is returned. Another thread may also call stop() to end a search
+ *   early the same way, which is how pondering is interrupted. A node limit
+ *   (setNodeLimit) ends searches the same way after a fixed amount of work,
+ *   which, unlike the clock, gives the same result on any machine.
+ *
+ * --------------------------------- METHODS ----------------------------------
+ *
+ * AlphaBeta(Evaluator)             --> engine with a default size table
+ * int search(Position,int,long)    --> best move (position, depth, deadline)
+ * int getScore()                   --> score of the last search's best move
+ * int getDepth()                   --> depth the last search completed
+ * boolean wasAborted()             --> did the last search hit its deadline
+ * void stop()                      --> asks a running search to stop (any thread)
+ * long getNodes()                  --> nodes visited by the last search
+ * SearchStats getStats()           --> what the last search did
+ * void setNodeLimit(long)          --> stop every search after so many nodes
+ * void reset()                     --> forget everything, e.g. for a new game
+ */
+
+public class AlphaBeta {
+
+    public static final int MAX_DEPTH = 32;
+    private static final int INFINITY = Evaluator.WIN + 1000;
+    private static final int CLOCK_INTERVAL = 1024; // nodes between clock reads
+
+    private final Evaluator eval;
+    private final TranspositionTable table = new TranspositionTable(20);
+    private final MoveOrdering ordering = new MoveOrdering();
+    private final MoveGenerator generator = new MoveGenerator();
+
+    // per ply scratch space so the tree does not allocate
+    private final int [][] moves  = new int[MAX_DEPTH + 1][Move.COUNT];
+    private final int [][] scores = new int[MAX_DEPTH + 1][Move.COUNT];
+    private final int [] field = new int[Move.SQUARES];
+    private final SearchStats stats = new SearchStats();
+
+    private Position pos;
+    private int rootMove;
+    private long deadline;
+    private boolean aborted;
+    private volatile boolean stopRequested;
+    private long nodes;
+    private long nodeLimit;  // 0 for no limit
+    private int score;
+    private int depth;
+
+    public AlphaBeta(Evaluator eval) {
+        this.eval = eval;
+    }
+
+    //*************************************************************************
+
+    /**
+      * Searches a position and returns the best move for the side to move.
+      * Deepens one ply at a time until maxDepth is done, the deadline passes,
+      * or so little time is left that another iteration would not finish.
+      *     @param root the position to search; it is not modified
+      *     @param maxDepth deepest iteration to run
+      *     @param deadline System.currentTimeMillis() value to stop by
+      *     @return the best move found, or Move.NONE if there is no move
+      */
+    public int search(Position root, int maxDepth, long deadline) {
+        long start = System.currentTimeMillis();
+        this.deadline = deadline;
+        aborted = false;
+        stopRequested = false;
+        pos = new Position(root);
+        nodes = 0;
+        depth = 0;
+        ordering.age();
+        table.newSearch();
+        stats.clear();
+        long probes = table.probes();
+        long hits = table.hits();
+        long collisions = table.collisions();
+        long lastIteration = 0;
+
+        int best = Move.NONE;
+        for (int d = 1; d <= Math.min(maxDepth, MAX_DEPTH); d++) {
+            long before = nodes;
+            int s = searchRoot(d);
+            if (rootMove != Move.NONE)
+                best = rootMove;
+            if (aborted)
+                break;
+            score = s;
+            depth = d;
+            if (lastIteration > 0) {
+                stats.ebfs = (double) (nodes - before) / lastIteration;
+                stats.ebfCount = 1;
+            }
+            lastIteration = nodes - before;
+            long now = System.currentTimeMillis();
+            // the next iteration usually takes several times as long
+            if (Math.abs(s) > Evaluator.WIN - MAX_DEPTH
+                || (now - start) * 3 > deadline - now)
+                break;
+        }
+        stats.searches = 1;
+        stats.nodes = nodes;
+        stats.millis = System.currentTimeMillis() - start;
+        stats.depths = depth;
+        stats.ttProbes = table.probes() - probes;
+        stats.ttHits = table.hits() - hits;
+        stats.ttCollisions = table.collisions() - collisions;
+        return best;
+    }
+
+    /**
+      * Returns if the last search ran out of time before finishing its
+      * final iteration.
+      *     @return true if the search was cut short
+      */
+    public boolean wasAborted() {
+        return aborted;
+    }
+
+    /**
+      * Asks the running search, if any, to stop as if its deadline had
+      * passed. A search started after this call is not affected.
+      */
+    public void stop() {
+        stopRequested = true;
+    }
+
+    public int getScore()  { return score; }
+    public int getDepth()  { return depth; }
+    public long getNodes() { return nodes; }
+    public SearchStats getStats() { return stats; }
+
+    /**
+      * Limits every search to a number of nodes, on top of the deadline. A
+      * search with a node limit and no deadline plays the same move on any
+      * machine, as long as the engine has seen the same positions before.
+      *     @param limit nodes per search, 0 for no limit
+      */
+    public void setNodeLimit(long limit) {
+        nodeLimit = limit;
+    }
+
+    /**
+      * Forgets the table, killers and history.
+      */
+    public void reset() {
+        table.clear();
+        ordering.clear();
+    }
+
+    //*************************************************************************
+
+    private int searchRoot(int d) {
+        rootMove = Move.NONE;
+        return negamax(d, -INFINITY, INFINITY, 0);
+    }
+
+    private int negamax(int d, int alpha, int beta, int ply) {
+        if (++nodes % CLOCK_INTERVAL == 0
+            && (stopRequested || System.currentTimeMillis() > deadline))
+            aborted = true;
+        if (nodeLimit > 0 && nodes > nodeLimit)
+            aborted = true;
+        if (aborted)
+            return 0;
+        if (pos.winner() >= 0)
+            return -(Evaluator.WIN - ply);  // the previous mover won
+        int seat = pos.toMove();
+        if (d == 0 || ply >= MAX_DEPTH) {
+            long t = System.nanoTime();
+            int s = eval.evaluate(pos, seat);
+            stats.evalNanos += System.nanoTime() - t;
+            return s;
+        }
+
+        int alphaOrig = alpha;
+        long entry = table.probe(pos.key());
+        int hashMove = Move.NONE;
+        if (entry != 0) {
+            hashMove = TranspositionTable.move(entry);
+            if (ply > 0 && TranspositionTable.depth(entry) >= d) {
+                int s = fromTable(TranspositionTable.score(entry), ply);
+                int bound = TranspositionTable.bound(entry);
+                if (bound == TranspositionTable.EXACT
+                    || (bound == TranspositionTable.LOWER && s >= beta)
+                    || (bound == TranspositionTable.UPPER && s <= alpha))
+                    return s;
+            }
+        }
+
+        int [] list = moves[ply];
+        int [] order = scores[ply];
+        long t = System.nanoTime();
+        int n = generator.generate(pos, (ply == 0) ? MoveGenerator.ALL
+                                                   : MoveGenerator.RELEVANT,
+                                   list);
+        pos.distanceField(seat, field);
+        ordering.score(list, order, n, ply, seat, hashMove, field,
+                       opponentTargets(seat));
+        stats.genNanos += System.nanoTime() - t;
+
+        int bestScore = -INFINITY;
+        int bestMove = Move.NONE;
+        for (int i = 0; i < n; i++) {
+            int m = MoveOrdering.pickNext(list, order, i, n);
+            pos.make(m);
+            if (Move.isWall(m) && pos.wallMayBlock(m) && !pathsExist()) {
+                pos.unmake();
+                continue;  // this wall would cut someone off
+            }
+            int s = -negamax(d - 1, -beta, -alpha, ply + 1);
+            pos.unmake();
+            if (aborted)
+                return 0;  // s is meaningless, leave everything as it was
+            if (s > bestScore) {
+                bestScore = s;
+                bestMove = m;
+                if (ply == 0)
+                    rootMove = m;
+            }
+            if (s > alpha)
+                alpha = s;
+            if (alpha >= beta) {
+                ordering.cutoff(ply, seat, m, d);
+                break;
+            }
+        }
+        if (bestMove == Move.NONE)
+            return -(Evaluator.WIN - ply);  // no legal move: booted
+
+        int bound = (bestScore <= alphaOrig) ? TranspositionTable.UPPER
+                  : (bestScore >= beta)      ? TranspositionTable.LOWER
+                                             : TranspositionTable.EXACT;
+        table.store(pos.key(), bestMove, toTable(bestScore, ply), d, bound);
+        return bestScore;
+    }
+
+    // pos.pathsExist(), timed
+    private boolean pathsExist() {
+        long t = System.nanoTime();
+        boolean ok = pos.pathsExist();
+        stats.pathNanos += System.nanoTime() - t;
+        return ok;
+    }
+
+    // wall slots on the shortest paths of everyone but the seat
+    private long [] opponentTargets(int seat) {
+        long [] targets = new long[2];
+        for (int s = 0; s < pos.numPlayers(); s++) {
+            if (s == seat || !pos.isActive(s))
+                continue;
+            long [] cut = pos.pathBlockers(s);
+            targets[0] |= cut[0];
+            targets[1] |= cut[1];
+        }
+        return targets;
+    }
+
+    // win scores depend on the ply; the table stores them relative to the
+    // node so they stay right when the position comes up at another ply
+    private static int toTable(int s, int ply) {
+        if (s > Evaluator.WIN - 1000)  return s + ply;
+        if (s < -Evaluator.WIN + 1000) return s - ply;
+        return s;
+    }
+
+    private static int fromTable(int s, int ply) {
+        if (s > Evaluator.WIN - 1000)  return s - ply;
+        if (s < -Evaluator.WIN + 1000) return s + ply;
+        return s;
+    }
+}
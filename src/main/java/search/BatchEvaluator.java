@@ -0,0 +1,366 @@
+/* BatchEvaluator.java - CIS405 - teams
+ * ____________________________________________________________________________
+ *
+ * Scores many positions in one call, for searches that collect their leaves
+ *   before evaluating them (Monte Carlo playouts, parallel alpha-beta). Every
+ *   score is exactly what Evaluator.evaluate() gives for the side to move.
+ *
+ * A Position is several kilobytes, most of it undo stack and search scratch,
+ *   so a batch is kept encoded instead: three longs per position,
+ *
+ *      long  hWalls            --> horizontal wall slots
+ *      long  vWalls            --> vertical wall slots
+ *      long  state             --> pawns, walls in hand, turn (see encode())
+ *
+ *   and all the searching happens in the same few arrays, one set per
+ *   thread. Distances come from a flood fill that keeps the board as nine
+ *   row masks, so a whole ring of squares is reached with a handful of
+ *   shifts and ands per row instead of a queue. Only if path multiplicity is
+ *   weighed does a seat get a full breadth first search out from its goal
+ *   edge, which yields the distance field multiplicity needs.
+ *
+ * With more than one thread, a batch is cut into one slice per thread and
+ *   the slices are scored at the same time. Small batches are not worth the
+ *   hand-off and are scored on the calling thread.
+ *
+ * --------------------------------- METHODS ----------------------------------
+ *
+ * BatchEvaluator(Evaluator,int)    --> scores like the evaluator, on threads
+ * void evaluate(long[],int,int[])  --> scores encoded positions
+ * void evaluate(Position[],int,int[]) --> scores positions
+ * void encode(Position,long[],int) --> writes a position into a batch
+ * Position decode(long[],int)      --> reads a position back out
+ * void shutdown()                  --> stops the threads
+ */
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public class BatchEvaluator {
+
+    public static final int LONGS = 3;         // longs per encoded position
+    private static final int MIN_SLICE = 64;   // smaller slices stay home
+
+    // state bits: 7 per pawn (NO_PAWN if booted), 5 per hand, then the rest
+    private static final int NO_PAWN = 127;
+    private static final int HAND_SHIFT = 28;
+    private static final int TURN_SHIFT = 48;
+    private static final int PLAYERS_SHIFT = 50;
+
+    private final int [] weights;
+    private final ExecutorService pool;  // null on a single thread
+    private final int threads;
+    private final Scratch [] scratch;
+    private long [] encoded = new long[0];  // for evaluate(Position[]...)
+
+    /**
+      * Makes a batch evaluator.
+      *     @param eval evaluator whose weights to use
+      *     @param threads number of threads to score on, 1 for the caller's
+      */
+    public BatchEvaluator(Evaluator eval, int threads) {
+        if (threads < 1)
+            throw new IllegalArgumentException("need a thread");
+        this.weights = eval.getWeights();
+        this.threads = threads;
+        this.pool = (threads > 1) ? Executors.newFixedThreadPool(threads)
+                                  : null;
+        scratch = new Scratch[threads];
+        for (int t = 0; t < threads; t++)
+            scratch[t] = new Scratch();
+    }
+
+    // search space for one thread
+    private static class Scratch {
+        final int [] right = new int[GameBoard.COLUMNS];    // walls east of x
+        final int [] down = new int[GameBoard.COLUMNS - 1]; // walls below x
+        final int [] frontier = new int[GameBoard.COLUMNS];
+        final int [] next = new int[GameBoard.COLUMNS];
+        final int [] reached = new int[GameBoard.COLUMNS];
+        final int [] queue = new int[Move.SQUARES];
+        final int [][] field = new int[Position.MAX_PLAYERS][Move.SQUARES];
+        final int [] dist = new int[Position.MAX_PLAYERS];
+    }
+
+    //*************************************************************************
+
+    /**
+      * Scores encoded positions, each for its side to move.
+      *     @param batch count * LONGS longs written by encode()
+      *     @param count number of positions
+      *     @param out array of at least count scores to fill
+      */
+    public void evaluate(final long [] batch, int count, final int [] out) {
+        int slices = Math.min(threads, count / MIN_SLICE);
+        if (slices <= 1) {
+            score(batch, 0, count, out, scratch[0]);
+            return;
+        }
+        List<Future<Object>> done = new ArrayList<Future<Object>>();
+        for (int t = 0; t < slices; t++) {
+            final int from = (int) ((long) count * t / slices);
+            final int to = (int) ((long) count * (t + 1) / slices);
+            final Scratch mine = scratch[t];
+            done.add(pool.submit(new Callable<Object>() {
+                public Object call() {
+                    score(batch, from, to, out, mine);
+                    return null;
+                }
+            }));
+        }
+        for (Future<Object> f : done) {
+            try {
+                f.get();
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            } catch (ExecutionException e) {
+                throw new RuntimeException(e.getCause());
+            }
+        }
+    }
+
+    /**
+      * Scores positions, each for its side to move.
+      *     @param batch the positions
+      *     @param count number of positions
+      *     @param out array of at least count scores to fill
+      */
+    public void evaluate(Position [] batch, int count, int [] out) {
+        if (encoded.length < count * LONGS)
+            encoded = new long[count * LONGS];
+        for (int i = 0; i < count; i++)
+            encode(batch[i], encoded, i);
+        evaluate(encoded, count, out);
+    }
+
+    /**
+      * Stops the threads, if there are any. The evaluator must not be used
+      * afterwards.
+      */
+    public void shutdown() {
+        if (pool != null)
+            pool.shutdown();
+    }
+
+    //*************************************************************************
+
+    /**
+      * Writes a position into a batch.
+      *     @param pos the position
+      *     @param batch the batch
+      *     @param index where in the batch, counted in positions
+      */
+    public static void encode(Position pos, long [] batch, int index) {
+        long state = 0;
+        for (int s = 0; s < Position.MAX_PLAYERS; s++) {
+            long pawn = pos.isActive(s) ? pos.pawn(s) : NO_PAWN;
+            state |= pawn << (7 * s);
+            state |= (long) pos.wallsLeft(s) << (HAND_SHIFT + 5 * s);
+        }
+        state |= (long) pos.toMove() << TURN_SHIFT;
+        state |= (long) pos.numPlayers() << PLAYERS_SHIFT;
+        batch[LONGS * index] = pos.hWalls();
+        batch[LONGS * index + 1] = pos.vWalls();
+        batch[LONGS * index + 2] = state;
+    }
+
+    /**
+      * Reads a position back out of a batch.
+      *     @param batch the batch
+      *     @param index where in the batch, counted in positions
+      *     @return a new Position
+      */
+    public static Position decode(long [] batch, int index) {
+        long state = batch[LONGS * index + 2];
+        int [] pawns = new int[Position.MAX_PLAYERS];
+        int [] walls = new int[Position.MAX_PLAYERS];
+        for (int s = 0; s < Position.MAX_PLAYERS; s++) {
+            pawns[s] = pawn(state, s);
+            walls[s] = (int) (state >>> (HAND_SHIFT + 5 * s)) & 31;
+        }
+        return new Position((int) (state >>> PLAYERS_SHIFT) & 7, pawns, walls,
+                            batch[LONGS * index], batch[LONGS * index + 1],
+                            (int) (state >>> TURN_SHIFT) & 3);
+    }
+
+    private static int pawn(long state, int seat) {
+        int sq = (int) (state >>> (7 * seat)) & 127;
+        return (sq == NO_PAWN) ? -1 : sq;
+    }
+
+    //*************************************************************************
+
+    // scores positions [from, to) of a batch with one set of scratch arrays
+    private void score(long [] batch, int from, int to, int [] out,
+                       Scratch sc) {
+        for (int i = from; i < to; i++) {
+            long h = batch[LONGS * i];
+            long v = batch[LONGS * i + 1];
+            long state = batch[LONGS * i + 2];
+            int numPlayers = (int) (state >>> PLAYERS_SHIFT) & 7;
+            int seat = (int) (state >>> TURN_SHIFT) & 3;
+
+            boolean fields = weights[Evaluator.MULTIPLICITY] != 0;
+            if (!fields)
+                rows(h, v, sc);
+            for (int s = 0; s < numPlayers; s++) {
+                int sq = pawn(state, s);
+                sc.dist[s] = (sq < 0) ? -1
+                           : fields ? fill(h, v, s, sq, sc)
+                                    : flood(s, sq, sc);
+            }
+            int best = Integer.MAX_VALUE;
+            int rival = -1;
+            int theirWalls = 0;
+            for (int s = 0; s < numPlayers; s++) {
+                if (s == seat || sc.dist[s] < 0)
+                    continue;
+                if (sc.dist[s] < best) {
+                    best = sc.dist[s];
+                    rival = s;
+                }
+                theirWalls = Math.max(theirWalls, hand(state, s));
+            }
+            if (rival < 0) {
+                out[i] = Evaluator.WIN;  // nobody else is left
+                continue;
+            }
+            int score = weights[Evaluator.PATH] * (best - sc.dist[seat])
+                      + weights[Evaluator.WALLS] * (hand(state, seat)
+                                                    - theirWalls)
+                      + weights[Evaluator.TEMPO];
+            if (weights[Evaluator.MULTIPLICITY] != 0)
+                score += weights[Evaluator.MULTIPLICITY]
+                       * (multiplicity(h, v, state, seat, sc)
+                          - multiplicity(h, v, state, rival, sc));
+            if (weights[Evaluator.MOBILITY] != 0)
+                score += weights[Evaluator.MOBILITY]
+                       * (mobility(h, v, pawn(state, seat))
+                          - mobility(h, v, pawn(state, rival)));
+            out[i] = score;
+        }
+    }
+
+    private static int hand(long state, int seat) {
+        return (int) (state >>> (HAND_SHIFT + 5 * seat)) & 31;
+    }
+
+    // row masks of the walls: bit x of right[y] is set if a wall stops a
+    // step east from (x,y), bit x of down[y] if one stops a step south
+    private static void rows(long h, long v, Scratch sc) {
+        int above = 0;
+        for (int y = 0; y < GameBoard.COLUMNS; y++) {
+            int vRow = (y < 8) ? (int) (v >>> (8 * y)) & 0xFF : 0;
+            sc.right[y] = vRow | above;
+            above = vRow;
+            if (y < 8) {
+                int hRow = (int) (h >>> (8 * y)) & 0xFF;
+                sc.down[y] = hRow | (hRow << 1);
+            }
+        }
+    }
+
+    // steps from a pawn to the seat's goal, ignoring pawns, or -1; every
+    // round moves the whole frontier one step in all four directions
+    private static int flood(int seat, int pawn, Scratch sc) {
+        final int full = (1 << GameBoard.COLUMNS) - 1;
+        int [] frontier = sc.frontier;
+        int [] next = sc.next;
+        int [] reached = sc.reached;
+        java.util.Arrays.fill(frontier, 0);
+        frontier[pawn / GameBoard.COLUMNS] = 1 << (pawn % GameBoard.COLUMNS);
+        System.arraycopy(frontier, 0, reached, 0, GameBoard.COLUMNS);
+        for (int d = 0; ; d++) {
+            if (atGoal(seat, frontier))
+                return d;
+            int any = 0;
+            for (int y = 0; y < GameBoard.COLUMNS; y++) {
+                int r = frontier[y];
+                int grow = ((r & ~sc.right[y]) << 1)
+                         | ((r >>> 1) & ~sc.right[y]);
+                if (y > 0)
+                    grow |= frontier[y - 1] & ~sc.down[y - 1];
+                if (y < 8)
+                    grow |= frontier[y + 1] & ~sc.down[y];
+                next[y] = grow & full & ~reached[y];
+                any |= next[y];
+            }
+            if (any == 0)
+                return -1;
+            for (int y = 0; y < GameBoard.COLUMNS; y++) {
+                reached[y] |= next[y];
+                frontier[y] = next[y];
+            }
+        }
+    }
+
+    // does the frontier touch the seat's goal edge
+    private static boolean atGoal(int seat, int [] frontier) {
+        switch (seat) {
+            case 0:  return frontier[8] != 0;
+            case 1:  return frontier[0] != 0;
+            default:
+                int bit = (seat == 2) ? 1 << 8 : 1;
+                for (int y = 0; y < GameBoard.COLUMNS; y++)
+                    if ((frontier[y] & bit) != 0)
+                        return true;
+                return false;
+        }
+    }
+
+    // distance to the seat's goal from every square, searching out from the
+    // goal edge; returns the distance from the pawn's square
+    private static int fill(long h, long v, int seat, int pawn, Scratch sc) {
+        int [] field = sc.field[seat];
+        int [] queue = sc.queue;
+        int head = 0, tail = 0;
+        for (int sq = 0; sq < Move.SQUARES; sq++) {
+            if (Position.atGoal(seat, sq)) {
+                field[sq] = 0;
+                queue[tail++] = sq;
+            } else {
+                field[sq] = Position.UNREACHABLE;
+            }
+        }
+        while (head < tail) {
+            int sq = queue[head++];
+            for (int dir = 0; dir < 4; dir++) {
+                if (!Position.canStep(h, v, sq, dir))
+                    continue;
+                int to = sq + Position.STEP[dir];
+                if (field[to] != Position.UNREACHABLE)
+                    continue;
+                field[to] = field[sq] + 1;
+                queue[tail++] = to;
+            }
+        }
+        return field[pawn];
+    }
+
+    // directions from the seat's pawn that start a shortest path
+    private static int multiplicity(long h, long v, long state, int seat,
+                                    Scratch sc) {
+        int [] field = sc.field[seat];
+        int sq = pawn(state, seat);
+        int n = 0;
+        for (int dir = 0; dir < 4; dir++)
+            if (Position.canStep(h, v, sq, dir)
+                && field[sq + Position.STEP[dir]] == field[sq] - 1)
+                n++;
+        return n;
+    }
+
+    // directions from a pawn that are not walled off
+    private static int mobility(long h, long v, int sq) {
+        int n = 0;
+        for (int dir = 0; dir < 4; dir++)
+            if (Position.canStep(h, v, sq, dir))
+                n++;
+        return n;
+    }
+}
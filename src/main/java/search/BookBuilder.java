@@ -0,0 +1,114 @@
+/* BookBuilder.java - CIS405 - teams
+ * ____________________________________________________________________________
+ *
+ * Offline tool that makes an OpeningBook by self-play. It plays two-player
+ *   games from the starting position with the search engine on both sides
+ *   and records the move it chose in every position of the first few plies.
+ *   So that the games do not all come out the same, now and then a side
+ *   plays a random pawn move that keeps it on a shortest path instead.
+ *
+ *      java BookBuilder <file> [games] [plies] [ms per move]
+ *
+ * A position that comes up again is searched again, and the deeper of the
+ *   two results is kept. This takes a while: games * plies * ms at most.
+ *
+ * --------------------------------- METHODS ----------------------------------
+ *
+ * void main(String[])              --> builds a book file
+ */
+
+import java.io.IOException;
+
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+public class BookBuilder {
+
+    private static final int DEFAULT_GAMES = 40;
+    private static final int DEFAULT_PLIES = 12;
+    private static final long DEFAULT_TIME = 1000;
+    private static final int SEARCH_DEPTH = 16;
+    private static final int DEVIATE = 4;  // 1 in DEVIATE moves is random
+
+    public static void usage() {
+        System.err.println("usage: java BookBuilder <file> [games] [plies]"
+                           + " [ms per move]");
+        System.exit(1);
+    }
+
+    public static void main(String[] args) {
+        if (args.length < 1)
+            usage();
+        int games = DEFAULT_GAMES;
+        int plies = DEFAULT_PLIES;
+        long time = DEFAULT_TIME;
+        try {
+            if (args.length > 1) games = Integer.parseInt(args[1]);
+            if (args.length > 2) plies = Integer.parseInt(args[2]);
+            if (args.length > 3) time = Long.parseLong(args[3]);
+        } catch (NumberFormatException e) {
+            usage();
+        }
+
+        // key --> { move, score, depth }
+        Map<Long, int []> book = new TreeMap<Long, int []>();
+        AlphaBeta engine = new AlphaBeta(new Evaluator());
+        Random rand = new Random(405);
+        int [] moves = new int[Move.COUNT];
+        int [] field = new int[Move.SQUARES];
+
+        for (int game = 0; game < games; game++) {
+            Position pos = new Position(2);
+            for (int ply = 0; ply < plies && pos.winner() < 0; ply++) {
+                int move = engine.search(pos, SEARCH_DEPTH,
+                                         System.currentTimeMillis() + time);
+                if (move == Move.NONE)
+                    break;
+                // stored as the side to move sees it, see OpeningBook
+                int seat = pos.toMove();
+                long key = OpeningBook.keyOf(pos);
+                int [] old = book.get(key);
+                if (old == null || old[2] < engine.getDepth())
+                    book.put(key, new int [] {
+                        SeatTransform.move(seat, move), engine.getScore(),
+                        engine.getDepth() });
+                else
+                    move = SeatTransform.moveBack(seat, old[0]);
+
+                if (rand.nextInt(DEVIATE) == 0) {
+                    // any pawn move that does not lengthen the path
+                    pos.distanceField(seat, field);
+                    int n = pos.pawnMoves(moves, 0);
+                    int k = 0;
+                    for (int i = 0; i < n; i++)
+                        if (field[moves[i]] < field[pos.pawn(seat)])
+                            moves[k++] = moves[i];
+                    if (k > 0)
+                        move = moves[rand.nextInt(k)];
+                }
+                pos.make(move);
+            }
+            System.out.println("game " + (game + 1) + " of " + games
+                               + ", " + book.size() + " positions");
+        }
+
+        long [] keys = new long[book.size()];
+        int [] bookMoves = new int[book.size()];
+        int [] scores = new int[book.size()];
+        int i = 0;
+        for (Map.Entry<Long, int []> e : book.entrySet()) {
+            keys[i] = e.getKey();
+            bookMoves[i] = e.getValue()[0];
+            scores[i] = e.getValue()[1];
+            i++;
+        }
+        try {
+            OpeningBook.write(args[0], keys, bookMoves, scores, i);
+        } catch (IOException e) {
+            System.err.println("could not write " + args[0] + ": " + e);
+            System.exit(2);
+        }
+        System.out.println("wrote " + i + " positions to " + args[0]);
+    }
+}
@@ -0,0 +1,262 @@
+/* Evaluator.java - CIS405 - teams
+ * ____________________________________________________________________________
+ *
+ * Static evaluation of a Position from one seat's point of view. The score
+ *   is mostly the race: how many steps the best opponent needs minus how
+ *   many steps we need. Walls in hand are worth something too, since every
+ *   wall can still cost an opponent a few steps later on. Two more terms are
+ *   off unless a weights file turns them on: path multiplicity (how many
+ *   directions lead on along a shortest path, so one wall cannot cost all
+ *   of them) and mobility (how many directions are not walled off).
+ *
+ * Weights are in hundredths of a step. An Evaluator made without weights
+ *   takes the defaults, which MoveServer can replace from a file written by
+ *   Tuner (--weights). The file is a properties file with one line per
+ *   feature, e.g. "walls=40"; features it leaves out keep their default.
+ *   Features whose weight is 0 are not computed at all, so the untuned
+ *   evaluation costs what it always did.
+ *
+ * An Evaluator keeps scratch space, so every searching thread needs its own.
+ *
+ * Scores near WIN mean a won game; the search subtracts the ply so a faster
+ *   win scores higher.
+ *
+ * With more than two players there is no single opponent, so MaxNSearch asks
+ *   for a vector instead: one share of TOTAL per seat, in proportion to how
+ *   well each seat is doing. The shares never go below zero and never add up
+ *   to more than TOTAL, which is what lets max-n prune at all.
+ *
+ * --------------------------------- METHODS ----------------------------------
+ *
+ * Evaluator()                 --> evaluator with the default weights
+ * Evaluator(int[])            --> evaluator with the given weights
+ * int evaluate(Position,int)  --> score of the position for the seat
+ * void features(Position,int,int[]) --> the terms evaluate() weighs
+ * void evaluateAll(Position,int[]) --> share of TOTAL for every seat
+ * int[] getWeights()          --> copy of the weights
+ * void setDefaults(int[])     --> weights for evaluators made from now on
+ * int[] load(String)          --> reads a weights file
+ * void save(String,int[],String) --> writes a weights file
+ */
+
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import java.util.Properties;
+
+public class Evaluator {
+
+    public static final int WIN = 100000;
+    public static final int TOTAL = 10000;  // sum of an evaluateAll vector
+
+    // features, also the order of weight arrays
+    public static final int PATH = 0;          // best opponent's path - mine
+    public static final int WALLS = 1;         // my walls - most of theirs
+    public static final int TEMPO = 2;         // 1 to move, -1 otherwise
+    public static final int MULTIPLICITY = 3;  // my shortest ways on - theirs
+    public static final int MOBILITY = 4;      // my open directions - theirs
+    public static final int FEATURES = 5;
+    public static final String [] NAMES = { "path", "walls", "tempo",
+                                            "multiplicity", "mobility" };
+
+    private static int [] defaults = { 100, 40, 50, 0, 0 };
+
+    // weights in hundredths of a step
+    private final int [] weights;
+    private final int [] field = new int[Move.SQUARES];
+
+    /**
+      * Makes an evaluator with the default weights.
+      */
+    public Evaluator() {
+        this(defaults);
+    }
+
+    /**
+      * Makes an evaluator with the given weights.
+      *     @param weights FEATURES weights, in hundredths of a step
+      */
+    public Evaluator(int [] weights) {
+        if (weights.length != FEATURES)
+            throw new IllegalArgumentException("need " + FEATURES + " weights");
+        this.weights = weights.clone();
+    }
+
+    //*************************************************************************
+
+    /**
+      * Scores a position for a seat. The position must not be won yet.
+      *     @param pos the position
+      *     @param seat the seat to score for
+      *     @return positive if the seat is ahead
+      */
+    public int evaluate(Position pos, int seat) {
+        int mine = pos.distance(seat);
+        int best = Integer.MAX_VALUE;
+        int rival = -1;
+        int theirWalls = 0;
+        for (int s = 0; s < pos.numPlayers(); s++) {
+            if (s == seat || !pos.isActive(s))
+                continue;
+            int d = pos.distance(s);
+            if (d < best) {
+                best = d;
+                rival = s;
+            }
+            theirWalls = Math.max(theirWalls, pos.wallsLeft(s));
+        }
+        if (rival < 0)
+            return WIN;  // nobody else is left
+        int score = weights[PATH] * (best - mine)
+                  + weights[WALLS] * (pos.wallsLeft(seat) - theirWalls);
+        if (weights[MULTIPLICITY] != 0)
+            score += weights[MULTIPLICITY] * (multiplicity(pos, seat)
+                                              - multiplicity(pos, rival));
+        if (weights[MOBILITY] != 0)
+            score += weights[MOBILITY] * (mobility(pos, seat)
+                                          - mobility(pos, rival));
+        return (pos.toMove() == seat) ? score + weights[TEMPO]
+                                      : score - weights[TEMPO];
+    }
+
+    /**
+      * Fills in the terms evaluate() weighs, for the tuner. The position must
+      * not be won yet and must have another seat in it.
+      *     @param pos the position
+      *     @param seat the seat to score for
+      *     @param out array of at least FEATURES entries
+      */
+    public void features(Position pos, int seat, int [] out) {
+        int best = Integer.MAX_VALUE;
+        int rival = -1;
+        int theirWalls = 0;
+        for (int s = 0; s < pos.numPlayers(); s++) {
+            if (s == seat || !pos.isActive(s))
+                continue;
+            int d = pos.distance(s);
+            if (d < best) {
+                best = d;
+                rival = s;
+            }
+            theirWalls = Math.max(theirWalls, pos.wallsLeft(s));
+        }
+        out[PATH] = best - pos.distance(seat);
+        out[WALLS] = pos.wallsLeft(seat) - theirWalls;
+        out[TEMPO] = (pos.toMove() == seat) ? 1 : -1;
+        out[MULTIPLICITY] = multiplicity(pos, seat) - multiplicity(pos, rival);
+        out[MOBILITY] = mobility(pos, seat) - mobility(pos, rival);
+    }
+
+    // directions from the seat's pawn that start a shortest path
+    private int multiplicity(Position pos, int seat) {
+        int d = pos.distanceField(seat, field);
+        int sq = pos.pawn(seat);
+        int n = 0;
+        for (int dir = 0; dir < 4; dir++)
+            if (pos.canStep(sq, dir) && field[sq + Position.STEP[dir]] == d - 1)
+                n++;
+        return n;
+    }
+
+    // directions from the seat's pawn that are not walled off
+    private static int mobility(Position pos, int seat) {
+        int sq = pos.pawn(seat);
+        int n = 0;
+        for (int dir = 0; dir < 4; dir++)
+            if (pos.canStep(sq, dir))
+                n++;
+        return n;
+    }
+
+    /**
+      * Splits TOTAL between the seats. A seat's strength grows with every
+      * step it is closer to the goal than the longest path could be and with
+      * every wall in hand; its share is its part of the total strength.
+      * Booted seats get nothing. The position must not be won yet.
+      *     @param pos the position
+      *     @param out array of at least numPlayers() entries
+      */
+    public void evaluateAll(Position pos, int [] out) {
+        long sum = 0;
+        for (int s = 0; s < pos.numPlayers(); s++) {
+            if (!pos.isActive(s)) {
+                out[s] = 0;
+                continue;
+            }
+            // no negative terms, or a share could drop below zero
+            out[s] = Math.max(1, weights[PATH])
+                       * (Move.SQUARES - pos.distance(s))
+                   + Math.max(0, weights[WALLS]) * pos.wallsLeft(s)
+                   + ((pos.toMove() == s) ? Math.max(0, weights[TEMPO]) : 0);
+            sum += out[s];
+        }
+        for (int s = 0; s < pos.numPlayers(); s++)
+            out[s] = (int) (out[s] * (long) TOTAL / sum);
+    }
+
+    //*************************************************************************
+
+    public int [] getWeights() { return weights.clone(); }
+
+    /**
+      * Sets the weights of evaluators made from now on with Evaluator().
+      *     @param weights FEATURES weights, in hundredths of a step
+      */
+    public static void setDefaults(int [] weights) {
+        if (weights.length != FEATURES)
+            throw new IllegalArgumentException("need " + FEATURES + " weights");
+        defaults = weights.clone();
+    }
+
+    /**
+      * Reads a weights file. Features the file does not mention keep their
+      * default weight.
+      *     @param path file written by save()
+      *     @return FEATURES weights
+      *     @throws IOException if the file cannot be read or has a bad weight
+      */
+    public static int [] load(String path) throws IOException {
+        Properties props = new Properties();
+        InputStream in = new FileInputStream(path);
+        try {
+            props.load(in);
+        } finally {
+            in.close();
+        }
+        int [] weights = defaults.clone();
+        for (int i = 0; i < FEATURES; i++) {
+            String value = props.getProperty(NAMES[i]);
+            if (value == null)
+                continue;
+            try {
+                weights[i] = Integer.parseInt(value.trim());
+            } catch (NumberFormatException e) {
+                throw new IOException(path + ": bad weight for " + NAMES[i]);
+            }
+        }
+        return weights;
+    }
+
+    /**
+      * Writes a weights file.
+      *     @param path file to write
+      *     @param weights FEATURES weights
+      *     @param comment written at the top of the file
+      *     @throws IOException if the file cannot be written
+      */
+    public static void save(String path, int [] weights, String comment)
+            throws IOException {
+        Properties props = new Properties();
+        for (int i = 0; i < FEATURES; i++)
+            props.setProperty(NAMES[i], Integer.toString(weights[i]));
+        OutputStream out = new FileOutputStream(path);
+        try {
+            props.store(out, comment);
+        } finally {
+            out.close();
+        }
+    }
+}
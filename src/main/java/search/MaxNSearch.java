@@ -0,0 +1,363 @@
+/* MaxNSearch.java - CIS405 - teams
+ * ____________________________________________________________________________
+ *
+ * Search engine for games with more than two players, where negamax does not
+ *   apply: what is good for one opponent is not bad for the others. Two
+ *   ways of backing values up are offered.
+ *
+ *   MAX_N    --> every seat plays for itself. Nodes hold a vector with one
+ *                share of Evaluator.TOTAL per seat (Evaluator.evaluateAll)
+ *                and the side to move picks the child best for its share.
+ *   PARANOID --> everybody else is out to get the root seat. That is a two
+ *                sided game again, so ordinary alpha-beta on the root seat's
+ *                share works, and prunes far better than max-n.
+ *
+ * Max-n only allows shallow pruning: the shares add up to at most TOTAL, so
+ *   once the side to move has found a share of at least TOTAL minus what the
+ *   parent's mover is already sure of, the parent will not come here and the
+ *   rest of the node is skipped. Deeper pruning is not valid for max-n.
+ *
+ * A full round is four plies, so depths are counted in plies and the same
+ *   iterative deepening, deadline and stop() handling as AlphaBeta is used.
+ *   There is no transposition table: a stored vector is only good for the
+ *   bound it was searched with, and four-player trees rarely transpose
+ *   within a few plies anyway. Killers and history still order the moves.
+ *   What carries over instead is the last search itself: searching the same
+ *   position again (a ponder hit, say) picks up one ply deeper than the
+ *   last search got, with its best move first, rather than starting over.
+ *
+ * --------------------------------- METHODS ----------------------------------
+ *
+ * MaxNSearch(Evaluator,int)        --> engine backing up MAX_N or PARANOID
+ * int search(Position,int,long)    --> best move (position, depth, deadline)
+ * int getScore()                   --> root seat's share after the best move
+ * int getDepth()                   --> depth the last search completed
+ * boolean wasAborted()             --> did the last search hit its deadline
+ * void stop()                      --> asks a running search to stop (any thread)
+ * long getNodes()                  --> nodes visited by the last search
+ * SearchStats getStats()           --> what the last search did
+ * void setNodeLimit(long)          --> stop every search after so many nodes
+ * void reset()                     --> forget everything, e.g. for a new game
+ */
+
+public class MaxNSearch {
+
+    public static final int MAX_N = 0;
+    public static final int PARANOID = 1;
+
+    public static final int MAX_DEPTH = 16;
+    private static final int CLOCK_INTERVAL = 1024; // nodes between clock reads
+
+    private final Evaluator eval;
+    private final int mode;
+    private final MoveOrdering ordering = new MoveOrdering();
+    private final MoveGenerator generator = new MoveGenerator();
+
+    // per ply scratch space so the tree does not allocate
+    private final int [][] moves  = new int[MAX_DEPTH + 1][Move.COUNT];
+    private final int [][] scores = new int[MAX_DEPTH + 1][Move.COUNT];
+    private final int [][] values = new int[MAX_DEPTH + 2][Position.MAX_PLAYERS];
+    private final int [] field = new int[Move.SQUARES];
+    private final SearchStats stats = new SearchStats();
+
+    private Position pos;
+    private int rootSeat;
+    private int rootMove;
+    private int lastBest;
+    private long lastKey;    // root of the last search, 0 after reset()
+    private long deadline;
+    private boolean aborted;
+    private volatile boolean stopRequested;
+    private long nodes;
+    private long nodeLimit;  // 0 for no limit
+    private int score;
+    private int depth;
+
+    /**
+      * Makes an engine.
+      *     @param eval evaluation to use at the leaves
+      *     @param mode MAX_N or PARANOID
+      */
+    public MaxNSearch(Evaluator eval, int mode) {
+        if (mode != MAX_N && mode != PARANOID)
+            throw new IllegalArgumentException("bad mode " + mode);
+        this.eval = eval;
+        this.mode = mode;
+    }
+
+    //*************************************************************************
+
+    /**
+      * Searches a position and returns the best move for the side to move.
+      * Deepens one ply at a time until maxDepth is done, the deadline passes,
+      * or so little time is left that another iteration would not finish.
+      * If the last search was of the same position, this one goes on from
+      * the depth that one completed.
+      *     @param root the position to search; it is not modified
+      *     @param maxDepth deepest iteration to run
+      *     @param deadline System.currentTimeMillis() value to stop by
+      *     @return the best move found, or Move.NONE if there is no move
+      */
+    public int search(Position root, int maxDepth, long deadline) {
+        long start = System.currentTimeMillis();
+        this.deadline = deadline;
+        aborted = false;
+        stopRequested = false;
+        pos = new Position(root);
+        rootSeat = pos.toMove();
+        nodes = 0;
+        if (root.key() != lastKey || lastBest == Move.NONE) {
+            depth = 0;
+            lastBest = Move.NONE;
+        }
+        lastKey = root.key();
+        ordering.age();
+        stats.clear();
+        long lastIteration = 0;
+
+        int best = lastBest;
+        for (int d = depth + 1; d <= Math.min(maxDepth, MAX_DEPTH); d++) {
+            long before = nodes;
+            rootMove = Move.NONE;
+            int s = (mode == MAX_N) ? maxN(d, Evaluator.TOTAL + 1, 0)
+                                    : paranoid(d, -1, Evaluator.TOTAL + 1, 0);
+            if (rootMove != Move.NONE)
+                best = rootMove;
+            if (aborted)
+                break;
+            lastBest = best;
+            score = s;
+            depth = d;
+            if (lastIteration > 0) {
+                stats.ebfs = (double) (nodes - before) / lastIteration;
+                stats.ebfCount = 1;
+            }
+            lastIteration = nodes - before;
+            long now = System.currentTimeMillis();
+            // a four-player iteration costs even more than the last one
+            if (s >= Evaluator.TOTAL - MAX_DEPTH
+                || (now - start) * 4 > deadline - now)
+                break;
+        }
+        stats.searches = 1;
+        stats.nodes = nodes;
+        stats.millis = System.currentTimeMillis() - start;
+        stats.depths = depth;
+        return best;
+    }
+
+    /**
+      * Returns if the last search ran out of time before finishing its
+      * final iteration.
+      *     @return true if the search was cut short
+      */
+    public boolean wasAborted() {
+        return aborted;
+    }
+
+    /**
+      * Asks the running search, if any, to stop as if its deadline had
+      * passed. A search started after this call is not affected.
+      */
+    public void stop() {
+        stopRequested = true;
+    }
+
+    public int getMode()   { return mode; }
+    public int getScore()  { return score; }
+    public int getDepth()  { return depth; }
+    public long getNodes() { return nodes; }
+    public SearchStats getStats() { return stats; }
+
+    /**
+      * Limits every search to a number of nodes, on top of the deadline. A
+      * search with a node limit and no deadline plays the same move on any
+      * machine, as long as the engine has seen the same positions before.
+      *     @param limit nodes per search, 0 for no limit
+      */
+    public void setNodeLimit(long limit) {
+        nodeLimit = limit;
+    }
+
+    /**
+      * Forgets the killers and history, and the last search.
+      */
+    public void reset() {
+        ordering.clear();
+        lastKey = 0;
+        lastBest = Move.NONE;
+        depth = 0;
+    }
+
+    //*************************************************************************
+
+    // true once the search has to unwind
+    private boolean outOfTime() {
+        if (++nodes % CLOCK_INTERVAL == 0
+            && (stopRequested || System.currentTimeMillis() > deadline))
+            aborted = true;
+        if (nodeLimit > 0 && nodes > nodeLimit)
+            aborted = true;
+        return aborted;
+    }
+
+    // fills values[ply] for a node the search does not expand; returns
+    // false if the node has to be expanded after all
+    private boolean leaf(int d, int ply) {
+        int [] v = values[ply];
+        int winner = pos.winner();
+        if (winner >= 0) {
+            for (int s = 0; s < pos.numPlayers(); s++)
+                v[s] = 0;
+            v[winner] = Evaluator.TOTAL - ply;  // sooner is better
+            return true;
+        }
+        if (d > 0 && ply < MAX_DEPTH)
+            return false;
+        long t = System.nanoTime();
+        eval.evaluateAll(pos, v);
+        stats.evalNanos += System.nanoTime() - t;
+        return true;
+    }
+
+    // generates and orders the moves at a node, returns the count
+    private int moves(int ply, int seat) {
+        int [] list = moves[ply];
+        long t = System.nanoTime();
+        // even at the root: with three opponents the irrelevant walls
+        // cost a ply and are almost never the best move
+        int n = generator.generate(pos, MoveGenerator.RELEVANT, list);
+        pos.distanceField(seat, field);
+        ordering.score(list, scores[ply], n, ply, seat,
+                       (ply == 0) ? lastBest : Move.NONE, field,
+                       opponentTargets(seat));
+        stats.genNanos += System.nanoTime() - t;
+        return n;
+    }
+
+    // makes a move; false (and nothing made) if it is a wall that would
+    // cut somebody off
+    private boolean tryMove(int m) {
+        pos.make(m);
+        if (!Move.isWall(m) || !pos.wallMayBlock(m))
+            return true;
+        long t = System.nanoTime();
+        boolean ok = pos.pathsExist();
+        stats.pathNanos += System.nanoTime() - t;
+        if (!ok)
+            pos.unmake();
+        return ok;
+    }
+
+    /**
+      * Max-n: leaves the vector of the node in values[ply].
+      *     @param d remaining depth
+      *     @param limit share of the side to move at which the parent
+      *                  loses interest in this node
+      *     @param ply distance from the root
+      *     @return the root seat's share
+      */
+    private int maxN(int d, int limit, int ply) {
+        if (outOfTime())
+            return 0;
+        int [] best = values[ply];
+        if (leaf(d, ply))
+            return best[rootSeat];
+        int seat = pos.toMove();
+        int n = moves(ply, seat);
+
+        int [] child = values[ply + 1];
+        int bestMove = Move.NONE;
+        for (int i = 0; i < n; i++) {
+            int m = MoveOrdering.pickNext(moves[ply], scores[ply], i, n);
+            if (!tryMove(m))
+                continue;
+            int bestShare = (bestMove == Move.NONE) ? -1 : best[seat];
+            maxN(d - 1, Evaluator.TOTAL - bestShare, ply + 1);
+            pos.unmake();
+            if (aborted)
+                return 0;
+            if (bestMove == Move.NONE || child[seat] > best[seat]) {
+                System.arraycopy(child, 0, best, 0, pos.numPlayers());
+                bestMove = m;
+                if (ply == 0)
+                    rootMove = m;
+            }
+            if (best[seat] >= limit) {
+                ordering.cutoff(ply, seat, m, d);
+                break;  // shallow cutoff: the parent has something better
+            }
+        }
+        if (bestMove == Move.NONE) {
+            // no legal move: the seat is as good as booted
+            eval.evaluateAll(pos, best);
+            best[seat] = 0;
+        }
+        return best[rootSeat];
+    }
+
+    /**
+      * Paranoid: alpha-beta on the root seat's share, which the root seat
+      * maximizes and everybody else minimizes.
+      *     @param d remaining depth
+      *     @param alpha lower bound
+      *     @param beta upper bound
+      *     @param ply distance from the root
+      *     @return the root seat's share
+      */
+    private int paranoid(int d, int alpha, int beta, int ply) {
+        if (outOfTime())
+            return 0;
+        if (leaf(d, ply))
+            return values[ply][rootSeat];
+        int seat = pos.toMove();
+        boolean max = (seat == rootSeat);
+        int n = moves(ply, seat);
+
+        int bestScore = max ? -1 : Evaluator.TOTAL + 1;
+        int bestMove = Move.NONE;
+        for (int i = 0; i < n; i++) {
+            int m = MoveOrdering.pickNext(moves[ply], scores[ply], i, n);
+            if (!tryMove(m))
+                continue;
+            int s = paranoid(d - 1, alpha, beta, ply + 1);
+            pos.unmake();
+            if (aborted)
+                return 0;
+            if (max ? s > bestScore : s < bestScore) {
+                bestScore = s;
+                bestMove = m;
+                if (ply == 0)
+                    rootMove = m;
+            }
+            if (max)
+                alpha = Math.max(alpha, s);
+            else
+                beta = Math.min(beta, s);
+            if (alpha >= beta) {
+                ordering.cutoff(ply, seat, m, d);
+                break;
+            }
+        }
+        if (bestMove == Move.NONE) {
+            if (max)
+                return 0;  // stuck: as good as booted
+            eval.evaluateAll(pos, values[ply]);
+            return values[ply][rootSeat];
+        }
+        return bestScore;
+    }
+
+    // wall slots on the shortest paths of everyone but the seat
+    private long [] opponentTargets(int seat) {
+        long [] targets = new long[2];
+        for (int s = 0; s < pos.numPlayers(); s++) {
+            if (s == seat || !pos.isActive(s))
+                continue;
+            long [] cut = pos.pathBlockers(s);
+            targets[0] |= cut[0];
+            targets[1] |= cut[1];
+        }
+        return targets;
+    }
+}
@@ -0,0 +1,263 @@
+/* Move.java - CIS405 - teams
+ * ____________________________________________________________________________
+ *
+ * Integer encoding of moves used by the search code. Strings are nice for the
+ *   protocol, but parsing "(IV-D,V-D)" a few million times per second is not,
+ *   so every move fits in an int between 0 and COUNT-1:
+ *
+ *        0 ..  80   --> pawn move; the value is the destination square
+ *       81 .. 144   --> horizontal wall; 81 + slot
+ *      145 .. 208   --> vertical wall; 145 + slot
+ *
+ *   A square is x + 9*y. A wall slot is x + 8*y, where (x,y) is the first
+ *   Square of the wall string, i.e. the left half of a horizontal wall or the
+ *   top half of a vertical wall. Both x and y of a slot are between 0 and 7.
+ *
+ * --------------------------------- METHODS ----------------------------------
+ *
+ * int square(int,int)            --> encodes a square
+ * int pawn(int)                  --> encodes a pawn move to a square
+ * int wall(boolean,int,int)      --> encodes a wall (horizontal?, x, y)
+ * boolean isWall(int)            --> is the move a wall placement
+ * boolean isHorizontal(int)      --> is the move a horizontal wall
+ * int slot(int)                  --> the wall slot of a wall move
+ * String toString(int)           --> protocol string, e.g. V-B or (IV-D,V-D)
+ * int parse(String)              --> protocol string to move, NONE if invalid
+ * int parse(CharSequence,int,int)--> the same for part of a line, no garbage
+ */
+
+public class Move {
+
+    public static final int NONE    = -1;  // no move / unparseable move
+    public static final int SQUARES = GameBoard.COLUMNS * GameBoard.ROWS;
+    public static final int SLOTS   = 64;  // wall slots per orientation
+    public static final int H_BASE  = SQUARES;
+    public static final int V_BASE  = SQUARES + SLOTS;
+    public static final int COUNT   = SQUARES + 2 * SLOTS;
+
+    // every move string is built exactly once
+    private static final String [] strings = new String[COUNT];
+
+    static {
+        for (int m = 0; m < COUNT; m++) {
+            strings[m] = build(m);
+        }
+    }
+
+    private Move() { }
+
+    //*************************************************************************
+
+    /**
+      * Encodes a square.
+      *     @param x column
+      *     @param y row
+      *     @return the square index
+      */
+    public static int square(int x, int y) {
+        return x + GameBoard.COLUMNS * y;
+    }
+
+    /**
+      * Encodes a pawn move.
+      *     @param sq destination square index
+      *     @return the move
+      */
+    public static int pawn(int sq) {
+        return sq;
+    }
+
+    /**
+      * Encodes a wall placement.
+      *     @param horizontal true for a horizontal wall
+      *     @param x column of the first Square of the wall
+      *     @param y row of the first Square of the wall
+      *     @return the move
+      */
+    public static int wall(boolean horizontal, int x, int y) {
+        return (horizontal ? H_BASE : V_BASE) + x + 8 * y;
+    }
+
+    //*************************************************************************
+
+    public static boolean isWall(int move) {
+        return move >= H_BASE;
+    }
+
+    public static boolean isHorizontal(int move) {
+        return move >= H_BASE && move < V_BASE;
+    }
+
+    public static int slot(int move) {
+        return (move >= V_BASE) ? move - V_BASE : move - H_BASE;
+    }
+
+    //*************************************************************************
+
+    /**
+      * Returns the protocol string of a move. The strings are cached, so
+      * calling this costs an array lookup.
+      *     @param move an encoded move
+      *     @return the move string, e.g. V-B or (IV-D,V-D)
+      */
+    public static String toString(int move) {
+        return (move < 0 || move >= COUNT) ? "no-move" : strings[move];
+    }
+
+    /**
+      * Parses a protocol string into a move. Only the syntax is checked;
+      * whether the move is legal is up to Position.
+      *     @param str a move string, e.g. V-B or (IV-D,V-D)
+      *     @return the move, or NONE if the string does not describe one
+      */
+    public static int parse(String str) {
+        str = str.replaceAll("\\s+", "");
+        if (!str.startsWith("(")) {
+            return parseSquare(str);
+        }
+        if (!str.endsWith(")")) {
+            return NONE;
+        }
+        String [] halves = str.substring(1, str.length() - 1).split(",");
+        if (halves.length != 2) {
+            return NONE;
+        }
+        int first  = parseSquare(halves[0]);
+        int second = parseSquare(halves[1]);
+        if (first == NONE || second == NONE) {
+            return NONE;
+        }
+        int x = first % GameBoard.COLUMNS;
+        int y = first / GameBoard.COLUMNS;
+        if (x == 8 || y == 8) {
+            return NONE;
+        }
+        if (second == first + 1) {
+            return wall(true, x, y);
+        }
+        if (second == first + GameBoard.COLUMNS) {
+            return wall(false, x, y);
+        }
+        return NONE;
+    }
+
+    /**
+      * Parses part of a protocol line into a move without making strings,
+      * for the line readers. The usual spellings, with spaces around the
+      * parts, come out as parse(String) has them; for anything stranger
+      * this returns NONE and parse(String) has the last word.
+      *     @param s the line
+      *     @param start first character of the move
+      *     @param end one past its last character
+      *     @return the move, or NONE
+      */
+    public static int parse(CharSequence s, int start, int end) {
+        int i = skipSpaces(s, start, end);
+        boolean wall = (i < end && s.charAt(i) == '(');
+        long first = squareAt(s, wall ? i + 1 : i, end);
+        if (first < 0) {
+            return NONE;
+        }
+        i = (int) first;
+        if (!wall) {
+            return (skipSpaces(s, i, end) == end) ? (int) (first >> 32) : NONE;
+        }
+        i = skipSpaces(s, i, end);
+        if (i == end || s.charAt(i) != ',') {
+            return NONE;
+        }
+        long second = squareAt(s, i + 1, end);
+        if (second < 0) {
+            return NONE;
+        }
+        i = skipSpaces(s, (int) second, end);
+        if (i == end || s.charAt(i) != ')'
+            || skipSpaces(s, i + 1, end) != end) {
+            return NONE;
+        }
+        int a = (int) (first >> 32);
+        int b = (int) (second >> 32);
+        int x = a % GameBoard.COLUMNS;
+        int y = a / GameBoard.COLUMNS;
+        if (x == 8 || y == 8) {
+            return NONE;
+        }
+        if (b == a + 1) {
+            return wall(true, x, y);
+        }
+        if (b == a + GameBoard.COLUMNS) {
+            return wall(false, x, y);
+        }
+        return NONE;
+    }
+
+    //-------------------------------------------------------------------------
+
+    private static int skipSpaces(CharSequence s, int i, int end) {
+        while (i < end && Character.isWhitespace(s.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    // a square such as IV-D at i: the square in the high half, the index
+    // after it in the low half, or -1 if there is none
+    private static long squareAt(CharSequence s, int i, int end) {
+        i = skipSpaces(s, i, end);
+        int j = i;
+        while (j < end && "IVX".indexOf(s.charAt(j)) >= 0) {
+            j++;
+        }
+        int x = -1;
+        for (int n = 0; n < GameBoard.COLUMNS && x < 0; n++) {
+            String numeral = GameEngine.toNumerals(n);
+            if (numeral.length() == j - i) {
+                x = n;
+                for (int k = 0; k < j - i; k++) {
+                    if (numeral.charAt(k) != s.charAt(i + k)) {
+                        x = -1;
+                        break;
+                    }
+                }
+            }
+        }
+        j = skipSpaces(s, j, end);
+        if (x < 0 || j == end || s.charAt(j) != '-') {
+            return -1;
+        }
+        j = skipSpaces(s, j + 1, end);
+        if (j == end || GameEngine.fromLetters(s.charAt(j)) < 0) {
+            return -1;
+        }
+        int y = GameEngine.fromLetters(s.charAt(j));
+        return ((long) square(x, y) << 32) | (j + 1);
+    }
+
+    private static int parseSquare(String str) {
+        String [] parts = str.split("-");
+        if (parts.length != 2 || parts[1].length() != 1) {
+            return NONE;
+        }
+        int x = GameEngine.fromNumerals(parts[0]);
+        int y = GameEngine.fromLetters(parts[1].charAt(0));
+        if (x == -1 || y == -1) {
+            return NONE;
+        }
+        return square(x, y);
+    }
+
+    private static String squareString(int sq) {
+        return GameEngine.toNumerals(sq % GameBoard.COLUMNS) + "-"
+             + GameEngine.toLetters(sq / GameBoard.COLUMNS);
+    }
+
+    private static String build(int move) {
+        if (!isWall(move)) {
+            return squareString(move);
+        }
+        int slot = slot(move);
+        int first = square(slot % 8, slot / 8);
+        int second = isHorizontal(move) ? first + 1 : first + GameBoard.COLUMNS;
+        return "(" + squareString(first) + "," + squareString(second) + ")";
+    }
+}
@@ -0,0 +1,111 @@
+/* MoveGenerator.java - CIS405 - teams
+ * ____________________________________________________________________________
+ *
+ * Staged move generation for the search. Early in the game roughly 130 wall
+ *   slots are open, and almost all of them are pointless. Walls only matter
+ *   if they cut somebody's shortest path or build on walls that are already
+ *   there, so the generator can put those first, or hand out only those.
+ *
+ *   ALL      --> pawn moves, relevant walls, then every other wall that fits
+ *   RELEVANT --> pawn moves and relevant walls only
+ *
+ * Walls are only checked for overlap here. Whether a wall leaves everyone a
+ *   path is checked by the search when (and if) it gets around to the move,
+ *   since most moves are never searched thanks to cutoffs.
+ *
+ * --------------------------------- METHODS ----------------------------------
+ *
+ * int generate(Position,int,int[]) --> writes moves, returns the count
+ * int relevantCount()              --> moves before the irrelevant walls
+ * long[] relevantSlots(Position)   --> {horizontal, vertical} relevant masks
+ */
+
+public class MoveGenerator {
+
+    public static final int ALL = 0;
+    public static final int RELEVANT = 1;
+
+    private int relevantCount;  // pawn moves + relevant walls of last call
+
+    //*************************************************************************
+
+    /**
+      * Writes the moves of the side to move into an array.
+      *     @param pos position to generate moves for
+      *     @param mode ALL or RELEVANT
+      *     @param out array of at least Move.COUNT entries
+      *     @return the number of moves written
+      */
+    public int generate(Position pos, int mode, int [] out) {
+        int n = pos.pawnMoves(out, 0);
+        relevantCount = n;
+        if (pos.wallsLeft(pos.toMove()) == 0)
+            return n;
+
+        long [] relevant = relevantSlots(pos);
+        n = addWalls(pos, Move.H_BASE, relevant[0], out, n);
+        n = addWalls(pos, Move.V_BASE, relevant[1], out, n);
+        relevantCount = n;
+        if (mode == RELEVANT)
+            return n;
+        n = addWalls(pos, Move.H_BASE, ~relevant[0], out, n);
+        n = addWalls(pos, Move.V_BASE, ~relevant[1], out, n);
+        return n;
+    }
+
+    /**
+      * Returns how many of the moves written by the last generate call are
+      * pawn moves or relevant walls; the rest are the other walls.
+      *     @return the index of the first irrelevant wall
+      */
+    public int relevantCount() {
+        return relevantCount;
+    }
+
+    //*************************************************************************
+
+    /**
+      * Returns the wall slots that are worth considering: those touching a
+      * shortest path of any active seat, and those near walls already placed.
+      *     @param pos the position
+      *     @return masks of relevant slots, {horizontal, vertical}
+      */
+    public static long [] relevantSlots(Position pos) {
+        long h = 0, v = 0;
+        for (int s = 0; s < pos.numPlayers(); s++) {
+            if (!pos.isActive(s))
+                continue;
+            long [] cut = pos.pathBlockers(s);
+            h |= cut[0];
+            v |= cut[1];
+        }
+        long near = dilate(pos.hWalls() | pos.vWalls());
+        return new long[] { h | near, v | near };
+    }
+
+    // grows a slot mask by one slot in every direction and two along rows
+    // and columns, which covers every slot whose wall could touch it
+    private static long dilate(long m) {
+        long row = m | east(m) | west(m);
+        long grown = row | north(row) | south(row);
+        return grown | east(east(m)) | west(west(m))
+                     | north(north(m)) | south(south(m));
+    }
+
+    private static long east(long m)  { return (m << 1) & ~Position.FILE_0; }
+    private static long west(long m)  { return (m >>> 1) & ~Position.FILE_7; }
+    private static long north(long m) { return m >>> 8; }
+    private static long south(long m) { return m << 8; }
+
+    private static int addWalls(Position pos, int base, long mask,
+                                int [] out, int n) {
+        while (mask != 0) {
+            int slot = Long.numberOfTrailingZeros(mask);
+            mask &= mask - 1;
+            int move = base + slot;
+            if (pos.wallFits(move))
+                out[n++] = move;
+        }
+        return n;
+    }
+}
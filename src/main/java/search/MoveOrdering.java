@@ -0,0 +1,144 @@
+/* MoveOrdering.java - CIS405 - teams
+ * ____________________________________________________________________________
+ *
+ * Move ordering heuristics for the search. Alpha-beta only prunes well if the
+ *   best move is tried first, and a well ordered tree is the difference
+ *   between depth 3 and depth 6 in the same time. In order of preference:
+ *
+ *   1. the hash move        --> best move found for this position earlier
+ *   2. killer moves         --> moves that caused a cutoff at the same ply
+ *   3. pawn moves that get closer to the goal
+ *   4. walls on the opponent's path, then the rest; both by history score
+ *
+ * History scores count how often (weighted by depth) a move caused a cutoff
+ *   for a seat anywhere in the tree; they are halved between searches so
+ *   old information fades.
+ *
+ * --------------------------------- METHODS ----------------------------------
+ *
+ * void clear()                        --> forget everything
+ * void age()                          --> halve history, clear killers
+ * void cutoff(int,int,int,int)        --> record a cutoff (ply,seat,move,depth)
+ * void score(...)                     --> assign ordering scores to moves
+ * int pickNext(int[],int[],int,int)   --> selection-sort step, returns move
+ */
+
+import java.util.Arrays;
+
+public class MoveOrdering {
+
+    public static final int MAX_PLY = 128;
+
+    private static final int HASH_SCORE   = 1 << 30;
+    private static final int KILLER_SCORE = 1 << 29;
+    private static final int PAWN_SCORE   = 1 << 28;
+    private static final int TARGET_SCORE = 1 << 24;
+    private static final int HISTORY_MAX  = 1 << 22;
+
+    private final int [][] killers = new int[MAX_PLY][2];
+    private final int [][] history = new int[Position.MAX_PLAYERS][Move.COUNT];
+
+    public MoveOrdering() {
+        clear();
+    }
+
+    //*************************************************************************
+
+    /**
+      * Forgets all killers and history, e.g. for a new game.
+      */
+    public void clear() {
+        for (int [] k : killers)
+            Arrays.fill(k, Move.NONE);
+        for (int [] h : history)
+            Arrays.fill(h, 0);
+    }
+
+    /**
+      * Prepares for a new search: killers belong to the old tree and are
+      * dropped, history is halved.
+      */
+    public void age() {
+        for (int [] k : killers)
+            Arrays.fill(k, Move.NONE);
+        for (int [] h : history)
+            for (int i = 0; i < h.length; i++)
+                h[i] >>= 1;
+    }
+
+    /**
+      * Records that a move caused a beta cutoff.
+      *     @param ply distance from the root
+      *     @param seat the seat that made the move
+      *     @param move the move
+      *     @param depth remaining depth at the node
+      */
+    public void cutoff(int ply, int seat, int move, int depth) {
+        if (ply < MAX_PLY && killers[ply][0] != move) {
+            killers[ply][1] = killers[ply][0];
+            killers[ply][0] = move;
+        }
+        int [] h = history[seat];
+        h[move] += depth * depth;
+        if (h[move] > HISTORY_MAX)
+            for (int i = 0; i < h.length; i++)
+                h[i] >>= 1;
+    }
+
+    //*************************************************************************
+
+    /**
+      * Assigns an ordering score to every move.
+      *     @param moves the moves
+      *     @param scores array to receive the scores
+      *     @param n number of moves
+      *     @param ply distance from the root
+      *     @param seat the seat to move
+      *     @param hashMove move from the transposition table or Move.NONE
+      *     @param field distance of each square to the mover's goal
+      *     @param targets {horizontal, vertical} slots on opponents' paths
+      */
+    public void score(int [] moves, int [] scores, int n, int ply, int seat,
+                      int hashMove, int [] field, long [] targets) {
+        for (int i = 0; i < n; i++) {
+            int m = moves[i];
+            int s = history[seat][m];
+            if (m == hashMove) {
+                s = HASH_SCORE;
+            } else if (ply < MAX_PLY && m == killers[ply][0]) {
+                s = KILLER_SCORE;
+            } else if (ply < MAX_PLY && m == killers[ply][1]) {
+                s = KILLER_SCORE - 1;
+            } else if (!Move.isWall(m)) {
+                // closer to the goal is better; stepping back goes last
+                s += PAWN_SCORE - (field[m] << 16);
+            } else {
+                long bit = 1L << Move.slot(m);
+                long mask = Move.isHorizontal(m) ? targets[0] : targets[1];
+                if ((mask & bit) != 0)
+                    s += TARGET_SCORE;
+            }
+            scores[i] = s;
+        }
+    }
+
+    /**
+      * Moves the best scored move among moves[from..n) to index from and
+      * returns it. Calling this for from = 0, 1, 2... walks the moves best
+      * first without sorting the ones a cutoff makes unnecessary.
+      *     @return the move now at index from
+      */
+    public static int pickNext(int [] moves, int [] scores, int from, int n) {
+        int best = from;
+        for (int i = from + 1; i < n; i++)
+            if (scores[i] > scores[best])
+                best = i;
+        int m = moves[best];
+        int s = scores[best];
+        moves[best] = moves[from];
+        scores[best] = scores[from];
+        moves[from] = m;
+        scores[from] = s;
+        return m;
+    }
+}
@@ -0,0 +1,172 @@
+/* OpeningBook.java - CIS405 - teams
+ * ____________________________________________________________________________
+ *
+ * Read-only table of known good moves for early positions, kept in a binary
+ *   file that is memory-mapped instead of read, so opening a big book costs
+ *   nothing and a lookup touches only the few pages the binary search visits.
+ *
+ * The file is big-endian:
+ *
+ *      int   MAGIC             --> "QBK2"
+ *      int   count             --> number of records
+ *      count records of RECORD bytes, sorted by key:
+ *          long  key           --> keyOf() the position
+ *          short move          --> move to play there, in the same view
+ *          short score         --> search score of the move, for the curious
+ *
+ * Positions are stored as the side to move sees them (SeatTransform), so
+ *   both seats of a two-player game share every entry. Keys come from
+ *   Position's Zobrist tables, which are built from a fixed seed, so a book
+ *   stays valid as long as Position's hashing does not change. Books are
+ *   made by BookBuilder.
+ *
+ * --------------------------------- METHODS ----------------------------------
+ *
+ * OpeningBook open(String)         --> maps a book file
+ * long keyOf(Position)             --> book key of a position
+ * int probe(Position)              --> book move for a position, or Move.NONE
+ * int probe(long)                  --> book move for a key, Move.NONE if absent
+ * int score(long)                  --> stored score for a key, 0 if absent
+ * int size()                       --> number of positions in the book
+ * void write(String,long[],int[],int[],int) --> writes a book file
+ */
+
+import java.io.DataOutputStream;
+import java.io.BufferedOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+public class OpeningBook {
+
+    public static final int MAGIC = 0x51424B32;  // "QBK2"
+    public static final int HEADER = 8;
+    public static final int RECORD = 12;
+
+    private final ByteBuffer buf;
+    private final int count;
+
+    private OpeningBook(ByteBuffer buf, int count) {
+        this.buf = buf;
+        this.count = count;
+    }
+
+    /**
+      * Maps a book file into memory.
+      *     @param path file written by write()
+      *     @return the book
+      *     @throws IOException if the file cannot be read or is not a book
+      */
+    public static OpeningBook open(String path) throws IOException {
+        RandomAccessFile file = new RandomAccessFile(path, "r");
+        try {
+            FileChannel channel = file.getChannel();
+            // the mapping stays valid after the channel is closed
+            ByteBuffer buf = channel.map(FileChannel.MapMode.READ_ONLY,
+                                         0, channel.size());
+            if (buf.capacity() < HEADER || buf.getInt(0) != MAGIC)
+                throw new IOException(path + " is not an opening book");
+            int count = buf.getInt(4);
+            if (count < 0 || HEADER + (long) count * RECORD > buf.capacity())
+                throw new IOException(path + " is truncated");
+            return new OpeningBook(buf, count);
+        } finally {
+            file.close();
+        }
+    }
+
+    //*************************************************************************
+
+    /**
+      * Returns the key a position is stored under: the key of the position
+      * as the side to move sees it.
+      *     @param pos the position
+      */
+    public static long keyOf(Position pos) {
+        return SeatTransform.canonical(pos, pos.toMove()).key();
+    }
+
+    /**
+      * Looks up the book move for a position.
+      *     @param pos the position
+      *     @return the move on the real board, or Move.NONE if the position
+      *             is not in the book
+      */
+    public int probe(Position pos) {
+        return SeatTransform.moveBack(pos.toMove(), probe(keyOf(pos)));
+    }
+
+    /**
+      * Looks up the book move stored under a key.
+      *     @param key keyOf() the position
+      *     @return the move as the side to move sees it, or Move.NONE
+      */
+    public int probe(long key) {
+        int i = find(key);
+        return (i < 0) ? Move.NONE : buf.getShort(HEADER + i * RECORD + 8);
+    }
+
+    /**
+      * Returns the score stored with a position's book move.
+      *     @param key keyOf() the position
+      *     @return the score, or 0 if the position is not in the book
+      */
+    public int score(long key) {
+        int i = find(key);
+        return (i < 0) ? 0 : buf.getShort(HEADER + i * RECORD + 10);
+    }
+
+    public int size() { return count; }
+
+    // binary search for a key, -1 if it is not there
+    private int find(long key) {
+        int lo = 0;
+        int hi = count - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            long k = buf.getLong(HEADER + mid * RECORD);
+            if (k < key)
+                lo = mid + 1;
+            else if (k > key)
+                hi = mid - 1;
+            else
+                return mid;
+        }
+        return -1;
+    }
+
+    //*************************************************************************
+
+    /**
+      * Writes a book file. The records must already be sorted by key and the
+      * keys must be distinct.
+      *     @param path file to write
+      *     @param keys position keys, ascending
+      *     @param moves book move of each position
+      *     @param scores score of each move; clamped to fit in a short
+      *     @param count number of records to write
+      *     @throws IOException if the file cannot be written
+      */
+    public static void write(String path, long [] keys, int [] moves,
+                             int [] scores, int count) throws IOException {
+        DataOutputStream out = new DataOutputStream(
+            new BufferedOutputStream(new FileOutputStream(path)));
+        try {
+            out.writeInt(MAGIC);
+            out.writeInt(count);
+            for (int i = 0; i < count; i++) {
+                if (i > 0 && keys[i - 1] >= keys[i])
+                    throw new IllegalArgumentException("keys are not sorted");
+                out.writeLong(keys[i]);
+                out.writeShort(moves[i]);
+                out.writeShort(Math.max(Short.MIN_VALUE,
+                                        Math.min(Short.MAX_VALUE, scores[i])));
+            }
+        } finally {
+            out.close();
+        }
+    }
+}
@@ -0,0 +1,679 @@
+/* Position.java - CIS405 - teams
+ * ____________________________________________________________________________
+ *
+ * Compact, copyable game state for the search AIs. GameBoard is made of
+ *   Square and Wall objects, which is great for the display and the referee
+ *   but far too slow to search: a Position keeps the pawns as square indices,
+ *   the walls as two 64-bit masks (one bit per wall slot, see Move) and a
+ *   Zobrist key, and can make and unmake moves in place.
+ *
+ * The movement rules mirror GameEngine.validateMove exactly (including the
+ *   "jump over up to three pawns in any direction but back" rule) so the
+ *   moves a Position generates are the moves the referee accepts.
+ *
+ * Seats are player numbers: seat 0 goes down, 1 up, 2 right and 3 left. A
+ *   booted seat has pawn -1 and is skipped when passing the turn.
+ *
+ * A Position is not thread safe; every searching thread uses its own copy.
+ *
+ * --------------------------------- METHODS ----------------------------------
+ *
+ * Position(int)                  --> starting position for 2 or 4 players
+ * Position(Position)             --> copy constructor
+ * Position(int,int[],int[],long,long,int) --> position from raw state
+ * Position fromBoard(GameBoard,int) --> reads a GameBoard, given seat to move
+ * int pawnMoves(int[],int)       --> legal pawn moves of the side to move
+ * boolean wallFits(int)          --> wall does not overlap or cross another
+ * boolean wallMayBlock(int)      --> wall touches the border or another wall
+ * boolean isLegal(int)           --> full legality check of a move
+ * int generate(int[])            --> all legal moves of the side to move
+ * int distance(int)              --> shortest path length to the seat's goal
+ * int distanceField(int,int[])   --> distance to the seat's goal from every square
+ * long[] pathBlockers(int)       --> wall slots cutting a shortest path
+ * void make(int) / unmake()      --> play / take back a move
+ * void boot(int)                 --> removes a seat from the game
+ * void setPawn(int,int)          --> puts a pawn anywhere, ignoring the rules
+ * void setToMove(int)            --> hands the turn to a seat
+ * int winner()                   --> seat that has won, or -1
+ */
+
+import java.util.Random;
+
+public class Position {
+
+    public static final int MAX_PLAYERS = 4;
+    public static final int WALL_POOL = 20;
+    public static final int UNREACHABLE = -1;
+
+    // x and y offsets in GameEngine order: down, right, up, left
+    public static final int [] DX = { 0, 1, 0, -1 };
+    public static final int [] DY = { 1, 0, -1, 0 };
+    public static final int [] STEP = { GameBoard.COLUMNS, 1,
+                                        -GameBoard.COLUMNS, -1 };
+
+    private static final int MAX_UNDO = 1024;
+
+    // masks over wall slots (bit = x + 8*y)
+    public static final long FILE_0 = 0x0101010101010101L;
+    public static final long FILE_7 = FILE_0 << 7;
+    public static final long RANK_0 = 0xFFL;
+    public static final long RANK_7 = 0xFFL << 56;
+
+    // slots close enough to a slot that a wall there might touch it
+    private static final long [] NEAR = new long[Move.SLOTS];
+
+    // Zobrist keys; the seed is fixed so keys are the same in every JVM
+    private static final long [][] PAWN_KEYS = new long[MAX_PLAYERS][Move.SQUARES];
+    private static final long [][] HAND_KEYS = new long[MAX_PLAYERS][WALL_POOL / 2 + 1];
+    private static final long [] H_KEYS = new long[Move.SLOTS];
+    private static final long [] V_KEYS = new long[Move.SLOTS];
+    private static final long [] TURN_KEYS = new long[MAX_PLAYERS];
+
+    static {
+        Random rand = new Random(405L);
+        for (int s = 0; s < MAX_PLAYERS; s++) {
+            for (int i = 0; i < Move.SQUARES; i++)
+                PAWN_KEYS[s][i] = rand.nextLong();
+            for (int i = 0; i < HAND_KEYS[s].length; i++)
+                HAND_KEYS[s][i] = rand.nextLong();
+            TURN_KEYS[s] = rand.nextLong();
+        }
+        for (int i = 0; i < Move.SLOTS; i++) {
+            H_KEYS[i] = rand.nextLong();
+            V_KEYS[i] = rand.nextLong();
+        }
+        for (int i = 0; i < Move.SLOTS; i++) {
+            int x = i % 8, y = i / 8;
+            for (int dy = -1; dy <= 1; dy++)
+                for (int dx = -2; dx <= 2; dx++)
+                    if (x + dx >= 0 && x + dx < 8 && y + dy >= 0 && y + dy < 8)
+                        NEAR[i] |= 1L << (x + dx + 8 * (y + dy));
+            for (int dy = -2; dy <= 2; dy++)
+                if (y + dy >= 0 && y + dy < 8)
+                    NEAR[i] |= 1L << (x + 8 * (y + dy));
+        }
+    }
+
+    // game state
+    private int numPlayers;
+    private final int [] pawns = new int[MAX_PLAYERS];
+    private final int [] walls = new int[MAX_PLAYERS];
+    private long hWalls;
+    private long vWalls;
+    private int toMove;
+    private long key;
+
+    // undo stack: the move, the square the pawn left and the seat that moved
+    private final int [] undoMove = new int[MAX_UNDO];
+    private final int [] undoFrom = new int[MAX_UNDO];
+    private final int [] undoSeat = new int[MAX_UNDO];
+    private int undoTop;
+
+    // breadth first search scratch space
+    private final int [] queue  = new int[Move.SQUARES];
+    private final int [] dist   = new int[Move.SQUARES];
+    private final int [] parent = new int[Move.SQUARES];
+    private final int [] seen   = new int[Move.SQUARES];
+    private int stamp;
+
+    //*************************************************************************
+
+    /**
+      * Constructs the starting position: every pawn on its start square,
+      * WALL_POOL walls shared evenly, seat 0 to move.
+      *     @param numPlayers 2 or 4
+      */
+    public Position(int numPlayers) {
+        assert (numPlayers == 2 || numPlayers == 4);
+        this.numPlayers = numPlayers;
+        int [] start = { Move.square(4, 0), Move.square(4, 8),
+                         Move.square(0, 4), Move.square(8, 4) };
+        for (int s = 0; s < MAX_PLAYERS; s++) {
+            pawns[s] = (s < numPlayers) ? start[s] : -1;
+            walls[s] = (s < numPlayers) ? WALL_POOL / numPlayers : 0;
+        }
+        toMove = 0;
+        key = computeKey();
+    }
+
+    /**
+      * Copies another position. The undo history is not copied.
+      *     @param other the position to copy
+      */
+    public Position(Position other) {
+        numPlayers = other.numPlayers;
+        System.arraycopy(other.pawns, 0, pawns, 0, MAX_PLAYERS);
+        System.arraycopy(other.walls, 0, walls, 0, MAX_PLAYERS);
+        hWalls = other.hWalls;
+        vWalls = other.vWalls;
+        toMove = other.toMove;
+        key = other.key;
+    }
+
+    /**
+      * Builds a position from its parts. Nothing is checked.
+      *     @param numPlayers 2 or 4
+      *     @param pawns square of each seat, -1 if booted
+      *     @param walls walls in hand of each seat
+      *     @param hWalls horizontal wall slots
+      *     @param vWalls vertical wall slots
+      *     @param toMove seat to move
+      */
+    public Position(int numPlayers, int [] pawns, int [] walls,
+                    long hWalls, long vWalls, int toMove) {
+        this.numPlayers = numPlayers;
+        for (int s = 0; s < MAX_PLAYERS; s++) {
+            this.pawns[s] = (s < numPlayers) ? pawns[s] : -1;
+            this.walls[s] = (s < numPlayers) ? walls[s] : 0;
+        }
+        this.hWalls = hWalls;
+        this.vWalls = vWalls;
+        this.toMove = toMove;
+        key = computeKey();
+    }
+
+    /**
+      * Builds a Position from a GameBoard.
+      *     @param board the board to read
+      *     @param toMove the player number whose turn it is
+      *     @return the equivalent Position
+      */
+    public static Position fromBoard(GameBoard board, int toMove) {
+        Position pos = new Position(board.getNumPlayers());
+        for (int s = 0; s < pos.numPlayers; s++) {
+            Square loc = board.getPlayerLoc(s);
+            Player p = board.getPlayer(s);
+            pos.pawns[s] = (loc == null) ? -1 : Move.square(loc.getX(), loc.getY());
+            pos.walls[s] = (p == null) ? 0
+                         : Math.min(p.getNumWalls(), WALL_POOL / 2);
+        }
+        for (int y = 0; y < 8; y++) {
+            for (int x = 0; x < 8; x++) {
+                Square sq = board.getSquare(x, y);
+                if (sq.hasWallBottom() && sq.getWallBottom().isStart())
+                    pos.hWalls |= 1L << (x + 8 * y);
+                if (sq.hasWallRight() && sq.getWallRight().isStart())
+                    pos.vWalls |= 1L << (x + 8 * y);
+            }
+        }
+        pos.toMove = toMove;
+        pos.key = pos.computeKey();
+        return pos;
+    }
+
+    //*************************************************************************
+
+    public int numPlayers()       { return numPlayers; }
+    public int toMove()           { return toMove; }
+    public int pawn(int seat)     { return pawns[seat]; }
+    public int wallsLeft(int seat){ return walls[seat]; }
+    public long hWalls()          { return hWalls; }
+    public long vWalls()          { return vWalls; }
+    public long key()             { return key; }
+
+    /**
+      * Returns if a seat is still in the game.
+      *     @param seat player number
+      *     @return false if the seat was never used or has been booted
+      */
+    public boolean isActive(int seat) {
+        return seat < numPlayers && pawns[seat] >= 0;
+    }
+
+    /**
+      * Returns the number of seats still in the game.
+      *     @return the number of active seats
+      */
+    public int numActive() {
+        int n = 0;
+        for (int s = 0; s < numPlayers; s++)
+            if (pawns[s] >= 0)
+                n++;
+        return n;
+    }
+
+    /**
+      * Returns the next active seat after the given one.
+      *     @param seat a player number
+      *     @return the seat whose turn comes next
+      */
+    public int nextSeat(int seat) {
+        for (int i = 1; i <= numPlayers; i++) {
+            int s = (seat + i) % numPlayers;
+            if (pawns[s] >= 0)
+                return s;
+        }
+        return seat;
+    }
+
+    /**
+      * Returns if a square is on the goal edge of a seat.
+      *     @param seat player number
+      *     @param sq square index
+      *     @return true if the seat wins by reaching the square
+      */
+    public static boolean atGoal(int seat, int sq) {
+        switch (seat) {
+            case 0:  return sq / GameBoard.COLUMNS == GameBoard.ROWS - 1;
+            case 1:  return sq / GameBoard.COLUMNS == 0;
+            case 2:  return sq % GameBoard.COLUMNS == GameBoard.COLUMNS - 1;
+            default: return sq % GameBoard.COLUMNS == 0;
+        }
+    }
+
+    /**
+      * Returns the seat that has won: either a pawn on its goal edge, or the
+      * last seat standing.
+      *     @return the winning seat or -1 if the game goes on
+      */
+    public int winner() {
+        int last = -1;
+        for (int s = 0; s < numPlayers; s++) {
+            if (pawns[s] < 0)
+                continue;
+            if (atGoal(s, pawns[s]))
+                return s;
+            last = (last == -1) ? s : -2;
+        }
+        return (last >= 0) ? last : -1;
+    }
+
+    //*************************************************************************
+
+    /**
+      * Returns if a pawn can step from a square in a direction without
+      * leaving the board or crossing a wall.
+      *     @param sq square index
+      *     @param dir 0 down, 1 right, 2 up, 3 left
+      *     @return if the step is open
+      */
+    public boolean canStep(int sq, int dir) {
+        return canStep(hWalls, vWalls, sq, dir);
+    }
+
+    /**
+      * Returns if a pawn can step from a square in a direction, given the
+      * walls as masks; for code that keeps positions in another form.
+      *     @param hWalls horizontal wall slots
+      *     @param vWalls vertical wall slots
+      *     @param sq square index
+      *     @param dir 0 down, 1 right, 2 up, 3 left
+      *     @return if the step is open
+      */
+    public static boolean canStep(long hWalls, long vWalls, int sq, int dir) {
+        int x = sq % GameBoard.COLUMNS;
+        int y = sq / GameBoard.COLUMNS;
+        switch (dir) {
+            case 0:  return y < 8 && !at(hWalls, x, y) && !at(hWalls, x - 1, y);
+            case 1:  return x < 8 && !at(vWalls, x, y) && !at(vWalls, x, y - 1);
+            case 2:  return y > 0 && !at(hWalls, x, y - 1)
+                                  && !at(hWalls, x - 1, y - 1);
+            default: return x > 0 && !at(vWalls, x - 1, y)
+                                  && !at(vWalls, x - 1, y - 1);
+        }
+    }
+
+    private static boolean at(long mask, int x, int y) {
+        return x >= 0 && x < 8 && y >= 0 && y < 8
+            && (mask & (1L << (x + 8 * y))) != 0;
+    }
+
+    /**
+      * Returns if any active pawn stands on a square.
+      *     @param sq square index
+      *     @return if the square is occupied
+      */
+    public boolean isOccupied(int sq) {
+        for (int s = 0; s < numPlayers; s++)
+            if (pawns[s] == sq)
+                return true;
+        return false;
+    }
+
+    //*************************************************************************
+
+    /**
+      * Writes the legal pawn moves of the side to move into an array.
+      *     @param out array to fill (at least 16 long past off)
+      *     @param off index to start writing at
+      *     @return index one past the last move written
+      */
+    public int pawnMoves(int [] out, int off) {
+        return pawnMoves(pawns[toMove], -1, 0, out, off, off);
+    }
+
+    // same recursion as GameEngine.validateMove, collecting every destination
+    private int pawnMoves(int from, int back, int jumps, int [] out,
+                          int start, int n) {
+        for (int dir = 0; dir < 4; dir++) {
+            if (!canStep(from, dir))
+                continue;
+            int to = from + STEP[dir];
+            if (!isOccupied(to)) {
+                boolean dup = false;
+                for (int i = start; i < n; i++)
+                    dup |= (out[i] == to);
+                if (!dup)
+                    out[n++] = to;
+            } else if (dir != back && jumps < 3) {
+                n = pawnMoves(to, (dir + 2) % 4, jumps + 1, out, start, n);
+            }
+        }
+        return n;
+    }
+
+    /**
+      * Returns if a wall does not overlap or cross a wall already placed.
+      * This is the same test as GameEngine.validateWall.
+      *     @param move an encoded wall move
+      *     @return if there is room for the wall
+      */
+    public boolean wallFits(int move) {
+        int slot = Move.slot(move);
+        long bit = 1L << slot;
+        int x = slot % 8;
+        int y = slot / 8;
+        if (Move.isHorizontal(move)) {
+            return (hWalls & bit) == 0 && (vWalls & bit) == 0
+                && (x == 0 || (hWalls & (bit >>> 1)) == 0)
+                && (x == 7 || (hWalls & (bit << 1)) == 0);
+        }
+        return (vWalls & bit) == 0 && (hWalls & bit) == 0
+            && (y == 0 || (vWalls & (bit >>> 8)) == 0)
+            && (y == 7 || (vWalls & (bit << 8)) == 0);
+    }
+
+    /**
+      * Returns if a wall could possibly cut someone off. A wall that touches
+      * neither the border nor another wall cannot close off a region, so
+      * the (expensive) path check can be skipped for it.
+      *     @param move an encoded wall move
+      *     @return false if the wall certainly leaves every path open
+      */
+    public boolean wallMayBlock(int move) {
+        int slot = Move.slot(move);
+        int x = slot % 8;
+        int y = slot / 8;
+        if (Move.isHorizontal(move) ? (x == 0 || x == 7) : (y == 0 || y == 7))
+            return true;
+        return ((hWalls | vWalls) & NEAR[slot]) != 0;
+    }
+
+    /**
+      * Returns if every active seat can still reach its goal.
+      *     @return if all paths exist
+      */
+    public boolean pathsExist() {
+        for (int s = 0; s < numPlayers; s++)
+            if (pawns[s] >= 0 && distance(s) == UNREACHABLE)
+                return false;
+        return true;
+    }
+
+    /**
+      * Returns if a move is legal for the side to move, with the same
+      * outcome as GameEngine.validate.
+      *     @param move an encoded move
+      *     @return if the referee would accept the move
+      */
+    public boolean isLegal(int move) {
+        if (move < 0 || move >= Move.COUNT)
+            return false;
+        if (!Move.isWall(move)) {
+            int [] moves = new int[16];
+            int n = pawnMoves(moves, 0);
+            for (int i = 0; i < n; i++)
+                if (moves[i] == move)
+                    return true;
+            return false;
+        }
+        if (walls[toMove] == 0 || !wallFits(move))
+            return false;
+        if (!wallMayBlock(move))
+            return true;
+        make(move);
+        boolean ok = pathsExist();
+        unmake();
+        return ok;
+    }
+
+    /**
+      * Writes every legal move of the side to move into an array: pawn moves
+      * first, then walls in slot order.
+      *     @param out array to fill, at least Move.COUNT long
+      *     @return the number of moves written
+      */
+    public int generate(int [] out) {
+        int n = pawnMoves(out, 0);
+        if (walls[toMove] == 0)
+            return n;
+        for (int m = Move.H_BASE; m < Move.COUNT; m++) {
+            if (!wallFits(m))
+                continue;
+            if (wallMayBlock(m)) {
+                make(m);
+                boolean ok = pathsExist();
+                unmake();
+                if (!ok)
+                    continue;
+            }
+            out[n++] = m;
+        }
+        return n;
+    }
+
+    //*************************************************************************
+
+    /**
+      * Returns the length of the shortest path from a seat's pawn to its goal
+      * edge, ignoring the other pawns.
+      *     @param seat player number
+      *     @return number of steps or UNREACHABLE
+      */
+    public int distance(int seat) {
+        int goal = search(seat);
+        return (goal < 0) ? UNREACHABLE : dist[goal];
+    }
+
+    /**
+      * Fills an array with the distance from every square to a seat's goal
+      * edge, ignoring pawns. Unreachable squares get UNREACHABLE.
+      *     @param seat player number
+      *     @param field array of Move.SQUARES entries to fill
+      *     @return the distance from the seat's own pawn
+      */
+    public int distanceField(int seat, int [] field) {
+        java.util.Arrays.fill(field, UNREACHABLE);
+        int head = 0, tail = 0;
+        for (int sq = 0; sq < Move.SQUARES; sq++) {
+            if (atGoal(seat, sq)) {
+                field[sq] = 0;
+                queue[tail++] = sq;
+            }
+        }
+        while (head < tail) {
+            int sq = queue[head++];
+            for (int dir = 0; dir < 4; dir++) {
+                if (!canStep(sq, dir))
+                    continue;
+                int to = sq + STEP[dir];
+                if (field[to] != UNREACHABLE)
+                    continue;
+                field[to] = field[sq] + 1;
+                queue[tail++] = to;
+            }
+        }
+        return (pawns[seat] < 0) ? UNREACHABLE : field[pawns[seat]];
+    }
+
+    /**
+      * Returns the wall slots that would cut one shortest path of a seat,
+      * i.e. the horizontal and vertical walls touching an edge of the path.
+      *     @param seat player number
+      *     @return two masks packed as {horizontal, vertical}
+      */
+    public long [] pathBlockers(int seat) {
+        long [] masks = new long[2];
+        int sq = search(seat);
+        while (sq >= 0 && parent[sq] >= 0) {
+            int from = parent[sq];
+            int a = Math.min(from, sq);
+            int x = a % GameBoard.COLUMNS;
+            int y = a / GameBoard.COLUMNS;
+            if (Math.abs(sq - from) == GameBoard.COLUMNS) {
+                // a vertical step is cut by a horizontal wall below a
+                if (x < 8)  masks[0] |= 1L << (x + 8 * y);
+                if (x > 0)  masks[0] |= 1L << (x - 1 + 8 * y);
+            } else {
+                // a horizontal step is cut by a vertical wall right of a
+                if (y < 8)  masks[1] |= 1L << (x + 8 * y);
+                if (y > 0)  masks[1] |= 1L << (x + 8 * (y - 1));
+            }
+            sq = from;
+        }
+        return masks;
+    }
+
+    // breadth first search towards a goal edge; returns the goal square
+    // reached (dist and parent are valid along its path) or -1
+    private int search(int seat) {
+        int start = pawns[seat];
+        if (start < 0)
+            return -1;
+        if (++stamp == 0) {
+            java.util.Arrays.fill(seen, 0);
+            stamp = 1;
+        }
+        int head = 0, tail = 0;
+        queue[tail++] = start;
+        seen[start] = stamp;
+        dist[start] = 0;
+        parent[start] = -1;
+        while (head < tail) {
+            int sq = queue[head++];
+            if (atGoal(seat, sq))
+                return sq;
+            for (int dir = 0; dir < 4; dir++) {
+                if (!canStep(sq, dir))
+                    continue;
+                int to = sq + STEP[dir];
+                if (seen[to] == stamp)
+                    continue;
+                seen[to] = stamp;
+                dist[to] = dist[sq] + 1;
+                parent[to] = sq;
+                queue[tail++] = to;
+            }
+        }
+        return -1;
+    }
+
+    //*************************************************************************
+
+    /**
+      * Plays a move for the side to move. The move is not checked.
+      *     @param move an encoded move
+      */
+    public void make(int move) {
+        int seat = toMove;
+        undoSeat[undoTop] = seat;
+        undoMove[undoTop] = move;
+        if (Move.isWall(move)) {
+            long bit = 1L << Move.slot(move);
+            if (Move.isHorizontal(move)) {
+                hWalls |= bit;
+                key ^= H_KEYS[Move.slot(move)];
+            } else {
+                vWalls |= bit;
+                key ^= V_KEYS[Move.slot(move)];
+            }
+            key ^= HAND_KEYS[seat][walls[seat]];
+            walls[seat]--;
+            key ^= HAND_KEYS[seat][walls[seat]];
+        } else {
+            undoFrom[undoTop] = pawns[seat];
+            key ^= PAWN_KEYS[seat][pawns[seat]] ^ PAWN_KEYS[seat][move];
+            pawns[seat] = move;
+        }
+        undoTop++;
+        passTurn(nextSeat(seat));
+    }
+
+    /**
+      * Takes back the last move played with make.
+      */
+    public void unmake() {
+        undoTop--;
+        int seat = undoSeat[undoTop];
+        int move = undoMove[undoTop];
+        passTurn(seat);
+        if (!Move.isWall(move)) {
+            int from = undoFrom[undoTop];
+            key ^= PAWN_KEYS[seat][pawns[seat]] ^ PAWN_KEYS[seat][from];
+            pawns[seat] = from;
+            return;
+        }
+        long bit = 1L << Move.slot(move);
+        if (Move.isHorizontal(move)) {
+            hWalls &= ~bit;
+            key ^= H_KEYS[Move.slot(move)];
+        } else {
+            vWalls &= ~bit;
+            key ^= V_KEYS[Move.slot(move)];
+        }
+        key ^= HAND_KEYS[seat][walls[seat]];
+        walls[seat]++;
+        key ^= HAND_KEYS[seat][walls[seat]];
+    }
+
+    /**
+      * Removes a seat from the game, as the referee does on a BOOT.
+      *     @param seat player number to remove
+      */
+    public void boot(int seat) {
+        if (pawns[seat] < 0)
+            return;
+        key ^= PAWN_KEYS[seat][pawns[seat]];
+        pawns[seat] = -1;
+        if (toMove == seat)
+            passTurn(nextSeat(seat));
+    }
+
+    /**
+      * Puts a pawn on a square without playing a move, for solvers and
+      * tests that need to visit positions no game reaches.
+      *     @param seat an active seat
+      *     @param sq the square; nothing is checked
+      */
+    public void setPawn(int seat, int sq) {
+        key ^= PAWN_KEYS[seat][pawns[seat]] ^ PAWN_KEYS[seat][sq];
+        pawns[seat] = sq;
+    }
+
+    /**
+      * Hands the turn to a seat without playing a move.
+      *     @param seat an active seat
+      */
+    public void setToMove(int seat) {
+        passTurn(seat);
+    }
+
+    private void passTurn(int seat) {
+        key ^= TURN_KEYS[toMove] ^ TURN_KEYS[seat];
+        toMove = seat;
+    }
+
+    private long computeKey() {
+        long k = TURN_KEYS[toMove];
+        for (int s = 0; s < numPlayers; s++) {
+            if (pawns[s] >= 0)
+                k ^= PAWN_KEYS[s][pawns[s]];
+            k ^= HAND_KEYS[s][walls[s]];
+        }
+        for (int i = 0; i < Move.SLOTS; i++) {
+            if ((hWalls & (1L << i)) != 0) k ^= H_KEYS[i];
+            if ((vWalls & (1L << i)) != 0) k ^= V_KEYS[i];
+        }
+        return k;
+    }
+}
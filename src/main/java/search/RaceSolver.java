@@ -0,0 +1,237 @@
+/* RaceSolver.java - CIS405 - teams
+ * ____________________________________________________________________________
+ *
+ * Exact solver for two-player positions where nobody has a wall left. From
+ *   then on the walls never change and the game is a pure pawn race, so a
+ *   position is just (my square, their square, who moves): 81 * 81 * 2 states.
+ *   That is few enough to solve them all at once by retrograde analysis:
+ *
+ *      - a state where the player who just moved stands on their goal is a
+ *        loss in 0 plies for the side to move
+ *      - round k: a state is a win in k if some move reaches a loss in k-1,
+ *        and a loss in k if every move reaches a win (the slowest in k-1)
+ *      - stop when a round finds nothing; what is left is a draw
+ *
+ * Jumps are where a race stops being "count the steps", and they are handled
+ *   for free because the moves come from Position.pawnMoves.
+ *
+ * The table depends on the wall layout and on which two seats are left. The
+ *   solver keeps the table of the last layout it solved, which is all a game
+ *   needs: once the walls are gone the layout is fixed.
+ *
+ * --------------------------------- METHODS ----------------------------------
+ *
+ * boolean applies(Position)        --> two seats left, no walls in hand
+ * int bestMove(Position)           --> perfect move, Move.NONE if not a race
+ * int outcome(Position)            --> WIN, LOSS or DRAW for the side to move
+ * int plies(Position)              --> plies to the end with perfect play
+ * short[] table(Position)          --> the whole solved table for a layout
+ * int index(int,int,int)           --> table index of a state
+ * int outcomeOf/pliesOf(short)     --> unpack a table entry
+ */
+
+public class RaceSolver {
+
+    public static final int DRAW = 0;
+    public static final int WIN  = 1;
+    public static final int LOSS = 2;
+
+    private static final int PAIRS = Move.SQUARES * Move.SQUARES;
+    public static final int STATES = 2 * PAIRS;
+
+    // outcome in bits 14..15, plies in bits 0..13
+    private final short [] table = new short[STATES];
+
+    // successors of every state: succ[succStart[i] .. succStart[i+1]-1]
+    private final int [] succStart = new int[STATES + 1];
+    private int [] succ = new int[8 * STATES];
+
+    // layout the table was built for; seatA < seatB
+    private boolean solved;
+    private long hWalls;
+    private long vWalls;
+    private int seatA;
+    private int seatB;
+
+    //*************************************************************************
+
+    /**
+      * Returns if a position is a pure race the solver can handle: exactly
+      * two seats left, neither with a wall in hand, and no winner yet.
+      *     @param pos the position
+      *     @return if bestMove and friends will answer for it
+      */
+    public static boolean applies(Position pos) {
+        if (pos.numActive() != 2 || pos.winner() >= 0)
+            return false;
+        for (int s = 0; s < pos.numPlayers(); s++)
+            if (pos.isActive(s) && pos.wallsLeft(s) > 0)
+                return false;
+        return true;
+    }
+
+    /**
+      * Returns a move that wins as fast as possible, or loses as slowly as
+      * possible, or keeps a drawn race drawn.
+      *     @param pos the position
+      *     @return the move, or Move.NONE if the solver does not apply
+      */
+    public int bestMove(Position pos) {
+        if (!applies(pos))
+            return Move.NONE;
+        int i = lookup(pos);
+        int out = outcomeOf(table[i]);
+        int plies = pliesOf(table[i]);
+        int best = Move.NONE;
+        int bestPlies = -1;
+        for (int j = succStart[i]; j < succStart[i + 1]; j++) {
+            int next = succ[j];
+            int o = outcomeOf(table[next]);
+            int p = pliesOf(table[next]);
+            if ((out == WIN && o == LOSS && p == plies - 1)
+                || (out == DRAW && o == DRAW)
+                || (out == LOSS && p > bestPlies)) {
+                best = moveTo(i, next);
+                bestPlies = p;
+                if (out != LOSS)
+                    break;
+            }
+        }
+        return best;
+    }
+
+    /**
+      * Returns the result of perfect play for the side to move.
+      *     @param pos a position the solver applies to
+      *     @return WIN, LOSS or DRAW
+      */
+    public int outcome(Position pos) {
+        return outcomeOf(table[lookup(pos)]);
+    }
+
+    /**
+      * Returns the number of plies until the game ends with perfect play.
+      *     @param pos a position the solver applies to
+      *     @return the plies, or 0 for a draw
+      */
+    public int plies(Position pos) {
+        return pliesOf(table[lookup(pos)]);
+    }
+
+    /**
+      * Returns the solved table for the wall layout and the two seats of a
+      * position, indexed by index(). The array belongs to the solver and is
+      * overwritten when another layout is solved.
+      *     @param pos any position with exactly two seats left
+      *     @return the table
+      */
+    public short [] table(Position pos) {
+        lookup(pos);
+        return table;
+    }
+
+    /**
+      * Returns the table index of a state.
+      *     @param turn 0 if the lower seat is to move, 1 for the higher one
+      *     @param sqA square of the lower seat's pawn
+      *     @param sqB square of the higher seat's pawn
+      */
+    public static int index(int turn, int sqA, int sqB) {
+        return turn * PAIRS + sqA * Move.SQUARES + sqB;
+    }
+
+    public static int outcomeOf(short entry) { return (entry >> 14) & 3; }
+    public static int pliesOf(short entry)   { return entry & 0x3FFF; }
+
+    //*************************************************************************
+
+    // index of a position, solving its layout first if needed
+    private int lookup(Position pos) {
+        int a = -1;
+        int b = -1;
+        for (int s = 0; s < pos.numPlayers(); s++) {
+            if (!pos.isActive(s))
+                continue;
+            if (a < 0)
+                a = s;
+            else
+                b = s;
+        }
+        if (!solved || a != seatA || b != seatB
+            || pos.hWalls() != hWalls || pos.vWalls() != vWalls)
+            solve(pos, a, b);
+        return index(pos.toMove() == a ? 0 : 1, pos.pawn(a), pos.pawn(b));
+    }
+
+    // destination square of the pawn that moves from state i to state next
+    private static int moveTo(int i, int next) {
+        return (i < PAIRS) ? (next - PAIRS) / Move.SQUARES
+                           : next % Move.SQUARES;
+    }
+
+    private void solve(Position pos, int a, int b) {
+        Position scratch = new Position(pos);
+        int [] moves = new int[Move.COUNT];
+        int n = 0;
+        for (int i = 0; i < STATES; i++) {
+            succStart[i] = n;
+            int turn = i / PAIRS;
+            int sqA = (i % PAIRS) / Move.SQUARES;
+            int sqB = i % Move.SQUARES;
+            int mover = (turn == 0) ? a : b;
+            int other = (turn == 0) ? b : a;
+            int moverSq = (turn == 0) ? sqA : sqB;
+            int otherSq = (turn == 0) ? sqB : sqA;
+            table[i] = 0;
+            if (sqA == sqB || Position.atGoal(mover, moverSq))
+                continue;  // no game gets here
+            if (Position.atGoal(other, otherSq)) {
+                table[i] = (short) (LOSS << 14);
+                continue;
+            }
+            scratch.setPawn(a, sqA);
+            scratch.setPawn(b, sqB);
+            scratch.setToMove(mover);
+            int k = scratch.pawnMoves(moves, 0);
+            if (n + k > succ.length) {
+                int [] bigger = new int[2 * succ.length];
+                System.arraycopy(succ, 0, bigger, 0, n);
+                succ = bigger;
+            }
+            for (int j = 0; j < k; j++)
+                succ[n++] = (turn == 0) ? index(1, moves[j], sqB)
+                                        : index(0, sqA, moves[j]);
+        }
+        succStart[STATES] = n;
+
+        boolean changed = true;
+        for (int k = 1; changed && k < 0x3FFF; k++) {
+            changed = false;
+            for (int i = 0; i < STATES; i++) {
+                if (table[i] != 0 || succStart[i] == succStart[i + 1])
+                    continue;
+                boolean win = false;
+                boolean loss = true;
+                for (int j = succStart[i]; j < succStart[i + 1]; j++) {
+                    int o = outcomeOf(table[succ[j]]);
+                    int p = pliesOf(table[succ[j]]);
+                    // results found in this round (plies == k) don't count yet
+                    if (o == LOSS && p == k - 1)
+                        win = true;
+                    if (o != WIN || p >= k)
+                        loss = false;
+                }
+                if (win || loss) {
+                    table[i] = (short) (((win ? WIN : LOSS) << 14) | k);
+                    changed = true;
+                }
+            }
+        }
+
+        seatA = a;
+        seatB = b;
+        hWalls = pos.hWalls();
+        vWalls = pos.vWalls();
+        solved = true;
+    }
+}
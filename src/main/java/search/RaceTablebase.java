@@ -0,0 +1,335 @@
+/* RaceTablebase.java - CIS405 - teams
+ * ____________________________________________________________________________
+ *
+ * RaceSolver's table for one wall layout, saved to a file and memory-mapped
+ *   back in, so a fixed layout (the empty board by default) is solved once
+ *   and afterwards every query is a single array read.
+ *
+ * The file is big-endian:
+ *
+ *      int   MAGIC             --> "QRT1"
+ *      int   seatA, seatB      --> the two seats, seatA < seatB
+ *      long  hWalls, vWalls    --> the wall layout (see Position)
+ *      RaceSolver.STATES shorts --> entry of every state, by RaceSolver.index
+ *
+ *   An entry holds WIN/LOSS/DRAW in its top two bits and the plies to the
+ *   end of the game below them.
+ *
+ * Run as a program it builds a tablebase, and with --verify it also checks
+ *   Position's pawn moves against GameEngine.validate in every state of the
+ *   layout. That covers all the two-pawn jump cases of validateMove, and
+ *   since the tablebase is built from Position's moves, it is only as right
+ *   as that check says.
+ *
+ *      java RaceTablebase <file> [--verify] [wall ...]
+ *
+ *   Walls are protocol strings such as "(IV-D,V-D)".
+ *
+ * --------------------------------- METHODS ----------------------------------
+ *
+ * void write(String,Position)      --> solves a layout and saves it
+ * RaceTablebase open(String)       --> maps a tablebase file
+ * boolean covers(Position)         --> same seats and walls as the file
+ * int outcome(Position)            --> WIN, LOSS or DRAW for the side to move
+ * int plies(Position)              --> plies to the end with perfect play
+ * int bestMove(Position)           --> perfect move, Move.NONE if not covered
+ * int verify(Position,PrintStream) --> pawn move mismatches with GameEngine
+ */
+
+import java.io.DataOutputStream;
+import java.io.BufferedOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.RandomAccessFile;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+import java.util.LinkedList;
+import java.util.Queue;
+
+public class RaceTablebase {
+
+    public static final int MAGIC = 0x51525431;  // "QRT1"
+    public static final int HEADER = 28;
+
+    private final ByteBuffer buf;
+    private final int seatA;
+    private final int seatB;
+    private final long hWalls;
+    private final long vWalls;
+
+    private RaceTablebase(ByteBuffer buf) {
+        this.buf = buf;
+        seatA = buf.getInt(4);
+        seatB = buf.getInt(8);
+        hWalls = buf.getLong(12);
+        vWalls = buf.getLong(20);
+    }
+
+    /**
+      * Solves the layout of a position and writes the table to a file.
+      *     @param path file to write
+      *     @param layout position with the walls and the two seats to solve
+      *     @throws IOException if the file cannot be written
+      */
+    public static void write(String path, Position layout) throws IOException {
+        int [] seats = seats(layout);
+        short [] table = new RaceSolver().table(layout);
+        DataOutputStream out = new DataOutputStream(
+            new BufferedOutputStream(new FileOutputStream(path)));
+        try {
+            out.writeInt(MAGIC);
+            out.writeInt(seats[0]);
+            out.writeInt(seats[1]);
+            out.writeLong(layout.hWalls());
+            out.writeLong(layout.vWalls());
+            for (int i = 0; i < RaceSolver.STATES; i++)
+                out.writeShort(table[i]);
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+      * Maps a tablebase file into memory.
+      *     @param path file written by write()
+      *     @return the tablebase
+      *     @throws IOException if the file cannot be read or is not a tablebase
+      */
+    public static RaceTablebase open(String path) throws IOException {
+        RandomAccessFile file = new RandomAccessFile(path, "r");
+        try {
+            FileChannel channel = file.getChannel();
+            if (channel.size() != HEADER + 2L * RaceSolver.STATES)
+                throw new IOException(path + " has the wrong size");
+            ByteBuffer buf = channel.map(FileChannel.MapMode.READ_ONLY,
+                                         0, channel.size());
+            if (buf.getInt(0) != MAGIC)
+                throw new IOException(path + " is not a race tablebase");
+            return new RaceTablebase(buf);
+        } finally {
+            file.close();
+        }
+    }
+
+    //*************************************************************************
+
+    /**
+      * Returns if the tablebase answers for a position: the same two seats
+      * are left and the walls are the same. Walls in hand are not looked at.
+      *     @param pos the position
+      *     @return if outcome, plies and bestMove apply
+      */
+    public boolean covers(Position pos) {
+        if (pos.numActive() != 2 || pos.hWalls() != hWalls
+            || pos.vWalls() != vWalls)
+            return false;
+        int [] seats = seats(pos);
+        return seats[0] == seatA && seats[1] == seatB;
+    }
+
+    /**
+      * Returns the result of perfect play for the side to move.
+      *     @param pos a covered position
+      *     @return RaceSolver.WIN, LOSS or DRAW
+      */
+    public int outcome(Position pos) {
+        return RaceSolver.outcomeOf(entry(pos));
+    }
+
+    /**
+      * Returns the number of plies until the game ends with perfect play.
+      *     @param pos a covered position
+      *     @return the plies, or 0 for a draw
+      */
+    public int plies(Position pos) {
+        return RaceSolver.pliesOf(entry(pos));
+    }
+
+    /**
+      * Returns a move that wins fastest, loses slowest or keeps the draw.
+      *     @param pos the position
+      *     @return the move, or Move.NONE if it is not covered or is over
+      */
+    public int bestMove(Position pos) {
+        if (!covers(pos) || pos.winner() >= 0)
+            return Move.NONE;
+        int out = outcome(pos);
+        int plies = plies(pos);
+        Position next = new Position(pos);
+        int [] moves = new int[Move.COUNT];
+        int n = next.pawnMoves(moves, 0);
+        int best = Move.NONE;
+        int bestPlies = -1;
+        for (int i = 0; i < n; i++) {
+            next.make(moves[i]);
+            short e = entry(next);
+            next.unmake();
+            int o = RaceSolver.outcomeOf(e);
+            int p = RaceSolver.pliesOf(e);
+            if ((out == RaceSolver.WIN && o == RaceSolver.LOSS
+                                       && p == plies - 1)
+                || (out == RaceSolver.DRAW && o == RaceSolver.DRAW))
+                return moves[i];
+            if (out == RaceSolver.LOSS && p > bestPlies) {
+                best = moves[i];
+                bestPlies = p;
+            }
+        }
+        return best;
+    }
+
+    // one read, wherever the entry is
+    private short entry(Position pos) {
+        int turn = (pos.toMove() == seatA) ? 0 : 1;
+        int i = RaceSolver.index(turn, pos.pawn(seatA), pos.pawn(seatB));
+        return buf.getShort(HEADER + 2 * i);
+    }
+
+    // the two active seats, lower first
+    private static int [] seats(Position pos) {
+        int [] seats = new int[2];
+        int k = 0;
+        for (int s = 0; s < pos.numPlayers() && k < 2; s++)
+            if (pos.isActive(s))
+                seats[k++] = s;
+        return seats;
+    }
+
+    //*************************************************************************
+
+    /**
+      * Compares Position.pawnMoves with GameEngine.validate for every
+      * placement of the two pawns of a layout, with each side to move.
+      *     @param layout position with the walls and the two seats
+      *     @param log where to describe mismatches, or null
+      *     @return the number of states where the two disagree
+      */
+    public static int verify(Position layout, PrintStream log) {
+        int [] seats = seats(layout);
+        Position pos = new Position(layout);
+        int [] moves = new int[Move.COUNT];
+        int mismatches = 0;
+        for (int a = 0; a < Move.SQUARES; a++) {
+            for (int b = 0; b < Move.SQUARES; b++) {
+                if (a == b)
+                    continue;
+                pos.setPawn(seats[0], a);
+                pos.setPawn(seats[1], b);
+                Queue<Player> players = new LinkedList<Player>();
+                GameBoard board = boardFor(pos, players);
+                for (Player p : players) {
+                    if (!pos.isActive(p.getPlayerNo()))
+                        continue;
+                    pos.setToMove(p.getPlayerNo());
+                    boolean [] mine = new boolean[Move.SQUARES];
+                    int n = pos.pawnMoves(moves, 0);
+                    for (int i = 0; i < n; i++)
+                        mine[moves[i]] = true;
+                    for (int sq = 0; sq < Move.SQUARES; sq++) {
+                        boolean theirs = GameEngine.validate(board, p,
+                                             Move.toString(sq)) != null;
+                        if (theirs != mine[sq]) {
+                            mismatches++;
+                            if (log != null)
+                                log.println("seat " + p.getPlayerNo()
+                                    + " at " + Move.toString(pos.pawn(
+                                                   p.getPlayerNo()))
+                                    + " to " + Move.toString(sq)
+                                    + ": GameEngine " + theirs
+                                    + ", Position " + mine[sq]);
+                        }
+                    }
+                }
+            }
+        }
+        return mismatches;
+    }
+
+    // a GameBoard with the pawns and walls of a position; booted seats are
+    // taken off the board
+    private static GameBoard boardFor(Position pos, Queue<Player> players) {
+        for (int s = 0; s < pos.numPlayers(); s++)
+            players.add(new Player(s, 0));
+        GameBoard board = new GameBoard(players);
+        for (int i = 0; i < Move.SLOTS; i++) {
+            if ((pos.hWalls() & (1L << i)) != 0)
+                board.placeWall(GameEngine.parseWall(board,
+                    Move.toString(Move.H_BASE + i)));
+            if ((pos.vWalls() & (1L << i)) != 0)
+                board.placeWall(GameEngine.parseWall(board,
+                    Move.toString(Move.V_BASE + i)));
+        }
+        // park every pawn out of the way first so no pawn lands on another
+        int park = 0;
+        for (Player p : players) {
+            while (board.isOccupied(park % GameBoard.COLUMNS,
+                                    park / GameBoard.COLUMNS)
+                   || isPawnSquare(pos, park))
+                park++;
+            board.move(p, board.getSquare(park % GameBoard.COLUMNS,
+                                          park / GameBoard.COLUMNS));
+        }
+        for (Player p : players) {
+            int sq = pos.pawn(p.getPlayerNo());
+            if (sq < 0)
+                board.removePlayer(p);
+            else
+                board.move(p, board.getSquare(sq % GameBoard.COLUMNS,
+                                              sq / GameBoard.COLUMNS));
+        }
+        return board;
+    }
+
+    private static boolean isPawnSquare(Position pos, int sq) {
+        for (int s = 0; s < pos.numPlayers(); s++)
+            if (pos.pawn(s) == sq)
+                return true;
+        return false;
+    }
+
+    //*************************************************************************
+
+    public static void usage() {
+        System.err.println("usage: java RaceTablebase <file> [--verify]"
+                           + " [wall ...]");
+        System.exit(1);
+    }
+
+    public static void main(String[] args) {
+        if (args.length < 1)
+            usage();
+        boolean verify = false;
+        Position layout = new Position(2);
+        for (int i = 1; i < args.length; i++) {
+            if (args[i].equals("--verify")) {
+                verify = true;
+                continue;
+            }
+            int w = Move.parse(args[i]);
+            if (!Move.isWall(w) || !layout.isLegal(w)) {
+                System.err.println("bad wall " + args[i]);
+                System.exit(2);
+            }
+            layout.make(w);
+        }
+
+        if (verify) {
+            int bad = verify(layout, System.out);
+            System.out.println(bad + " mismatches with GameEngine");
+            if (bad > 0)
+                System.exit(3);
+        }
+        long start = System.currentTimeMillis();
+        try {
+            write(args[0], layout);
+        } catch (IOException e) {
+            System.err.println("could not write " + args[0] + ": " + e);
+            System.exit(4);
+        }
+        System.out.println("wrote " + args[0] + " in "
+                           + (System.currentTimeMillis() - start) + " ms");
+    }
+}
@@ -0,0 +1,121 @@
+/* SearchStats.java - CIS405 - teams
+ * ____________________________________________________________________________
+ *
+ * What a search did and where its time went. The engines fill one in for
+ *   every search (AlphaBeta.getStats(), MaxNSearch.getStats()); MoveServer
+ *   logs it after every move and adds it to a running total that it prints
+ *   when it shuts down.
+ *
+ *   nodes, ms, nps   --> work done and how fast
+ *   depth            --> deepest iteration that finished
+ *   ebf              --> effective branching factor: nodes of the last
+ *                        finished iteration over nodes of the one before
+ *   tt hits, coll.   --> transposition table probes that found their
+ *                        position, and that found someone else's
+ *   gen, eval, path  --> time spent generating and ordering moves, in the
+ *                        static evaluation, and checking that walls leave
+ *                        every pawn a path
+ *
+ * A total is just the sum of many searches; depth and ebf are averaged over
+ *   the searches that have them.
+ *
+ * --------------------------------- METHODS ----------------------------------
+ *
+ * void clear()                     --> zero everything
+ * void add(SearchStats)            --> sums another record into this one
+ * long nodes() / millis() ...      --> the counts
+ * double nps() / depth() / ebf()   --> rates and averages
+ * double hitRate() / collisionRate() --> per transposition table probe
+ * String toString()                --> one line for a log
+ */
+
+public class SearchStats {
+
+    // filled in by the engines
+    long searches;
+    long nodes;
+    long millis;
+    long depths;         // sum of the depths reached
+    double ebfs;         // sum of the branching factors
+    long ebfCount;       // searches that finished two iterations
+    long ttProbes;
+    long ttHits;
+    long ttCollisions;
+    long genNanos;
+    long evalNanos;
+    long pathNanos;
+
+    //*************************************************************************
+
+    /**
+      * Zeroes every count.
+      */
+    public void clear() {
+        searches = nodes = millis = depths = 0;
+        ebfs = 0;
+        ebfCount = 0;
+        ttProbes = ttHits = ttCollisions = 0;
+        genNanos = evalNanos = pathNanos = 0;
+    }
+
+    /**
+      * Adds another record to this one.
+      *     @param other the record to add
+      */
+    public synchronized void add(SearchStats other) {
+        searches += other.searches;
+        nodes += other.nodes;
+        millis += other.millis;
+        depths += other.depths;
+        ebfs += other.ebfs;
+        ebfCount += other.ebfCount;
+        ttProbes += other.ttProbes;
+        ttHits += other.ttHits;
+        ttCollisions += other.ttCollisions;
+        genNanos += other.genNanos;
+        evalNanos += other.evalNanos;
+        pathNanos += other.pathNanos;
+    }
+
+    //*************************************************************************
+
+    public long searches()  { return searches; }
+    public long nodes()     { return nodes; }
+    public long millis()    { return millis; }
+    public long genNanos()  { return genNanos; }
+    public long evalNanos() { return evalNanos; }
+    public long pathNanos() { return pathNanos; }
+
+    public double nps() {
+        return (millis == 0) ? 0 : nodes * 1000.0 / millis;
+    }
+
+    public double depth() {
+        return (searches == 0) ? 0 : (double) depths / searches;
+    }
+
+    public double ebf() {
+        return (ebfCount == 0) ? 0 : ebfs / ebfCount;
+    }
+
+    public double hitRate() {
+        return (ttProbes == 0) ? 0 : (double) ttHits / ttProbes;
+    }
+
+    public double collisionRate() {
+        return (ttProbes == 0) ? 0 : (double) ttCollisions / ttProbes;
+    }
+
+    /**
+      * Returns the record as one line, e.g. for Deb.ug.
+      */
+    public String toString() {
+        return String.format("%d nodes in %d ms (%.0f nps), depth %.1f,"
+                             + " ebf %.2f, tt hits %.1f%% coll. %.1f%%,"
+                             + " gen %d ms, eval %d ms, path %d ms",
+                             nodes, millis, nps(), depth(), ebf(),
+                             100 * hitRate(), 100 * collisionRate(),
+                             genNanos / 1000000, evalNanos / 1000000,
+                             pathNanos / 1000000);
+    }
+}
@@ -0,0 +1,157 @@
+/* SeatTransform.java - CIS405 - teams
+ * ____________________________________________________________________________
+ *
+ * Turns the board so that a given seat looks like player 0: starting on the
+ *   top edge and moving down. Code that works in this canonical view (an
+ *   evaluator, a book, a cache, Ripley's virtual board) only has to be
+ *   written for player 0 and serves every seat.
+ *
+ *      seat 0  --> as is
+ *      seat 1  --> flipped top to bottom        (x,y) -> (x, 8-y)
+ *      seat 2  --> flipped along the diagonal   (x,y) -> (y, x)
+ *      seat 3  --> turned a quarter             (x,y) -> (y, 8-x)
+ *
+ *   Seats 2 and 3 swap the axes, so horizontal walls become vertical walls
+ *   and the other way around. The other seats move too: in seat 1's view
+ *   seat 0 is the one moving up, i.e. seat 1, and so on (see seat()).
+ *
+ * The rules are the same in every view, so the moves of a position and of
+ *   its canonical view correspond one to one. With two players the turn
+ *   order does too. With four it does not: in the canonical view the seats
+ *   still move in the order of their new numbers. A canonical four-player
+ *   position is right for anything that does not care who moves after whom,
+ *   such as distances and the static evaluation, but not for search results.
+ *
+ * --------------------------------- METHODS ----------------------------------
+ *
+ * int square(int,int)              --> square in the seat's view
+ * int squareBack(int,int)          --> square in the seat's view, back
+ * int move(int,int)                --> move in the seat's view
+ * int moveBack(int,int)            --> move in the seat's view, back
+ * int seat(int,int)                --> another seat's number in the view
+ * Position canonical(Position,int) --> the whole position in the seat's view
+ */
+
+public class SeatTransform {
+
+    private static final int [][] SQUARE = new int[4][Move.SQUARES];
+    private static final int [][] SQUARE_BACK = new int[4][Move.SQUARES];
+    private static final int [][] MOVE = new int[4][Move.COUNT];
+    private static final int [][] MOVE_BACK = new int[4][Move.COUNT];
+    private static final int [][] SEAT = { { 0, 1, 2, 3 },
+                                           { 1, 0, 2, 3 },
+                                           { 2, 3, 0, 1 },
+                                           { 2, 3, 1, 0 } };
+
+    static {
+        // work in half squares so square centres (odd) and wall centres
+        // (even) go through the same formula
+        for (int view = 0; view < 4; view++) {
+            for (int sq = 0; sq < Move.SQUARES; sq++) {
+                int [] c = turn(view, 2 * (sq % GameBoard.COLUMNS) + 1,
+                                      2 * (sq / GameBoard.COLUMNS) + 1);
+                int to = Move.square((c[0] - 1) / 2, (c[1] - 1) / 2);
+                SQUARE[view][sq] = to;
+                SQUARE_BACK[view][to] = sq;
+                MOVE[view][Move.pawn(sq)] = Move.pawn(to);
+                MOVE_BACK[view][Move.pawn(to)] = Move.pawn(sq);
+            }
+            for (int w = Move.H_BASE; w < Move.COUNT; w++) {
+                int slot = Move.slot(w);
+                int [] c = turn(view, 2 * (slot % 8) + 2, 2 * (slot / 8) + 2);
+                boolean horizontal = Move.isHorizontal(w) == (view < 2);
+                int to = Move.wall(horizontal, (c[0] - 2) / 2, (c[1] - 2) / 2);
+                MOVE[view][w] = to;
+                MOVE_BACK[view][to] = w;
+            }
+        }
+    }
+
+    // a point in half squares (0..18) as the seat sees it
+    private static int [] turn(int view, int u, int v) {
+        int max = 2 * GameBoard.COLUMNS;
+        switch (view) {
+            case 0:  return new int [] { u, v };
+            case 1:  return new int [] { u, max - v };
+            case 2:  return new int [] { v, u };
+            default: return new int [] { v, max - u };
+        }
+    }
+
+    //*************************************************************************
+
+    /**
+      * Returns where a square is in a seat's view.
+      *     @param seat the seat whose view to use
+      *     @param sq square on the real board
+      */
+    public static int square(int seat, int sq) {
+        return SQUARE[seat][sq];
+    }
+
+    /**
+      * Returns where a square of a seat's view is on the real board.
+      *     @param seat the seat whose view it is
+      *     @param sq square in the view
+      */
+    public static int squareBack(int seat, int sq) {
+        return SQUARE_BACK[seat][sq];
+    }
+
+    /**
+      * Returns a move as it looks in a seat's view.
+      *     @param seat the seat whose view to use
+      *     @param move move on the real board
+      */
+    public static int move(int seat, int move) {
+        return (move == Move.NONE) ? Move.NONE : MOVE[seat][move];
+    }
+
+    /**
+      * Returns the real move for a move made in a seat's view.
+      *     @param seat the seat whose view it is
+      *     @param move move in the view
+      */
+    public static int moveBack(int seat, int move) {
+        return (move == Move.NONE) ? Move.NONE : MOVE_BACK[seat][move];
+    }
+
+    /**
+      * Returns the number another seat has in a seat's view. The seat itself
+      * is always 0.
+      *     @param seat the seat whose view to use
+      *     @param other any seat
+      */
+    public static int seat(int seat, int other) {
+        return SEAT[seat][other];
+    }
+
+    /**
+      * Returns a position as a seat sees it: that seat becomes seat 0, and
+      * every pawn and wall moves with the board.
+      *     @param pos the position
+      *     @param seat the seat whose view to use
+      */
+    public static Position canonical(Position pos, int seat) {
+        int [] pawns = new int[Position.MAX_PLAYERS];
+        int [] walls = new int[Position.MAX_PLAYERS];
+        for (int s = 0; s < pos.numPlayers(); s++) {
+            int t = SEAT[seat][s];
+            pawns[t] = pos.isActive(s) ? SQUARE[seat][pos.pawn(s)] : -1;
+            walls[t] = pos.wallsLeft(s);
+        }
+        long [] masks = new long[2];  // horizontal, vertical
+        for (int i = 0; i < Move.SLOTS; i++) {
+            if ((pos.hWalls() & (1L << i)) != 0)
+                place(masks, MOVE[seat][Move.H_BASE + i]);
+            if ((pos.vWalls() & (1L << i)) != 0)
+                place(masks, MOVE[seat][Move.V_BASE + i]);
+        }
+        return new Position(pos.numPlayers(), pawns, walls, masks[0],
+                            masks[1], SEAT[seat][pos.toMove()]);
+    }
+
+    private static void place(long [] masks, int wall) {
+        masks[Move.isHorizontal(wall) ? 0 : 1] |= 1L << Move.slot(wall);
+    }
+}
@@ -0,0 +1,128 @@
+/* TranspositionTable.java - CIS405 - teams
+ * ____________________________________________________________________________
+ *
+ * Fixed size hash table of search results, indexed by Position.key(). The
+ *   same position is reached through many move orders (two pawn steps and a
+ *   wall can be played in any order), so remembering results saves a lot of
+ *   work, and the stored best move is the first move tried next time.
+ *
+ * Each entry is two longs: the full key, and the data packed as
+ *
+ *      bits  0..11  --> best move + 1 (0 = no move)
+ *      bits 12..13  --> bound type (EXACT, LOWER, UPPER)
+ *      bits 16..23  --> depth searched
+ *      bits 32..63  --> score
+ *
+ * A new entry replaces an old one unless the old one is deeper and from the
+ *   current search.
+ *
+ * The table counts its probes, the probes that found their position and the
+ *   ones that found the slot taken by another position (a collision), for
+ *   SearchStats. The counts only ever go up; callers take differences.
+ *
+ * --------------------------------- METHODS ----------------------------------
+ *
+ * TranspositionTable(int)        --> table with 2^bits entries
+ * long probe(long)               --> packed data for a key, 0 if absent
+ * void store(long,int,int,int,int) --> key, move, score, depth, bound
+ * void newSearch()               --> marks older entries as replaceable
+ * void clear()                   --> empties the table
+ * long probes/hits/collisions()  --> running counts of probe outcomes
+ * int move/score/depth/bound(long) --> unpack probe results
+ */
+
+import java.util.Arrays;
+
+public class TranspositionTable {
+
+    public static final int EXACT = 0;
+    public static final int LOWER = 1;  // score is at least this
+    public static final int UPPER = 2;  // score is at most this
+
+    private final long [] keys;
+    private final long [] data;
+    private final byte [] ages;
+    private final int mask;
+    private byte age;
+    private long probes;
+    private long hits;
+    private long collisions;  // slot held another position
+
+    /**
+      * Creates a table.
+      *     @param bits log2 of the number of entries
+      */
+    public TranspositionTable(int bits) {
+        keys = new long[1 << bits];
+        data = new long[1 << bits];
+        ages = new byte[1 << bits];
+        mask = (1 << bits) - 1;
+    }
+
+    //*************************************************************************
+
+    /**
+      * Looks up a position.
+      *     @param key Zobrist key of the position
+      *     @return the packed entry, or 0 if the position is not stored
+      */
+    public long probe(long key) {
+        int i = (int) key & mask;
+        probes++;
+        if (keys[i] == key) {
+            hits++;
+            return data[i];
+        }
+        if (keys[i] != 0)
+            collisions++;
+        return 0;
+    }
+
+    /**
+      * Stores a search result.
+      *     @param key Zobrist key of the position
+      *     @param move best move found, or Move.NONE
+      *     @param score score of the position
+      *     @param depth remaining depth the score was searched to
+      *     @param bound EXACT, LOWER or UPPER
+      */
+    public void store(long key, int move, int score, int depth, int bound) {
+        int i = (int) key & mask;
+        if (keys[i] != key && ages[i] == age && depth(data[i]) > depth)
+            return;
+        if (keys[i] == key && move == Move.NONE)
+            move = move(data[i]);  // keep the old best move
+        keys[i] = key;
+        ages[i] = age;
+        data[i] = ((long) score << 32) | ((long) depth << 16)
+                | ((long) bound << 12) | (move + 1);
+    }
+
+    /**
+      * Starts a new search generation: entries from earlier searches may be
+      * overwritten by shallower ones.
+      */
+    public void newSearch() {
+        age++;
+    }
+
+    /**
+      * Empties the table.
+      */
+    public void clear() {
+        Arrays.fill(keys, 0);
+        Arrays.fill(data, 0);
+        Arrays.fill(ages, (byte) 0);
+    }
+
+    public long probes()     { return probes; }
+    public long hits()       { return hits; }
+    public long collisions() { return collisions; }
+
+    //*************************************************************************
+
+    public static int move(long entry)  { return (int) (entry & 0xFFF) - 1; }
+    public static int bound(long entry) { return (int) (entry >>> 12) & 3; }
+    public static int depth(long entry) { return (int) (entry >>> 16) & 0xFF; }
+    public static int score(long entry) { return (int) (entry >> 32); }
+}
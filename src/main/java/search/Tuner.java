@@ -0,0 +1,256 @@
+/* Tuner.java - CIS405 - teams
+ * ____________________________________________________________________________
+ *
+ * Offline tool that fits the Evaluator weights to game results, the way
+ *   chess engines are tuned ("Texel tuning"). It plays many quick two-player
+ *   games between variants of the search AI on every core, notes the
+ *   evaluation features of each position from the side to move's point of
+ *   view along with whether that side went on to win, and fits the weights
+ *   by logistic regression: P(win) = 1 / (1 + e^-(w . features)).
+ *
+ *      java Tuner <file> [games] [depth] [threads]
+ *
+ * Each game starts with a few random moves and pits two variants against
+ *   each other, both searching to a fixed depth with the current default
+ *   weights shaken up a little, so the games do not all look alike. The fit
+ *   comes out in units of log-odds; it is scaled so that one step of path is
+ *   worth 100 again and written to the file, which MoveServer loads with
+ *   --weights.
+ *
+ * --------------------------------- METHODS ----------------------------------
+ *
+ * void main(String[])              --> plays, fits and writes a weights file
+ * List<int[]> play(int,int)        --> samples from one game (seed, depth)
+ * double[] fit(List<int[]>)        --> logistic regression over samples
+ */
+
+import java.io.IOException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public class Tuner {
+
+    private static final int DEFAULT_GAMES = 2000;
+    private static final int DEFAULT_DEPTH = 2;
+    private static final int RANDOM_PLIES = 4;   // random moves to open with
+    private static final int MAX_PLIES = 200;    // a game this long is a draw
+    private static final int SPREAD = 30;        // variant weights +- this
+    private static final int ITERATIONS = 25;    // Newton steps of the fit
+    private static final double RIDGE = 1e-3;    // keeps the fit solvable
+
+    public static void usage() {
+        System.err.println("usage: java Tuner <file> [games] [depth]"
+                           + " [threads]");
+        System.exit(1);
+    }
+
+    public static void main(String[] args) {
+        if (args.length < 1)
+            usage();
+        int games = DEFAULT_GAMES;
+        int depth = DEFAULT_DEPTH;
+        int threads = Runtime.getRuntime().availableProcessors();
+        try {
+            if (args.length > 1) games = Integer.parseInt(args[1]);
+            if (args.length > 2) depth = Integer.parseInt(args[2]);
+            if (args.length > 3) threads = Integer.parseInt(args[3]);
+        } catch (NumberFormatException e) {
+            usage();
+        }
+
+        List<int []> samples = playAll(games, depth, threads);
+        System.out.println(samples.size() + " positions from " + games
+                           + " games");
+        double [] beta = fit(samples);
+        if (beta[Evaluator.PATH] <= 0) {
+            System.err.println("fit makes a longer path better; not saving");
+            System.exit(2);
+        }
+
+        int [] weights = new int[Evaluator.FEATURES];
+        for (int i = 0; i < Evaluator.FEATURES; i++) {
+            weights[i] = (int) Math.round(100 * beta[i] / beta[Evaluator.PATH]);
+            System.out.println(Evaluator.NAMES[i] + " = " + weights[i]);
+        }
+        System.out.println("log loss " + logLoss(samples, beta));
+        try {
+            Evaluator.save(args[0], weights, "fitted by Tuner to "
+                           + samples.size() + " positions from " + games
+                           + " games at depth " + depth);
+        } catch (IOException e) {
+            System.err.println("could not write " + args[0] + ": " + e);
+            System.exit(2);
+        }
+        System.out.println("wrote " + args[0]);
+    }
+
+    //*************************************************************************
+
+    // plays the games on a pool of threads and gathers their samples
+    private static List<int []> playAll(int games, final int depth,
+                                        int threads) {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        List<Future<List<int []>>> results
+            = new ArrayList<Future<List<int []>>>();
+        for (int g = 0; g < games; g++) {
+            final int seed = g;
+            results.add(pool.submit(new Callable<List<int []>>() {
+                public List<int []> call() {
+                    return play(seed, depth);
+                }
+            }));
+        }
+        pool.shutdown();
+
+        List<int []> samples = new ArrayList<int []>();
+        for (int g = 0; g < games; g++) {
+            try {
+                samples.addAll(results.get(g).get());
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            } catch (ExecutionException e) {
+                throw new RuntimeException(e.getCause());
+            }
+            if ((g + 1) % 100 == 0)
+                System.out.println("game " + (g + 1) + " of " + games);
+        }
+        return samples;
+    }
+
+    /**
+      * Plays one game between two variants and returns its samples: the
+      * features of every position after the random opening, from the side
+      * to move's point of view, followed by 2 if that side won, 0 if it lost
+      * and 1 for a draw.
+      *     @param seed picks the variants and the opening
+      *     @param depth search depth of both sides
+      *     @return the samples
+      */
+    public static List<int []> play(int seed, int depth) {
+        Random rand = new Random(seed);
+        AlphaBeta [] sides = new AlphaBeta[2];
+        for (int s = 0; s < 2; s++) {
+            int [] w = new Evaluator().getWeights();
+            for (int i = 0; i < w.length; i++)
+                w[i] += rand.nextInt(2 * SPREAD + 1) - SPREAD;
+            sides[s] = new AlphaBeta(new Evaluator(w));
+        }
+
+        Evaluator eval = new Evaluator();
+        Position pos = new Position(2);
+        int [] moves = new int[Move.COUNT];
+        List<int []> samples = new ArrayList<int []>();
+        List<Integer> movers = new ArrayList<Integer>();
+        for (int ply = 0; ply < MAX_PLIES && pos.winner() < 0; ply++) {
+            int move;
+            if (ply < RANDOM_PLIES) {
+                // half pawn moves, half walls, or walls would always win
+                int n = rand.nextBoolean() ? pos.pawnMoves(moves, 0)
+                                           : pos.generate(moves);
+                move = moves[rand.nextInt(n)];
+            } else {
+                int [] f = new int[Evaluator.FEATURES + 1];
+                eval.features(pos, pos.toMove(), f);
+                samples.add(f);
+                movers.add(pos.toMove());
+                move = sides[pos.toMove()].search(pos, depth, Long.MAX_VALUE);
+                if (move == Move.NONE)
+                    break;
+            }
+            pos.make(move);
+        }
+
+        int winner = pos.winner();
+        for (int i = 0; i < samples.size(); i++)
+            samples.get(i)[Evaluator.FEATURES]
+                = (winner < 0) ? 1 : (winner == movers.get(i)) ? 2 : 0;
+        return samples;
+    }
+
+    //*************************************************************************
+
+    /**
+      * Fits logistic regression weights to samples by Newton's method, with
+      * a little ridge penalty so features that never vary do no harm.
+      *     @param samples features followed by 0, 1 or 2 (loss, draw, win)
+      *     @return one weight per feature, in log-odds
+      */
+    public static double [] fit(List<int []> samples) {
+        int k = Evaluator.FEATURES;
+        double [] beta = new double[k];
+        for (int iter = 0; iter < ITERATIONS; iter++) {
+            double [] grad = new double[k];
+            double [][] hess = new double[k][k];
+            for (int [] x : samples) {
+                double p = predict(x, beta);
+                double y = x[k] / 2.0;
+                double w = p * (1 - p);
+                for (int i = 0; i < k; i++) {
+                    grad[i] += (y - p) * x[i];
+                    for (int j = 0; j < k; j++)
+                        hess[i][j] += w * x[i] * x[j];
+                }
+            }
+            for (int i = 0; i < k; i++) {
+                grad[i] -= RIDGE * beta[i];
+                hess[i][i] += RIDGE;
+            }
+            double [] step = solve(hess, grad);
+            for (int i = 0; i < k; i++)
+                beta[i] += step[i];
+        }
+        return beta;
+    }
+
+    private static double predict(int [] x, double [] beta) {
+        double z = 0;
+        for (int i = 0; i < beta.length; i++)
+            z += beta[i] * x[i];
+        return 1 / (1 + Math.exp(-z));
+    }
+
+    // average cross entropy of the fit, for the curious
+    private static double logLoss(List<int []> samples, double [] beta) {
+        double sum = 0;
+        for (int [] x : samples) {
+            double p = Math.min(1 - 1e-12, Math.max(1e-12, predict(x, beta)));
+            double y = x[beta.length] / 2.0;
+            sum -= y * Math.log(p) + (1 - y) * Math.log(1 - p);
+        }
+        return sum / samples.size();
+    }
+
+    // solves a x = b by Gaussian elimination with partial pivoting
+    private static double [] solve(double [][] a, double [] b) {
+        int n = b.length;
+        for (int col = 0; col < n; col++) {
+            int pivot = col;
+            for (int r = col + 1; r < n; r++)
+                if (Math.abs(a[r][col]) > Math.abs(a[pivot][col]))
+                    pivot = r;
+            double [] row = a[col]; a[col] = a[pivot]; a[pivot] = row;
+            double t = b[col]; b[col] = b[pivot]; b[pivot] = t;
+            for (int r = col + 1; r < n; r++) {
+                double f = a[r][col] / a[col][col];
+                for (int c = col; c < n; c++)
+                    a[r][c] -= f * a[col][c];
+                b[r] -= f * b[col];
+            }
+        }
+        double [] x = new double[n];
+        for (int r = n - 1; r >= 0; r--) {
+            double sum = b[r];
+            for (int c = r + 1; c < n; c++)
+                sum -= a[r][c] * x[c];
+            x[r] = sum / a[r][r];
+        }
+        return x;
+    }
+}
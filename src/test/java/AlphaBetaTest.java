@@ -0,0 +1,83 @@
+/** AlphaBetaTest.java - CIS405 - teams
+  */
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class AlphaBetaTest {
+
+    /* one step from the goal, the search should take it */
+    @Test
+    public void testSearchFindsWin() throws Exception {
+        Position pos = new Position(2);
+        // walk player 0 to the row before the goal, player 1 stays home
+        int [] path = { Move.square(4, 1), Move.square(3, 8),
+                        Move.square(4, 2), Move.square(4, 8),
+                        Move.square(4, 3), Move.square(3, 8),
+                        Move.square(4, 4), Move.square(4, 8),
+                        Move.square(4, 5), Move.square(3, 8),
+                        Move.square(4, 6), Move.square(4, 8),
+                        Move.square(4, 7) };
+        for (int m : path)
+            pos.make(m);
+        pos.make(Move.wall(true, 0, 0));  // player 1 wastes a wall
+        AlphaBeta engine = new AlphaBeta(new Evaluator());
+        int best = engine.search(pos, 4, System.currentTimeMillis() + 10000);
+        assertTrue(Position.atGoal(0, best));
+        assertTrue(engine.getScore() > Evaluator.WIN - 10);
+    }
+
+    /* a search must give up on time and still return a legal move */
+    @Test
+    public void testSearchRespectsDeadline() throws Exception {
+        Position pos = new Position(2);
+        AlphaBeta engine = new AlphaBeta(new Evaluator());
+        long start = System.currentTimeMillis();
+        int best = engine.search(pos, AlphaBeta.MAX_DEPTH, start + 200);
+        long spent = System.currentTimeMillis() - start;
+        assertTrue("took " + spent + " ms", spent < 1000);
+        assertTrue(pos.isLegal(best));
+        assertTrue(engine.getDepth() < AlphaBeta.MAX_DEPTH);
+    }
+
+    /* with a node limit and no deadline, two engines that have seen the
+       same positions must play the same moves */
+    @Test
+    public void testNodeLimitIsRepeatable() throws Exception {
+        AlphaBeta [] engines = { new AlphaBeta(new Evaluator()),
+                                 new AlphaBeta(new Evaluator()) };
+        Position [] games = { new Position(2), new Position(2) };
+        for (int ply = 0; ply < 10; ply++) {
+            int [] best = new int[2];
+            for (int i = 0; i < 2; i++) {
+                engines[i].setNodeLimit(3000);
+                best[i] = engines[i].search(games[i], AlphaBeta.MAX_DEPTH,
+                                            Long.MAX_VALUE);
+                assertTrue(engines[i].getNodes() <= 3001);
+                games[i].make(best[i]);
+            }
+            assertEquals(best[0], best[1]);
+            assertEquals(engines[0].getNodes(), engines[1].getNodes());
+        }
+    }
+
+    /* the statistics should describe the search they came from */
+    @Test
+    public void testStats() throws Exception {
+        AlphaBeta engine = new AlphaBeta(new Evaluator());
+        engine.setNodeLimit(20000);
+        engine.search(new Position(2), AlphaBeta.MAX_DEPTH, Long.MAX_VALUE);
+        SearchStats stats = engine.getStats();
+        assertEquals(1, stats.searches());
+        assertEquals(engine.getNodes(), stats.nodes());
+        assertEquals(engine.getDepth(), stats.depth(), 0);
+        assertTrue(stats.ebf() > 1);
+        assertTrue(stats.hitRate() > 0 && stats.hitRate() <= 1);
+
+        SearchStats total = new SearchStats();
+        total.add(stats);
+        total.add(stats);
+        assertEquals(2 * stats.nodes(), total.nodes());
+        assertEquals(stats.ebf(), total.ebf(), 1e-9);
+    }
+}
@@ -0,0 +1,63 @@
+/** BatchEvaluatorTest.java - CIS405 - teams
+  */
+
+import java.util.Random;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class BatchEvaluatorTest {
+
+    /* positions from random games, two- and four-player */
+    private Position [] randomPositions(int count) {
+        Random rand = new Random(405);
+        int [] moves = new int[Move.COUNT];
+        Position [] batch = new Position[count];
+        Position pos = null;
+        for (int i = 0; i < count; i++) {
+            if (pos == null || pos.winner() >= 0 || rand.nextInt(40) == 0)
+                pos = new Position(rand.nextBoolean() ? 2 : 4);
+            pos.make(moves[rand.nextInt(pos.generate(moves))]);
+            if (pos.winner() >= 0) {
+                pos = null;
+                i--;
+                continue;
+            }
+            batch[i] = new Position(pos);
+        }
+        return batch;
+    }
+
+    /* a position should come out of a batch as it went in */
+    @Test
+    public void testEncodeDecode() throws Exception {
+        Position [] batch = randomPositions(200);
+        long [] encoded = new long[batch.length * BatchEvaluator.LONGS];
+        for (int i = 0; i < batch.length; i++)
+            BatchEvaluator.encode(batch[i], encoded, i);
+        for (int i = 0; i < batch.length; i++)
+            assertEquals(batch[i].key(),
+                         BatchEvaluator.decode(encoded, i).key());
+    }
+
+    /* batch scores must be the evaluator's, on one thread or several */
+    @Test
+    public void testMatchesEvaluator() throws Exception {
+        Position [] batch = randomPositions(1000);
+        int [][] weightSets = { new Evaluator().getWeights(),
+                                { 100, 35, 20, 15, -10 } };
+        for (int [] w : weightSets) {
+            Evaluator eval = new Evaluator(w);
+            for (int threads = 1; threads <= 4; threads += 3) {
+                BatchEvaluator batchEval = new BatchEvaluator(eval, threads);
+                int [] scores = new int[batch.length];
+                batchEval.evaluate(batch, batch.length, scores);
+                batchEval.shutdown();
+                for (int i = 0; i < batch.length; i++)
+                    assertEquals("position " + i,
+                                 eval.evaluate(batch[i], batch[i].toMove()),
+                                 scores[i]);
+            }
+        }
+    }
+}
@@ -0,0 +1,104 @@
+/** ClientMessengerTest.java - CIS405 - teams
+  */
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.LinkedList;
+import java.util.Queue;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class ClientMessengerTest {
+
+    @BeforeClass
+    public static void quiet() {
+        Deb.ug = new PrintStream(new OutputStream() {
+            public void write(int b) {
+            }
+        });
+    }
+
+    /* a name is kept, however often the server plays; only a later seat
+       with the same name as an earlier one in the game gets one of its
+       own, and knows it */
+    @Test
+    public void testNames() throws Exception {
+        String [][] cases = {
+            { "WOPR1234", "HAL5678" },
+            { "WOPR1234", "HAL5678" },
+            { "HAL5678", "HAL5678" },
+            { "HAL5678", "HAL5678-1" },
+            { "WOPR1234", "WOPR1234", "HAL5678", "WOPR1234" },
+            { "WOPR1234", "WOPR1234-1", "HAL5678", "WOPR1234-3" },
+            { "A", "A", "A-1", "B" },
+            { "A", "A-1", "A-1-2", "B" },
+            { "ABCDEFGHIJKLMNOPQRST", "ABCDEFGHIJKLMNOPQRST" },
+            { "ABCDEFGHIJKLMNOPQRST", "ABCDEFGHIJKLMNOPQR-1" },
+        };
+        for (int c = 0; c < cases.length; c += 2) {
+            String [] greeted = cases[c];
+            int numPlayers = greeted.length;
+            Connection [] conns = new Connection[numPlayers];
+            ServerMessenger [] servers = new ServerMessenger[numPlayers];
+            for (int i = 0; i < numPlayers; i++) {
+                LocalConnection [] ends = LocalConnection.pair();
+                conns[i] = ends[0];
+                servers[i] = new ServerMessenger(ends[1]);
+                servers[i].identify(greeted[i]);
+            }
+            ClientMessenger hermes = new ClientMessenger(conns);
+            String [] names = hermes.getNames();
+            assertArrayEquals(cases[c + 1], names);
+
+            Queue<Player> players = new LinkedList<Player>();
+            for (int i = 0; i < numPlayers; i++) {
+                players.add(new Player(i, names[i], 20 / numPlayers));
+            }
+            hermes.broadcastPlayers(players);
+            for (int i = 0; i < numPlayers; i++) {
+                String [] seats = servers[i].players();
+                assertEquals(names[i], servers[i].name());
+                assertEquals(names[i], seats[i]);
+            }
+            hermes.closeAll();
+        }
+    }
+
+    /* a player that stays silent past the move timeout is booted by the
+       move it gets back, then by the referee; only answers are counted */
+    @Test
+    public void testTimeout() throws Exception {
+        LocalConnection [] a = LocalConnection.pair();
+        LocalConnection [] b = LocalConnection.pair();
+        ClientMessenger hermes
+            = new ClientMessenger(new Connection [] { a[0], b[0] });
+        hermes.setMoveTimeout(200);
+        Player silent = new Player(0, "silent", 10);
+
+        a[1].send("GO V-B");  // answered before it is asked
+        assertEquals("V-B", hermes.requestMove(silent));
+        assertEquals("GO?", a[1].readLine(1000));
+        assertEquals(1, hermes.getMoves(0));
+        long max = hermes.getMaxLatency(0);
+        assertTrue(max < 200);
+
+        long start = System.nanoTime();
+        assertEquals("B-O-O-T-M-E", hermes.requestMove(silent));
+        long took = (System.nanoTime() - start) / 1000000;
+        assertTrue("took " + took + " ms", took >= 200 && took < 1000);
+        assertEquals("GO?", a[1].readLine(1000));
+        assertTrue(a[0].isOpen());  // still there to be told
+        assertEquals(1, hermes.getMoves(0));
+        assertEquals(max, hermes.getMaxLatency(0));
+
+        hermes.broadcastBoot(silent);
+        assertEquals("BOOT silent", a[1].readLine(1000));
+        assertNull(a[1].readLine(1000));
+        assertFalse(a[0].isOpen());
+        assertEquals("BOOT silent", b[1].readLine(1000));
+        assertTrue(b[0].isOpen());
+        hermes.closeAll();
+    }
+}
@@ -0,0 +1,74 @@
+/** ConnectionTest.java - CIS405 - teams
+  */
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+import java.io.*;
+import java.net.*;
+
+public class ConnectionTest {
+
+    /* a server that says its piece, without a last line ending, and
+     * hangs up; every transport reads the same from it
+     */
+    private static ServerSocket server(final String said) throws Exception {
+        final ServerSocket server = new ServerSocket(0);
+        new Thread() {
+            public void run() {
+                try {
+                    Socket s = server.accept();
+                    OutputStream out = s.getOutputStream();
+                    out.write(said.getBytes("UTF-8"));
+                    out.flush();
+                    s.close();
+                    server.close();
+                } catch (IOException e) {
+                    // the test fails on its own
+                }
+            }
+        }.start();
+        return server;
+    }
+
+    private static void readAll(Connection conn) {
+        assertEquals("MOVE-SERVER x", conn.readLine(5000));
+        assertEquals("GO V-B", conn.readLine(5000));
+        assertNull(conn.readLine(5000));
+        assertFalse(conn.isOpen());
+    }
+
+    @Test
+    public void testLastLineNio() throws Exception {
+        ServerSocket server = server("MOVE-SERVER x\r\nGO V-B");
+        NioTransport transport = new NioTransport();
+        readAll(transport.connect("localhost", server.getLocalPort()));
+        transport.close();
+    }
+
+    @Test
+    public void testLastLineBlocking() throws Exception {
+        ServerSocket server = server("MOVE-SERVER x\r\nGO V-B");
+        readAll(new SocketConnection("localhost", server.getLocalPort()));
+    }
+
+    /* a line longer than any of ours closes the connection; nobody reads it */
+    @Test
+    public void testTooLong() throws Exception {
+        char [] xs = new char[LineReader.MAX + 10];
+        java.util.Arrays.fill(xs, 'x');
+        String flood = new String(xs);
+
+        ServerSocket server = server(flood);
+        NioTransport transport = new NioTransport();
+        Connection conn = transport.connect("localhost",
+                                            server.getLocalPort());
+        assertNull(conn.readLine(5000));
+        assertFalse(conn.isOpen());
+        transport.close();
+
+        server = server(flood);
+        conn = new SocketConnection("localhost", server.getLocalPort());
+        assertNull(conn.readLine(5000));
+        assertFalse(conn.isOpen());
+    }
+}
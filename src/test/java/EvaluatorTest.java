@@ -0,0 +1,80 @@
+/** EvaluatorTest.java - CIS405 - teams
+  */
+
+import java.io.File;
+import java.io.PrintStream;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class EvaluatorTest {
+
+    /* the tuner fits weights to the features, so evaluate() has to be
+       exactly the weighted sum of them, skipped terms included */
+    @Test
+    public void testEvaluateWeighsFeatures() throws Exception {
+        int [][] weightSets = { new Evaluator().getWeights(),
+                                { 100, 35, 20, 15, -10 } };
+        Random rand = new Random(405);
+        int [] moves = new int[Move.COUNT];
+        int [] f = new int[Evaluator.FEATURES];
+        for (int [] w : weightSets) {
+            Evaluator eval = new Evaluator(w);
+            Position pos = new Position(2);
+            for (int ply = 0; ply < 40 && pos.winner() < 0; ply++) {
+                for (int seat = 0; seat < 2; seat++) {
+                    eval.features(pos, seat, f);
+                    int sum = 0;
+                    for (int i = 0; i < Evaluator.FEATURES; i++)
+                        sum += w[i] * f[i];
+                    assertEquals(sum, eval.evaluate(pos, seat));
+                }
+                pos.make(moves[rand.nextInt(pos.generate(moves))]);
+            }
+        }
+    }
+
+    /* a weights file should come back as it was written, and a file
+       that leaves a feature out should keep its default */
+    @Test
+    public void testWeightsFile() throws Exception {
+        File file = File.createTempFile("weights", ".txt");
+        file.deleteOnExit();
+        int [] w = { 100, 33, 44, 5, 6 };
+        Evaluator.save(file.getPath(), w, "test");
+        assertArrayEquals(w, Evaluator.load(file.getPath()));
+
+        PrintStream out = new PrintStream(file);
+        out.println("walls = 12");
+        out.close();
+        int [] expect = new Evaluator().getWeights();
+        expect[Evaluator.WALLS] = 12;
+        assertArrayEquals(expect, Evaluator.load(file.getPath()));
+    }
+
+    /* logistic regression should find the weights that made the data */
+    @Test
+    public void testFitRecoversWeights() throws Exception {
+        double [] truth = { 0.5, 0.2, 0.3, 0, -0.1 };
+        Random rand = new Random(405);
+        List<int []> samples = new ArrayList<int []>();
+        for (int n = 0; n < 20000; n++) {
+            int [] x = new int[Evaluator.FEATURES + 1];
+            double z = 0;
+            for (int i = 0; i < Evaluator.FEATURES; i++) {
+                x[i] = rand.nextInt(11) - 5;
+                z += truth[i] * x[i];
+            }
+            double p = 1 / (1 + Math.exp(-z));
+            x[Evaluator.FEATURES] = (rand.nextDouble() < p) ? 2 : 0;
+            samples.add(x);
+        }
+        double [] beta = Tuner.fit(samples);
+        for (int i = 0; i < Evaluator.FEATURES; i++)
+            assertEquals(Evaluator.NAMES[i], truth[i], beta[i], 0.05);
+    }
+}
@@ -0,0 +1,38 @@
+/** FrameTest.java - CIS405 - teams
+  */
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+import java.util.*;
+
+public class FrameTest {
+
+    /* numbers survive the trip, negative ones too */
+    @Test
+    public void testNumbers() throws Exception {
+        long [] values = { 0, 1, 1000, -1, Long.MAX_VALUE, Long.MIN_VALUE };
+        for (long n : values) {
+            byte [] frame = Frame.ofLong(Frame.SEED, n);
+            assertEquals(frame.length - 1, frame[0]);
+            byte [] read = Arrays.copyOfRange(frame, 1, frame.length);
+            assertEquals(Frame.SEED, read[0]);
+            assertEquals(n, Frame.number(read));
+        }
+    }
+
+    /* every move fits in its byte and reads back as itself */
+    @Test
+    public void testMoves() throws Exception {
+        for (int m = 0; m < Move.COUNT; m++) {
+            byte [] frame = Frame.of(Frame.WENT, 3, m);
+            assertEquals(3, frame[0]);
+            assertEquals(m, frame[3] & 0xff);
+            byte [] read = Arrays.copyOfRange(frame, 1, frame.length);
+            assertEquals("WENT 3 " + Move.toString(m), Frame.toString(read));
+        }
+        assertTrue(Frame.NO_MOVE >= Move.COUNT);
+        assertEquals("GO?", Frame.toString(new byte [] { Frame.GO_QUERY }));
+        assertEquals(Frame.AGAIN,
+                     Frame.toString(new byte [] { Frame.NEWGAME }));
+    }
+}
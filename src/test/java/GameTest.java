@@ -22,6 +22,31 @@ public class GameTest {
         assertFalse(ClientMessenger.isValidName("S ht nsa ten "));
     }
 
+    /* a legal move comes out the one way every player is told it, Frames
+     * included; one GameEngine lets through but Move cannot encode is out
+     */
+    @Test
+    public void testCheckMove() {
+        Queue<Player> players = new LinkedList<Player>();
+        players.add(new Player(0, 10));
+        players.add(new Player(1, 10));
+        GameBoard board = new GameBoard(players);
+        Player p = players.peek();
+
+        String odd = "((V-A,VI-A))";
+        assertNotNull(GameEngine.validate(board, p, odd));
+        assertEquals(Move.NONE, Game.checkMove(board, p, odd));
+
+        int wall = Game.checkMove(board, p, "(IV-D,V-D)");
+        assertEquals(Move.wall(true, 3, 3), wall);
+        byte [] frame = Frame.of(Frame.WENT, 0, wall);
+        assertEquals(wall, frame[3] & 0xff);
+
+        assertEquals(Move.parse("V-B"), Game.checkMove(board, p, "V-B"));
+        assertEquals(Move.NONE, Game.checkMove(board, p, "I-D"));
+        assertEquals(Move.NONE, Game.checkMove(board, p, "B-O-O-T-M-E"));
+    }
+
     /*
     @Test
     public void testCountValidNames() {
@@ -0,0 +1,105 @@
+/** LineReaderTest.java - CIS405 - teams
+  */
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+public class LineReaderTest {
+
+    /* lines and frames come out whole, however the bytes arrive */
+    @Test
+    public void testPieces() throws Exception {
+        byte [] frame = Frame.of(Frame.WENT, 1, 42);
+        ByteArrayOutputStream all = new ByteArrayOutputStream();
+        all.write("PLAYERS a b\r\nBINARY\n".getBytes(StandardCharsets.UTF_8));
+        all.write(frame);
+        all.write("GO V-B\npartial".getBytes(StandardCharsets.UTF_8));
+        byte [] bytes = all.toByteArray();
+
+        // a tiny buffer, fed one byte at a time, has to move and grow
+        LineReader reader = new LineReader(ByteBuffer.allocate(4));
+        InputStream in = new ByteArrayInputStream(bytes) {
+            public int read(byte [] b, int off, int len) {
+                return super.read(b, off, Math.min(len, 1));
+            }
+        };
+        assertEquals("PLAYERS a b", next(reader, in).toString());
+        assertEquals("BINARY", next(reader, in).toString());
+        byte [] read;
+        while ((read = reader.nextFrame()) == null) {
+            assertTrue(reader.fill(in) > 0);
+        }
+        assertArrayEquals(java.util.Arrays.copyOfRange(frame, 1, 4), read);
+        CharSequence line = next(reader, in);
+        assertTrue(LineReader.startsWith(line, "GO "));
+        assertEquals(Move.parse("V-B"), Move.parse(line, 3, line.length()));
+        assertNull(next(reader, in));
+        assertEquals("partial", reader.rest().toString());
+        assertNull(reader.rest());
+        assertEquals(0, reader.available());
+    }
+
+    /* a peer that never ends its line cannot make the buffer grow for ever */
+    @Test
+    public void testTooLong() throws Exception {
+        LineReader reader = new LineReader(ByteBuffer.allocate(16));
+        InputStream in = new InputStream() {
+            public int read() {
+                return 'x';
+            }
+        };
+        int read = 0;
+        try {
+            while (reader.nextLine() == null) {
+                read += reader.fill(in);
+            }
+            fail("read a line of x");
+        } catch (IOException e) {
+            // as it should
+        }
+        assertEquals(LineReader.MAX, read);
+        assertEquals(LineReader.MAX, reader.available());
+    }
+
+    /* the helpers agree with the String methods */
+    @Test
+    public void testHelpers() throws Exception {
+        String line = "  TIME -1234 ";
+        int from = LineReader.trimStart(line);
+        int to = LineReader.trimEnd(line);
+        assertEquals(line.trim(), line.substring(from, to));
+        int space = LineReader.indexOf(line, ' ', from);
+        assertTrue(LineReader.regionEquals(line, from, space, "TIME"));
+        assertFalse(LineReader.regionEquals(line, from, space, "TIM"));
+        assertEquals(-1234, LineReader.parseLong(line, space + 1, to));
+        long [] values = { 0, 7, Long.MAX_VALUE, Long.MIN_VALUE };
+        for (long n : values) {
+            String s = String.valueOf(n);
+            assertEquals(n, LineReader.parseLong(s, 0, s.length()));
+        }
+        String [] bad = { "", "-", "1x", "9223372036854775808" };
+        for (String s : bad) {
+            try {
+                LineReader.parseLong(s, 0, s.length());
+                fail(s);
+            } catch (NumberFormatException e) {
+                // as Long.parseLong
+            }
+        }
+    }
+
+    // the next line, filling as needed; null at the end of the stream
+    private static CharSequence next(LineReader reader, InputStream in)
+        throws IOException {
+        CharSequence line;
+        while ((line = reader.nextLine()) == null) {
+            if (reader.fill(in) < 0) {
+                return null;
+            }
+        }
+        return line;
+    }
+}
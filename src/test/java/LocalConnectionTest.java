@@ -0,0 +1,60 @@
+/** LocalConnectionTest.java - CIS405 - teams
+  */
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class LocalConnectionTest {
+
+    /* lines and frames go across as they would over a socket */
+    @Test
+    public void testMessages() throws Exception {
+        LocalConnection [] ends = LocalConnection.pair();
+        ends[0].send(Connection.encode("PLAYERS a b\n" + Frame.OFFER));
+        ends[0].send(Frame.of(Frame.WENT, 1, 42));
+        ends[1].send("MOVE");
+        assertEquals("PLAYERS a b", ends[1].readLine());
+        assertEquals(Frame.OFFER, ends[1].readLine(100));
+        assertArrayEquals(new byte [] { Frame.WENT, 1, 42 },
+                          ends[1].readFrame(100));
+        assertEquals("MOVE", ends[0].nextLine(100).toString());
+    }
+
+    /* a read gives up at its deadline; a reply that comes later waits */
+    @Test
+    public void testTimeout() throws Exception {
+        LocalConnection [] ends = LocalConnection.pair();
+        long start = System.currentTimeMillis();
+        assertNull(ends[0].readLine(50));
+        assertTrue(System.currentTimeMillis() - start >= 40);
+        assertTrue(ends[0].isOpen());
+        ends[1].send("GO V-B");
+        assertEquals("GO V-B", ends[0].readLine(50));
+    }
+
+    /* a message too long to be one of ours closes the connection */
+    @Test
+    public void testTooLong() throws Exception {
+        LocalConnection [] ends = LocalConnection.pair();
+        ends[0].send(new byte[LineReader.MAX + 1]);
+        assertNull(ends[1].readLine(100));
+        assertFalse(ends[1].isOpen());
+    }
+
+    /* what was sent before a close is still read, then nothing */
+    @Test
+    public void testClose() throws Exception {
+        LocalConnection [] ends = LocalConnection.pair();
+        ends[0].send("VICTOR a");
+        ends[0].send("no line ending".getBytes("UTF-8"));
+        ends[0].close();
+        ends[0].send("lost");
+        assertFalse(ends[0].isOpen());
+        assertEquals("VICTOR a", ends[1].readLine());
+        assertEquals("no line ending", ends[1].readLine());
+        assertNull(ends[1].readLine());
+        assertNull(ends[1].readFrame(0));
+        assertFalse(ends[1].isOpen());
+        assertNull(ends[0].readLine(10));
+    }
+}
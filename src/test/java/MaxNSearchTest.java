@@ -0,0 +1,91 @@
+/** MaxNSearchTest.java - CIS405 - teams
+  */
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class MaxNSearchTest {
+
+    /* a four-player position where seat 0 is one step from its goal */
+    private Position nearWin() {
+        int [] pawns = { Move.square(4, 7), Move.square(4, 4),
+                         Move.square(0, 2), Move.square(8, 6) };
+        int [] walls = { 5, 5, 5, 5 };
+        return new Position(4, pawns, walls, 0L, 0L, 0);
+    }
+
+    /* both backups should take a win that is one step away */
+    @Test
+    public void testSearchFindsWin() throws Exception {
+        for (int mode = MaxNSearch.MAX_N; mode <= MaxNSearch.PARANOID; mode++) {
+            MaxNSearch engine = new MaxNSearch(new Evaluator(), mode);
+            int best = engine.search(nearWin(), 4,
+                                     System.currentTimeMillis() + 10000);
+            assertTrue(Position.atGoal(0, best));
+            assertTrue(engine.getScore() > Evaluator.TOTAL - 10);
+        }
+    }
+
+    /* a search must give up on time and still return a legal move */
+    @Test
+    public void testSearchRespectsDeadline() throws Exception {
+        for (int mode = MaxNSearch.MAX_N; mode <= MaxNSearch.PARANOID; mode++) {
+            Position pos = new Position(4);
+            MaxNSearch engine = new MaxNSearch(new Evaluator(), mode);
+            long start = System.currentTimeMillis();
+            int best = engine.search(pos, MaxNSearch.MAX_DEPTH, start + 200);
+            long spent = System.currentTimeMillis() - start;
+            assertTrue("took " + spent + " ms", spent < 1000);
+            assertTrue(pos.isLegal(best));
+            assertTrue(engine.getDepth() >= 1);
+        }
+    }
+
+    /* searching the same position again goes on from where the last
+       search got, instead of doing every iteration over */
+    @Test
+    public void testSearchResumes() throws Exception {
+        for (int mode = MaxNSearch.MAX_N; mode <= MaxNSearch.PARANOID; mode++) {
+            Position pos = new Position(4);
+            long deadline = System.currentTimeMillis() + 60000;
+            MaxNSearch fresh = new MaxNSearch(new Evaluator(), mode);
+            fresh.search(pos, 3, deadline);
+            assertEquals(3, fresh.getDepth());
+
+            MaxNSearch resumed = new MaxNSearch(new Evaluator(), mode);
+            resumed.search(pos, 2, deadline);
+            int best = resumed.search(pos, 3, deadline);
+            assertEquals(3, resumed.getDepth());
+            assertTrue(pos.isLegal(best));
+            assertTrue(resumed.getNodes() < fresh.getNodes());
+
+            // nothing deeper to do: the last best move comes back as is
+            assertEquals(best, resumed.search(pos, 3, deadline));
+            assertEquals(0, resumed.getNodes());
+
+            resumed.reset();
+            resumed.search(pos, 3, deadline);
+            assertEquals(fresh.getNodes(), resumed.getNodes());
+        }
+    }
+
+    /* shallow pruning relies on the shares never adding up to more than
+       TOTAL, and on a seat further from its goal getting less */
+    @Test
+    public void testEvaluationVector() throws Exception {
+        Evaluator eval = new Evaluator();
+        int [] v = new int[Position.MAX_PLAYERS];
+        Position pos = nearWin();
+        pos.boot(3);
+        eval.evaluateAll(pos, v);
+        int sum = 0;
+        for (int s = 0; s < 4; s++) {
+            assertTrue(v[s] >= 0);
+            sum += v[s];
+        }
+        assertTrue(sum <= Evaluator.TOTAL);
+        assertEquals(0, v[3]);
+        assertTrue(v[0] > v[1]);
+        assertTrue(v[1] > v[2]);
+    }
+}
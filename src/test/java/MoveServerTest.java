@@ -0,0 +1,198 @@
+/** MoveServerTest.java - CIS405 - teams
+  */
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class MoveServerTest {
+
+    /* an AI that plays like another one and writes down what it is told */
+    static class Recorder implements QuoridorAI {
+        final QuoridorAI ai;
+        final List<String> heard = new ArrayList<String>();
+
+        Recorder(QuoridorAI ai) {
+            this.ai = ai;
+        }
+
+        public String getMove(GameBoard b, Player p) {
+            return ai.getMove(b, p);
+        }
+
+        public synchronized void moveMade(GameBoard b, Player player,
+                                          int move) {
+            // the board shows the move already
+            Square loc = b.getPlayerLoc(player.getPlayerNo());
+            boolean shown = Move.isWall(move)
+                || move == Move.square(loc.getX(), loc.getY());
+            heard.add("moved " + player.getPlayerNo() + " "
+                      + Move.toString(move) + (shown ? "" : " (not shown)"));
+            ai.moveMade(b, player, move);
+        }
+
+        public synchronized void playerBooted(GameBoard b, Player player) {
+            heard.add("booted " + player.getPlayerNo()
+                      + (b.isPlayerRemaining(player.getPlayerNo())
+                         ? " (still there)" : ""));
+            ai.playerBooted(b, player);
+        }
+
+        public synchronized void gameOver(GameBoard b, Player winner) {
+            heard.add("over " + winner.getPlayerNo());
+            ai.gameOver(b, winner);
+        }
+
+        public synchronized void setSeed(long seed) {
+            heard.add("seed " + seed);
+        }
+
+        public synchronized void reset() {
+            heard.add("reset");
+            ai.reset();
+        }
+
+        public synchronized List<String> heard() {
+            return new ArrayList<String>(heard);
+        }
+
+        public String toString() {
+            return ai.toString();
+        }
+    }
+
+    /* the referee's end of a connection, counting the greetings it reads */
+    static class Counting implements Connection {
+        final Connection conn;
+        int greetings = 0;
+
+        Counting(Connection conn) {
+            this.conn = conn;
+        }
+
+        public void send(String line)       { conn.send(line); }
+        public void send(byte [] bytes)     { conn.send(bytes); }
+        public byte [] readFrame(long millis) {
+            return conn.readFrame(millis);
+        }
+        public boolean isOpen()             { return conn.isOpen(); }
+        public void close()                 { conn.close(); }
+
+        public CharSequence nextLine(long millis) {
+            CharSequence line = conn.nextLine(millis);
+            if (line != null && LineReader.startsWith(line, "MOVE-SERVER ")) {
+                greetings++;
+            }
+            return line;
+        }
+    }
+
+    @BeforeClass
+    public static void quiet() {
+        Deb.ug = new PrintStream(new OutputStream() {
+            public void write(int b) {
+            }
+        });
+    }
+
+    // runs a MoveServer session on the other end of a new connection
+    static Thread session(final Connection server, final QuoridorAI ai) {
+        Thread t = new Thread() {
+            public void run() {
+                MoveServer.serve(server, ai);
+            }
+        };
+        t.start();
+        return t;
+    }
+
+    /* WENT, BOOT and VICTOR reach the AI's callbacks decoded, with the
+       player they are about, in lines and in Frames alike */
+    @Test
+    public void testCallbacks() throws Exception {
+        int wall = Move.parse("(IV-D,V-D)");
+        for (int binary = 0; binary < 2; binary++) {
+            LocalConnection [] ends = LocalConnection.pair();
+            Connection referee = ends[0];
+            Recorder ai = new Recorder(new AI_Ripley());
+            Thread t = session(ends[1], ai);
+
+            String hello = referee.readLine(5000);
+            assertTrue(hello, hello.startsWith("MOVE-SERVER Ripley"));
+            assertTrue(hello, hello.contains(" " + Frame.OFFER));
+            if (binary == 0) {
+                referee.send("PLAYERS a b c d");
+                assertEquals("MOVE", referee.readLine(5000));
+                referee.send("WENT a V-B");
+                referee.send("BOOT b");
+                referee.send("WENT c (IV-D, V-D)");
+                referee.send("VICTOR d");
+            } else {
+                referee.send("PLAYERS a b c d\n" + Frame.OFFER);
+                assertEquals("MOVE", referee.readLine(5000));
+                referee.send(Frame.of(Frame.WENT, 0, Move.parse("V-B")));
+                referee.send(Frame.of(Frame.BOOT, 1));
+                referee.send(Frame.of(Frame.WENT, 2, wall));
+                referee.send(Frame.of(Frame.VICTOR, 3));
+            }
+            referee.close();
+            t.join(5000);
+            assertFalse(t.isAlive());
+
+            List<String> heard = ai.heard();
+            assertEquals("moved 0 V-B", heard.get(0));
+            assertEquals("booted 1", heard.get(1));
+            assertEquals("moved 2 " + Move.toString(wall), heard.get(2));
+            assertEquals("over 3", heard.get(3));
+            assertEquals("reset", heard.get(heard.size() - 1));
+        }
+    }
+
+    /* NEWGAME plays the next game over the same session: the AI is reset
+       in between and the server does not greet again, in lines and in
+       Frames alike */
+    @Test
+    public void testNewGame() throws Exception {
+        for (int binary = 0; binary < 2; binary++) {
+            Counting [] conns = new Counting[2];
+            Recorder [] ais = new Recorder[2];
+            Thread [] sessions = new Thread[2];
+            for (int i = 0; i < 2; i++) {
+                LocalConnection [] ends = LocalConnection.pair();
+                conns[i] = new Counting(ends[0]);
+                ais[i] = new Recorder(new AI_Ripley());
+                sessions[i] = session(ends[1], ais[i]);
+            }
+            ClientMessenger hermes = new ClientMessenger(conns);
+            hermes.setMoveTimeout(Game.defaultTimeout(1000));
+            hermes.setBinaryAllowed(binary == 1);
+            for (int game = 0; game < 2; game++) {
+                if (game > 0) {
+                    assertTrue(hermes.canPlayAgain());
+                    hermes.newGame();
+                }
+                hermes.setKeepOpen(game < 1);
+                Player winner = new Game(hermes, 1000, 7L + game).play(false);
+                assertNotNull(winner);
+            }
+            for (int i = 0; i < 2; i++) {
+                sessions[i].join(5000);
+                assertFalse(sessions[i].isAlive());
+                assertEquals(1, conns[i].greetings);
+
+                // seed, moves, over, reset; then all that again
+                List<String> heard = ais[i].heard();
+                int second = heard.indexOf("seed 8");
+                assertTrue(heard.toString(), second > 0);
+                assertEquals("seed 7", heard.get(0));
+                assertEquals(second - 1, heard.indexOf("reset"));
+                assertTrue(heard.get(second - 2).startsWith("over "));
+            }
+        }
+    }
+}
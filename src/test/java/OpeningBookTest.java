@@ -0,0 +1,65 @@
+/** OpeningBookTest.java - CIS405 - teams
+  */
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+import java.io.File;
+
+public class OpeningBookTest {
+
+    /* a written book should give back exactly what was put in it */
+    @Test
+    public void testWriteAndProbe() throws Exception {
+        Position pos = new Position(2);
+        long start = pos.key();
+        pos.make(Move.pawn(Move.square(4, 1)));
+        long second = pos.key();
+        long [] keys = { Math.min(start, second), Math.max(start, second) };
+        int [] moves = { Move.wall(true, 3, 3), Move.pawn(Move.square(4, 7)) };
+        int [] scores = { 75, -200000 };
+
+        File file = File.createTempFile("book", ".qbk");
+        file.deleteOnExit();
+        OpeningBook.write(file.getPath(), keys, moves, scores, 2);
+        OpeningBook book = OpeningBook.open(file.getPath());
+
+        assertEquals(2, book.size());
+        assertEquals(moves[0], book.probe(keys[0]));
+        assertEquals(moves[1], book.probe(keys[1]));
+        assertEquals(75, book.score(keys[0]));
+        assertEquals(Short.MIN_VALUE, book.score(keys[1]));
+        pos.make(Move.pawn(Move.square(4, 7)));
+        assertEquals(Move.NONE, book.probe(pos.key()));
+    }
+
+    /* unsorted records would break the binary search */
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnsortedKeys() throws Exception {
+        File file = File.createTempFile("book", ".qbk");
+        file.deleteOnExit();
+        OpeningBook.write(file.getPath(), new long [] { 5, 3 },
+                          new int [] { 0, 0 }, new int [] { 0, 0 }, 2);
+    }
+
+    /* both seats share entries: seat 1 looks up the mirror image */
+    @Test
+    public void testSeatsShareEntries() throws Exception {
+        Position down = new Position(2);
+        down.make(Move.pawn(Move.square(4, 1)));
+        down.make(Move.pawn(Move.square(4, 7)));
+        // the same race from seat 1's side of the board
+        Position up = new Position(2, new int [] { Move.square(4, 1),
+                                                   Move.square(4, 7) },
+                                   new int [] { 10, 10 }, 0, 0, 1);
+        assertEquals(OpeningBook.keyOf(down), OpeningBook.keyOf(up));
+
+        File file = File.createTempFile("book", ".qbk");
+        file.deleteOnExit();
+        OpeningBook.write(file.getPath(), new long [] { OpeningBook.keyOf(down) },
+                          new int [] { Move.pawn(Move.square(4, 2)) },
+                          new int [] { 0 }, 1);
+        OpeningBook book = OpeningBook.open(file.getPath());
+        assertEquals(Move.pawn(Move.square(4, 2)), book.probe(down));
+        assertEquals(Move.pawn(Move.square(4, 6)), book.probe(up));
+    }
+}
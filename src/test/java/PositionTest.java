@@ -0,0 +1,101 @@
+/** PositionTest.java - CIS405 - teams
+  */
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+import java.util.*;
+
+public class PositionTest {
+
+    /* every move string should survive a round trip through Move */
+    @Test
+    public void testMoveStrings() throws Exception {
+        for (int m = 0; m < Move.COUNT; m++)
+            assertEquals(m, Move.parse(Move.toString(m)));
+        assertEquals("V-B", Move.toString(Move.pawn(Move.square(4, 1))));
+        assertEquals("(IV-D,V-D)", Move.toString(Move.wall(true, 3, 3)));
+        assertEquals("(IV-D,IV-E)", Move.toString(Move.wall(false, 3, 3)));
+        assertEquals(Move.NONE, Move.parse("(IX-D,IX-E)"));
+        assertEquals(Move.NONE, Move.parse("(IV-D,VI-D)"));
+        assertEquals(Move.NONE, Move.parse("hello"));
+    }
+
+    /* parsing part of a line agrees with parsing the string */
+    @Test
+    public void testMoveStringsInLines() throws Exception {
+        for (int m = 0; m < Move.COUNT; m++) {
+            String line = "GO " + Move.toString(m);
+            assertEquals(m, Move.parse(line, 3, line.length()));
+        }
+        String line = "WENT x ( IV-D , V - D ) ";
+        assertEquals(Move.wall(true, 3, 3), Move.parse(line, 7, line.length()));
+        assertEquals(Move.NONE, Move.parse("(IX-D,IX-E)", 0, 11));
+        assertEquals(Move.NONE, Move.parse("(IV-D,VI-D)", 0, 11));
+        assertEquals(Move.NONE, Move.parse("V-B)", 0, 4));
+        assertEquals(Move.NONE, Move.parse("IIII-B", 0, 6));
+        assertEquals(Move.NONE, Move.parse("", 0, 0));
+    }
+
+    /* Position must accept exactly the moves GameEngine.validate accepts */
+    @Test
+    public void testAgreesWithGameEngine() throws Exception {
+        Random rand = new Random(17);
+        for (int game = 0; game < 12; game++) {
+            int numPlayers = (game % 2 == 0) ? 2 : 4;
+            Queue<Player> players = new LinkedList<Player>();
+            for (int i = 0; i < numPlayers; i++)
+                players.add(new Player(i, 20 / numPlayers));
+            GameBoard board = new GameBoard(players);
+            Position pos = new Position(numPlayers);
+            int [] moves = new int[Move.COUNT];
+
+            for (int turn = 0; turn < 60; turn++) {
+                Player p = players.peek();
+                Position fresh = Position.fromBoard(board, p.getPlayerNo());
+                assertEquals(fresh.key(), pos.key());
+
+                int n = pos.generate(moves);
+                Set<Integer> generated = new HashSet<Integer>();
+                for (int i = 0; i < n; i++)
+                    generated.add(moves[i]);
+                for (int m = 0; m < Move.COUNT; m++) {
+                    boolean legal =
+                        GameEngine.validate(board, p, Move.toString(m)) != null;
+                    assertEquals(Move.toString(m), legal, generated.contains(m));
+                    assertEquals(Move.toString(m), legal, pos.isLegal(m));
+                }
+
+                int m = moves[rand.nextInt(n)];
+                Square [] squares = GameEngine.validate(board, p,
+                                                        Move.toString(m));
+                if (Move.isWall(m)) {
+                    board.placeWall(squares);
+                    p.useWall();
+                } else {
+                    board.move(p, squares[0]);
+                }
+                board.getNextTurn(players);
+                pos.make(m);
+                if (pos.winner() >= 0)
+                    break;
+            }
+        }
+    }
+
+    /* make followed by unmake should restore the position exactly */
+    @Test
+    public void testMakeUnmake() throws Exception {
+        Position pos = new Position(2);
+        long key = pos.key();
+        int [] moves = new int[Move.COUNT];
+        int n = pos.generate(moves);
+        for (int i = 0; i < n; i++) {
+            pos.make(moves[i]);
+            assertTrue(key != pos.key());
+            pos.unmake();
+            assertEquals(key, pos.key());
+        }
+        assertEquals(8, pos.distance(0));
+        assertEquals(8, pos.distance(1));
+    }
+}
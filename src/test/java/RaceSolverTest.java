@@ -0,0 +1,129 @@
+/** RaceSolverTest.java - CIS405 - teams
+  */
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+import java.util.*;
+
+public class RaceSolverTest {
+
+    /* can the side to move reach its goal within the given plies, whatever
+       the other side does? counted in plies of both sides */
+    private static boolean forcedWin(Position pos, int plies) {
+        if (plies <= 0)
+            return false;
+        int mover = pos.toMove();
+        int [] moves = new int[16];
+        int n = pos.pawnMoves(moves, 0);
+        for (int i = 0; i < n; i++) {
+            pos.make(moves[i]);
+            boolean won = (pos.winner() == mover)
+                       || (plies >= 3 && !escapes(pos, plies - 1));
+            pos.unmake();
+            if (won)
+                return true;
+        }
+        return false;
+    }
+
+    /* does the side to move have a reply that wins or avoids losing
+       within the plies */
+    private static boolean escapes(Position pos, int plies) {
+        int [] moves = new int[16];
+        int n = pos.pawnMoves(moves, 0);
+        for (int i = 0; i < n; i++) {
+            int mover = pos.toMove();
+            pos.make(moves[i]);
+            boolean ok = (pos.winner() == mover)
+                      || !forcedWin(pos, plies - 1);
+            pos.unmake();
+            if (ok)
+                return true;
+        }
+        return false;
+    }
+
+    /* all 20 walls placed at random, then the pawns put anywhere */
+    private static Position randomRace(Random rand) {
+        Position pos = new Position(2);
+        while (pos.wallsLeft(0) + pos.wallsLeft(1) > 0) {
+            int w = Move.H_BASE + rand.nextInt(2 * Move.SLOTS);
+            if (pos.isLegal(w))
+                pos.make(w);
+        }
+        int a, b;
+        do {
+            a = rand.nextInt(Move.SQUARES);
+            b = rand.nextInt(Move.SQUARES);
+        } while (a == b || Position.atGoal(0, a) || Position.atGoal(1, b));
+        pos.setPawn(0, a);
+        pos.setPawn(1, b);
+        pos.setToMove(rand.nextInt(2));
+        return pos;
+    }
+
+    /* short results must agree with a brute force search */
+    @Test
+    public void testAgreesWithBruteForce() throws Exception {
+        Random rand = new Random(31);
+        RaceSolver solver = new RaceSolver();
+        for (int layout = 0; layout < 4; layout++) {
+            Position pos = randomRace(rand);
+            assertTrue(RaceSolver.applies(pos));
+            int checked = 0;
+            for (int tries = 0; tries < 20000 && checked < 40; tries++) {
+                int a = rand.nextInt(Move.SQUARES);
+                int b = rand.nextInt(Move.SQUARES);
+                if (a == b || Position.atGoal(0, a) || Position.atGoal(1, b))
+                    continue;
+                pos.setPawn(0, a);
+                pos.setPawn(1, b);
+                int plies = solver.plies(pos);
+                int outcome = solver.outcome(pos);
+                if (outcome == RaceSolver.DRAW || plies > 5)
+                    continue;
+                checked++;
+                if (outcome == RaceSolver.WIN) {
+                    assertTrue(forcedWin(pos, plies));
+                    assertFalse(forcedWin(pos, plies - 2));
+                } else {
+                    assertFalse(escapes(pos, plies));
+                    assertTrue(escapes(pos, plies - 2));
+                }
+            }
+            assertTrue(checked > 0);
+        }
+    }
+
+    /* following bestMove from a won race wins in exactly the promised plies */
+    @Test
+    public void testBestMoveWins() throws Exception {
+        Random rand = new Random(8);
+        RaceSolver solver = new RaceSolver();
+        for (int game = 0; game < 10; game++) {
+            Position pos = randomRace(rand);
+            int plies = solver.plies(pos);
+            int outcome = solver.outcome(pos);
+            if (outcome == RaceSolver.DRAW)
+                continue;
+            int winner = (outcome == RaceSolver.WIN) ? pos.toMove()
+                                                     : 1 - pos.toMove();
+            for (int i = 0; i < plies; i++) {
+                assertEquals(-1, pos.winner());
+                int m = solver.bestMove(pos);
+                assertTrue(pos.isLegal(m));
+                pos.make(m);
+            }
+            assertEquals(winner, pos.winner());
+        }
+    }
+
+    /* walls in hand mean it is not a race yet */
+    @Test
+    public void testApplies() throws Exception {
+        Position pos = new Position(2);
+        assertFalse(RaceSolver.applies(pos));
+        assertEquals(Move.NONE, new RaceSolver().bestMove(pos));
+        assertFalse(RaceSolver.applies(new Position(4)));
+    }
+}
@@ -0,0 +1,56 @@
+/** RaceTablebaseTest.java - CIS405 - teams
+  */
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+import java.io.File;
+
+public class RaceTablebaseTest {
+
+    private static Position layout() {
+        Position pos = new Position(2);
+        String [] walls = { "(IV-D,V-D)", "(V-D,V-E)", "(II-B,III-B)",
+                            "(VIII-F,VIII-G)", "(I-H,II-H)" };
+        for (String w : walls) {
+            assertTrue(w, pos.isLegal(Move.parse(w)));
+            pos.make(Move.parse(w));
+        }
+        return pos;
+    }
+
+    /* the mapped file must say what the solver says, state for state */
+    @Test
+    public void testMatchesSolver() throws Exception {
+        Position pos = layout();
+        File file = File.createTempFile("race", ".qrt");
+        file.deleteOnExit();
+        RaceTablebase.write(file.getPath(), pos);
+        RaceTablebase tb = RaceTablebase.open(file.getPath());
+        RaceSolver solver = new RaceSolver();
+
+        assertTrue(tb.covers(pos));
+        assertFalse(tb.covers(new Position(2)));
+        for (int a = 0; a < Move.SQUARES; a += 3) {
+            for (int b = 0; b < Move.SQUARES; b += 2) {
+                if (a == b || Position.atGoal(0, a) || Position.atGoal(1, b))
+                    continue;
+                pos.setPawn(0, a);
+                pos.setPawn(1, b);
+                for (int turn = 0; turn < 2; turn++) {
+                    pos.setToMove(turn);
+                    assertEquals(solver.outcome(pos), tb.outcome(pos));
+                    assertEquals(solver.plies(pos), tb.plies(pos));
+                    int m = tb.bestMove(pos);
+                    assertTrue(pos.isLegal(m));
+                }
+            }
+        }
+    }
+
+    /* Position and GameEngine.validateMove agree on every pawn placement */
+    @Test
+    public void testVerify() throws Exception {
+        assertEquals(0, RaceTablebase.verify(new Position(2), null));
+        assertEquals(0, RaceTablebase.verify(layout(), null));
+    }
+}
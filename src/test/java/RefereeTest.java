@@ -0,0 +1,156 @@
+/** RefereeTest.java - CIS405 - teams
+  */
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class RefereeTest {
+
+    /* a move server in this JVM: every connection is a MoveServer session
+     * of its own, playing Ripley, until the test is over
+     */
+    static class Server extends Thread {
+        final ServerSocket socket;
+        final List<MoveServerTest.Recorder> ais
+            = new ArrayList<MoveServerTest.Recorder>();
+
+        Server() throws IOException {
+            socket = new ServerSocket(0);
+            setDaemon(true);
+            start();
+        }
+
+        String address() {
+            return "localhost:" + socket.getLocalPort();
+        }
+
+        public void run() {
+            try {
+                while (true) {
+                    final Socket s = socket.accept();
+                    final MoveServerTest.Recorder ai
+                        = new MoveServerTest.Recorder(new AI_Ripley());
+                    synchronized (ais) {
+                        ais.add(ai);
+                    }
+                    final Connection conn = new SocketConnection(s);
+                    new Thread() {
+                        public void run() {
+                            MoveServer.serve(conn, ai);
+                        }
+                    }.start();
+                }
+            } catch (IOException e) {
+                // closed: the test is over
+            }
+        }
+
+        List<MoveServerTest.Recorder> ais() {
+            synchronized (ais) {
+                return new ArrayList<MoveServerTest.Recorder>(ais);
+            }
+        }
+    }
+
+    /* what the referee sends back, one line at a time */
+    static class Lines implements Referee.Sink {
+        final BlockingQueue<String> lines = new LinkedBlockingQueue<String>();
+
+        public void send(String line) {
+            lines.add(line);
+        }
+
+        String next() throws InterruptedException {
+            String line = lines.poll(30, TimeUnit.SECONDS);
+            assertNotNull("no answer from the referee", line);
+            return line;
+        }
+    }
+
+    @BeforeClass
+    public static void quiet() {
+        Deb.ug = new PrintStream(new OutputStream() {
+            public void write(int b) {
+            }
+        });
+    }
+
+    private static int started(String answer) {
+        assertTrue(answer, answer.startsWith("STARTED "));
+        return Integer.parseInt(answer.substring(8));
+    }
+
+    /* a GAME with --games plays them all over the same sessions, one
+       RESULT each, the seed going up by one a game */
+    @Test
+    public void testGames() throws Exception {
+        for (String text : new String [] { "", " --text" }) {
+            Server a = new Server();
+            Server b = new Server();
+            Lines sink = new Lines();
+            int id = started(Referee.request("GAME --seed=7 --games=2" + text
+                                             + " " + a.address() + " "
+                                             + b.address(), sink));
+            for (int game = 0; game < 2; game++) {
+                String [] result = sink.next().split(" ");
+                assertEquals("RESULT", result[0]);
+                assertEquals(id, Integer.parseInt(result[1]));
+                assertTrue(result[2], result[2].startsWith("Ripley"));
+                assertTrue(Integer.parseInt(result[3]) > 0);
+            }
+            for (Server server : new Server [] { a, b }) {
+                server.socket.close();
+                List<MoveServerTest.Recorder> ais = server.ais();
+                assertEquals(1, ais.size());  // NEWGAME, not a new session
+                List<String> heard = ais.get(0).heard();
+                int first = heard.indexOf("seed 7");
+                assertTrue(heard.toString(), first >= 0);
+                assertTrue(heard.toString(),
+                           heard.indexOf("seed 8") > first);
+            }
+        }
+    }
+
+    /* requests that cannot be played are answered with ERROR, right away
+       or once connecting has failed */
+    @Test
+    public void testErrors() throws Exception {
+        Lines sink = new Lines();
+        assertTrue(Referee.request("GAME localhost:1", sink)
+                   .matches("ERROR \\d+ need 2 or 4 players"));
+        assertTrue(Referee.request("GAME --games=0 localhost:1 localhost:2",
+                                   sink)
+                   .matches("ERROR \\d+ need at least one game"));
+        assertTrue(Referee.request("GAME --time=x localhost:1 localhost:2",
+                                   sink)
+                   .matches("ERROR \\d+ bad number in .*"));
+        assertEquals("ERROR 0 unknown request PLAY",
+                     Referee.request("PLAY", sink));
+        assertTrue(Referee.request("STATUS", sink)
+                   .matches("RUNNING \\d+ \\d+"));
+        assertNull(Referee.request("QUIT", sink));
+
+        ServerSocket closed = new ServerSocket(0);
+        int port = closed.getLocalPort();
+        closed.close();  // nobody is there any more
+        Server a = new Server();
+        int id = started(Referee.request("GAME " + a.address()
+                                         + " localhost:" + port, sink));
+        String error = sink.next();
+        assertTrue(error, error.startsWith("ERROR " + id + " "));
+        assertTrue(error, error.contains(Integer.toString(port)));
+        a.socket.close();
+    }
+}
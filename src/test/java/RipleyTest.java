@@ -1,21 +1,118 @@
+import java.io.OutputStream;
+import java.io.PrintStream;
 import java.util.Queue;
 import java.util.LinkedList;
+import java.util.Random;
 
 import org.junit.Test;
 import static org.junit.Assert.*;
 import org.junit.Before;
+import org.junit.BeforeClass;
 
 public class RipleyTest {
 
+    private AI_Ripley rip;
+
+    @BeforeClass
+    public static void quiet() {
+        Deb.ug = new PrintStream(new OutputStream() {
+            public void write(int b) {
+            }
+        });
+    }
+
     /* instaniate ripley */
     @Before
     public void before() throws Exception {
-        
+        rip = new AI_Ripley();
     }
 
-    /* test ripley's virtual board */
+    /* ripley's virtual board should always equal a fresh breadth first
+       search, however the walls come in, for every seat */
     @Test
     public void testVirtualBoard() throws Exception {
+        Random rand = new Random(405);
+        int [] field = new int[Move.SQUARES];
+        for (int game = 0; game < 8; game++) {
+            int numPlayers = (game % 2 == 0) ? 2 : 4;
+            int seat = game % numPlayers;
+            Queue<Player> players = new LinkedList<Player>();
+            for (int i = 0; i < numPlayers; i++)
+                players.add(new Player(i, 20 / numPlayers));
+            GameBoard board = new GameBoard(players);
+            Player placer = new Player(seat, 10);  // validate never uses them up
+            rip.reset();
+
+            for (int walls = 0; walls < 20; ) {
+                // one to three walls between ripley's moves
+                int batch = 1 + rand.nextInt(3);
+                for (int i = 0; i < batch && walls < 20; ) {
+                    String w = Move.toString(Move.H_BASE
+                                             + rand.nextInt(2 * Move.SLOTS));
+                    Square [] squares = GameEngine.validate(board, placer, w);
+                    if (squares == null)
+                        continue;
+                    board.placeWall(squares);
+                    walls++;
+                    i++;
+                }
+                Player me = board.getPlayer(seat);
+                String move = rip.getMove(board, me);
+                assertNotNull(GameEngine.validate(board, me, move));
+
+                Position.fromBoard(board, seat).distanceField(seat, field);
+                for (int sq = 0; sq < Move.SQUARES; sq++) {
+                    int expect = (field[sq] < 0) ? 999 : field[sq];
+                    assertEquals(Move.toString(sq), expect, rip.value(sq));
+                }
+            }
+        }
+    }
+
+    /* told of every move through the callbacks, as a MoveServer does,
+       ripley keeps its virtual board right without reading the board */
+    @Test
+    public void testCallbacks() throws Exception {
+        Random rand = new Random(4050);
+        int [] field = new int[Move.SQUARES];
+        int [] pawnMoves = new int[Move.COUNT];
+        for (int game = 0; game < 8; game++) {
+            int numPlayers = (game % 2 == 0) ? 2 : 4;
+            int seat = game % numPlayers;
+            Queue<Player> players = new LinkedList<Player>();
+            for (int i = 0; i < numPlayers; i++)
+                players.add(new Player(i, 20 / numPlayers));
+            GameBoard board = new GameBoard(players);
+            rip.reset();
 
+            for (int turn = 0; turn < 200; turn++) {
+                Player p = players.peek();
+                Position pos = Position.fromBoard(board, p.getPlayerNo());
+                if (pos.winner() >= 0)
+                    break;
+                String move;
+                if (p.getPlayerNo() == seat) {
+                    move = rip.getMove(board, p);
+                    pos.distanceField(seat, field);
+                    for (int sq = 0; sq < Move.SQUARES; sq++) {
+                        int expect = (field[sq] < 0) ? 999 : field[sq];
+                        assertEquals(Move.toString(sq), expect,
+                                     rip.value(sq));
+                    }
+                } else if (p.getNumWalls() > 0 && rand.nextInt(3) > 0) {
+                    do {
+                        move = Move.toString(Move.H_BASE
+                                             + rand.nextInt(2 * Move.SLOTS));
+                    } while (GameEngine.validate(board, p, move) == null);
+                } else {
+                    int n = pos.pawnMoves(pawnMoves, 0);
+                    move = Move.toString(pawnMoves[rand.nextInt(n)]);
+                }
+                assertNotNull(GameEngine.validate(board, p, move));
+                GameEngine.playTurn(move, p, board);
+                rip.moveMade(board, p, Move.parse(move));
+                players = board.getNextTurn(players);
+            }
+        }
     }
 }
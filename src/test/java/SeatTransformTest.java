@@ -0,0 +1,57 @@
+/** SeatTransformTest.java - CIS405 - teams
+  */
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+import java.util.*;
+
+public class SeatTransformTest {
+
+    /* every seat starts at the top, and the mappings undo each other */
+    @Test
+    public void testRoundTrip() throws Exception {
+        int [] start = { Move.square(4, 0), Move.square(4, 8),
+                         Move.square(0, 4), Move.square(8, 4) };
+        for (int seat = 0; seat < 4; seat++) {
+            assertEquals(Move.square(4, 0), SeatTransform.square(seat, start[seat]));
+            assertEquals(0, SeatTransform.seat(seat, seat));
+            for (int sq = 0; sq < Move.SQUARES; sq++)
+                assertEquals(sq, SeatTransform.squareBack(seat,
+                                     SeatTransform.square(seat, sq)));
+            Set<Integer> seen = new HashSet<Integer>();
+            for (int m = 0; m < Move.COUNT; m++) {
+                int t = SeatTransform.move(seat, m);
+                assertTrue(seen.add(t));
+                assertEquals(m, SeatTransform.moveBack(seat, t));
+                assertEquals(Move.isWall(m), Move.isWall(t));
+            }
+        }
+        // seat 2 sees the board along the diagonal
+        assertEquals(Move.wall(false, 3, 1),
+                     SeatTransform.move(2, Move.wall(true, 1, 3)));
+    }
+
+    /* a position and its canonical view have the same moves and distances */
+    @Test
+    public void testCanonicalAgrees() throws Exception {
+        Random rand = new Random(34);
+        int [] moves = new int[Move.COUNT];
+        for (int game = 0; game < 8; game++) {
+            int numPlayers = (game % 2 == 0) ? 2 : 4;
+            Position pos = new Position(numPlayers);
+            for (int turn = 0; turn < 40 && pos.winner() < 0; turn++) {
+                int seat = pos.toMove();
+                Position view = SeatTransform.canonical(pos, seat);
+                assertEquals(0, view.toMove());
+                for (int s = 0; s < numPlayers; s++)
+                    assertEquals(pos.distance(s),
+                        view.distance(SeatTransform.seat(seat, s)));
+                for (int m = 0; m < Move.COUNT; m++)
+                    assertEquals(Move.toString(m), pos.isLegal(m),
+                        view.isLegal(SeatTransform.move(seat, m)));
+                int n = pos.generate(moves);
+                pos.make(moves[rand.nextInt(n)]);
+            }
+        }
+    }
+}
@@ -0,0 +1,49 @@
+/** WOPRTest.java - CIS405 - teams
+  */
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.LinkedList;
+import java.util.Queue;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class WOPRTest {
+
+    @BeforeClass
+    public static void quiet() {
+        Deb.ug = new PrintStream(new OutputStream() {
+            public void write(int b) {
+            }
+        });
+    }
+
+    private static GameBoard board(Queue<Player> players, int numPlayers) {
+        for (int i = 0; i < numPlayers; i++)
+            players.add(new Player(i, 20 / numPlayers));
+        return new GameBoard(players);
+    }
+
+    /* pondering on the opponents' turns, in a two- and in a four-player
+       game, and stopping it, leaves WOPR ready for its own move */
+    @Test
+    public void testStoppedPonder() throws Exception {
+        for (int numPlayers = 2; numPlayers <= 4; numPlayers += 2) {
+            Queue<Player> players = new LinkedList<Player>();
+            GameBoard board = board(players, numPlayers);
+            Player me = board.getPlayer(0);
+            AI_WOPR wopr = new AI_WOPR();
+            wopr.ponder(board, board.getPlayer(1), me);
+            Thread.sleep(300);
+            wopr.stopPondering();
+
+            long start = System.currentTimeMillis();
+            String move = wopr.getMove(board, me, start + 200);
+            assertTrue(System.currentTimeMillis() - start < 1000);
+            assertNotNull(GameEngine.validate(board, me, move));
+            assertTrue(wopr.getStats().depth() >= 1);
+        }
+    }
+}